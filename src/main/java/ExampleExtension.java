@@ -156,6 +156,12 @@ public class ExampleExtension {
                         harlem.afterAttach();
                     }
                     if(line.trim().startsWith("less")) {
+                        String lessArguments = line.trim().substring("less".length()).trim();
+                        //-i, searches ignore case unless they have an upper case letter
+                        boolean ignoreCase = lessArguments.equals("-i") || lessArguments.startsWith("-i ");
+                        if(ignoreCase)
+                            lessArguments = lessArguments.substring("-i".length()).trim();
+                        less.setSmartCase(ignoreCase);
                         //is it getting input from pipe
                         if(exampleConsole.getShell().in().getStdIn().available() > 0) {
                             java.util.Scanner s = new java.util.Scanner(exampleConsole.getShell().in().getStdIn()).useDelimiter("\\A");
@@ -166,8 +172,8 @@ public class ExampleExtension {
                             less.afterAttach();
 
                         }
-                        else if(line.length() > "less".length()) {
-                            File f = new File(Parser.switchEscapedSpacesToSpacesInWord(line.substring("less ".length())).trim());
+                        else if(lessArguments.length() > 0) {
+                            File f = new File(Parser.switchEscapedSpacesToSpacesInWord(lessArguments));
                             if(f.isFile()) {
                                 //less.setPage(f);
                                 less.setFile(f);
@@ -0,0 +1,132 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Aho-Corasick search for a set of non empty byte patterns.
+ * The whole set is matched in one pass over the data.
+ */
+public class AhoCorasick implements ByteSearch {
+
+    private final byte[] fold;
+    private final Node root;
+    //transitions out of the root are looked up on every byte, keep them dense
+    private final Node[] rootNext;
+
+    /**
+     * @param patterns bytes to search for
+     * @param fold byte translation table applied to both patterns and data, see {@link FixedStrings#foldTable(boolean)}
+     */
+    public AhoCorasick(List<byte[]> patterns, byte[] fold) {
+        if(patterns.isEmpty())
+            throw new IllegalArgumentException("at least one pattern must be given");
+        this.fold = fold;
+        root = new Node();
+        for(byte[] pattern : patterns) {
+            if(pattern.length == 0)
+                throw new IllegalArgumentException("pattern can not be empty");
+            Node node = root;
+            for(byte b : pattern)
+                node = node.addChild(fold[b & 0xff]);
+            node.matchLength = pattern.length;
+        }
+        rootNext = new Node[256];
+        buildFailureLinks();
+    }
+
+    private void buildFailureLinks() {
+        Deque<Node> queue = new ArrayDeque<>();
+        for(int i = 0; i < root.size; i++) {
+            Node child = root.children[i];
+            child.fail = root;
+            rootNext[root.labels[i] & 0xff] = child;
+            queue.add(child);
+        }
+        while(!queue.isEmpty()) {
+            Node node = queue.poll();
+            for(int i = 0; i < node.size; i++) {
+                byte label = node.labels[i];
+                Node child = node.children[i];
+                Node fail = node.fail;
+                while(fail != root && fail.child(label) == null)
+                    fail = fail.fail;
+                Node target = fail.child(label);
+                child.fail = (target != null && target != child) ? target : root;
+                //a shorter pattern ending here is enough to report a match
+                if(child.matchLength < 0)
+                    child.matchLength = child.fail.matchLength;
+                queue.add(child);
+            }
+        }
+    }
+
+    @Override
+    public int indexOf(ByteBuffer buffer, int from, int to) {
+        Node state = root;
+        for(int i = from; i < to; i++) {
+            byte b = fold[buffer.get(i) & 0xff];
+            Node next = null;
+            while(state != root && (next = state.child(b)) == null)
+                state = state.fail;
+            if(state == root)
+                next = rootNext[b & 0xff];
+            state = next != null ? next : root;
+            if(state.matchLength > 0)
+                return i - state.matchLength + 1;
+        }
+        return -1;
+    }
+
+    private static final class Node {
+        private byte[] labels = new byte[2];
+        private Node[] children = new Node[2];
+        private int size;
+        private Node fail;
+        private int matchLength = -1;
+
+        Node child(byte label) {
+            for(int i = 0; i < size; i++)
+                if(labels[i] == label)
+                    return children[i];
+            return null;
+        }
+
+        Node addChild(byte label) {
+            Node child = child(label);
+            if(child == null) {
+                if(size == labels.length) {
+                    labels = Arrays.copyOf(labels, size * 2);
+                    children = Arrays.copyOf(children, size * 2);
+                }
+                child = new Node();
+                labels[size] = label;
+                children[size] = child;
+                size++;
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Boyer-Moore-Horspool search for a single non empty byte pattern.
+ */
+public class BoyerMooreHorspool implements ByteSearch {
+
+    private final byte[] pattern;
+    private final byte[] fold;
+    private final int[] shift;
+
+    /**
+     * @param pattern bytes to search for
+     * @param fold byte translation table applied to both pattern and data, see {@link FixedStrings#foldTable(boolean)}
+     */
+    public BoyerMooreHorspool(byte[] pattern, byte[] fold) {
+        if(pattern.length == 0)
+            throw new IllegalArgumentException("pattern can not be empty");
+        this.fold = fold;
+        this.pattern = new byte[pattern.length];
+        for(int i = 0; i < pattern.length; i++)
+            this.pattern[i] = fold[pattern[i] & 0xff];
+
+        shift = new int[256];
+        int last = pattern.length - 1;
+        for(int i = 0; i < 256; i++)
+            shift[i] = pattern.length;
+        for(int i = 0; i < last; i++)
+            shift[this.pattern[i] & 0xff] = last - i;
+    }
+
+    @Override
+    public int indexOf(ByteBuffer buffer, int from, int to) {
+        int last = pattern.length - 1;
+        int end = to - pattern.length;
+        int i = from;
+        while(i <= end) {
+            int j = last;
+            while(fold[buffer.get(i + j) & 0xff] == pattern[j]) {
+                if(j == 0)
+                    return i;
+                j--;
+            }
+            i += shift[fold[buffer.get(i + last) & 0xff] & 0xff];
+        }
+        return -1;
+    }
+}
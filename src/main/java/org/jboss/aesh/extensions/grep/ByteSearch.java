@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed string search over raw bytes.
+ * Implementations are immutable once created and may be shared between threads.
+ */
+public interface ByteSearch {
+
+    /**
+     * Find the first occurrence of the search string(s) in the given range.
+     * Only absolute reads are done, the position and limit of the buffer are not touched.
+     *
+     * @param buffer data to search
+     * @param from first index to search, inclusive
+     * @param to last index to search, exclusive
+     * @return index of the first byte of the match, or -1 if there is no match
+     */
+    int indexOf(ByteBuffer buffer, int from, int to);
+}
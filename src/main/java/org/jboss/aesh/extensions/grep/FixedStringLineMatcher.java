@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.util.List;
+
+/**
+ * Match decoded lines against a set of fixed strings without any regex.
+ * Used for -F when the input is not a file that can be searched as bytes, e.g. stdin.
+ */
+public class FixedStringLineMatcher implements LineMatcher {
+
+    private final String[] patterns;
+    private final boolean ignoreCase;
+
+    public FixedStringLineMatcher(List<String> patterns, boolean ignoreCase) {
+        this.patterns = patterns.toArray(new String[patterns.size()]);
+        this.ignoreCase = ignoreCase;
+    }
+
+    @Override
+    public boolean matches(String line) {
+        for(String pattern : patterns) {
+            if(ignoreCase ? containsIgnoreCase(line, pattern) : line.contains(pattern))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String line, String pattern) {
+        int last = line.length() - pattern.length();
+        for(int i = 0; i <= last; i++) {
+            if(line.regionMatches(true, i, pattern, 0, pattern.length()))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers to set up the fixed string (grep -F) search engines.
+ */
+public final class FixedStrings {
+
+    private static final byte[] IDENTITY = new byte[256];
+    private static final byte[] ASCII_LOWER_CASE = new byte[256];
+
+    static {
+        for(int i = 0; i < 256; i++) {
+            IDENTITY[i] = (byte) i;
+            ASCII_LOWER_CASE[i] = (byte) ((i >= 'A' && i <= 'Z') ? i + ('a' - 'A') : i);
+        }
+    }
+
+    private FixedStrings() {
+    }
+
+    /**
+     * @return byte translation table, folding ASCII upper case to lower case if ignoreCase is set
+     */
+    public static byte[] foldTable(boolean ignoreCase) {
+        return ignoreCase ? ASCII_LOWER_CASE : IDENTITY;
+    }
+
+    /**
+     * Create a byte level search for the given strings.
+     * Boyer-Moore-Horspool is used for a single string and Aho-Corasick for several.
+     *
+     * @return the search, or null if the strings can not be searched for as bytes;
+     * that is if one of them is empty or case must be ignored for non ASCII text.
+     */
+    public static ByteSearch compile(List<String> patterns, boolean ignoreCase, Charset charset) {
+        List<byte[]> bytes = new ArrayList<>(patterns.size());
+        for(String pattern : patterns) {
+            if(pattern.isEmpty())
+                return null;
+            if(ignoreCase && !isAscii(pattern))
+                return null;
+            bytes.add(pattern.getBytes(charset));
+        }
+        if(bytes.size() == 1)
+            return new BoyerMooreHorspool(bytes.get(0), foldTable(ignoreCase));
+        else
+            return new AhoCorasick(bytes, foldTable(ignoreCase));
+    }
+
+    private static boolean isAscii(String s) {
+        for(int i = 0; i < s.length(); i++)
+            if(s.charAt(i) > 127)
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import org.jboss.aesh.io.Resource;
+import org.jboss.aesh.io.filter.NoDotNamesFilter;
+import org.jboss.aesh.io.filter.ResourceFilter;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter used when walking directories recursively.
+ * Like {@link NoDotNamesFilter} it skips hidden entries. Directories are
+ * otherwise always accepted, files must match one of the include globs (if any)
+ * and none of the exclude globs. Globs are matched against the file name.
+ */
+public class GlobResourceFilter implements ResourceFilter {
+
+    private final ResourceFilter noDotNames = new NoDotNamesFilter();
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    public GlobResourceFilter(List<String> includes, List<String> excludes) {
+        this.includes = toMatchers(includes);
+        this.excludes = toMatchers(excludes);
+    }
+
+    @Override
+    public boolean accept(Resource resource) {
+        if(!noDotNames.accept(resource))
+            return false;
+        if(resource.isDirectory())
+            return true;
+        return acceptFileName(resource.getName());
+    }
+
+    public boolean acceptFileName(String name) {
+        if(!includes.isEmpty() && !matches(includes, name))
+            return false;
+        return !matches(excludes, name);
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, String name) {
+        for(PathMatcher matcher : matchers)
+            if(matcher.matches(Paths.get(name)))
+                return true;
+        return false;
+    }
+
+    private static List<PathMatcher> toMatchers(List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        if(globs != null) {
+            for(String glob : globs)
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+        return matchers;
+    }
+}
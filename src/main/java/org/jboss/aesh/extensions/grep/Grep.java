@@ -22,24 +22,28 @@ package org.jboss.aesh.extensions.grep;
 import org.jboss.aesh.cl.Arguments;
 import org.jboss.aesh.cl.CommandDefinition;
 import org.jboss.aesh.cl.Option;
+import org.jboss.aesh.cl.OptionList;
 import org.jboss.aesh.cl.completer.OptionCompleter;
 import org.jboss.aesh.complete.CompleteOperation;
-import org.jboss.aesh.console.Config;
 import org.jboss.aesh.console.command.Command;
 import org.jboss.aesh.console.command.CommandResult;
 import org.jboss.aesh.console.command.completer.CompleterInvocation;
 import org.jboss.aesh.console.command.invocation.CommandInvocation;
+import org.jboss.aesh.io.FileResource;
 import org.jboss.aesh.io.Resource;
-import org.jboss.aesh.terminal.Shell;
 import org.jboss.aesh.util.FileLister;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.PatternSyntaxException;
 
 
@@ -85,10 +89,62 @@ public class Grep implements Command<CommandInvocation> {
             description = "ignore case distinctions")
     private boolean ignoreCase;
 
+    @Option(shortName = 'c', name = "count", hasValue = false,
+            description = "print only a count of matching lines per FILE")
+    private boolean count;
+
+    @Option(shortName = 'l', name = "files-with-matches", hasValue = false,
+            description = "print only names of FILEs containing matches")
+    private boolean filesWithMatches;
+
+    @Option(shortName = 'q', name = "quiet", hasValue = false,
+            description = "suppress all normal output, stop at the first match")
+    private boolean quiet;
+
+    @Option(shortName = 'm', name = "max-count", argument = "NUM", defaultValue = {"-1"},
+            description = "stop reading a file after NUM matching lines")
+    private long maxCount;
+
+    @Option(shortName = 'A', name = "after-context", argument = "NUM", defaultValue = {"0"},
+            description = "print NUM lines of trailing context after matching lines")
+    private int afterContext;
+
+    @Option(shortName = 'B', name = "before-context", argument = "NUM", defaultValue = {"0"},
+            description = "print NUM lines of leading context before matching lines")
+    private int beforeContext;
+
+    @Option(shortName = 'C', name = "context", argument = "NUM", defaultValue = {"0"},
+            description = "print NUM lines of output context")
+    private int context;
+
+    @Option(shortName = 'j', name = "jobs", argument = "N", defaultValue = {"0"},
+            description = "search N files in parallel, output is kept in FILE order " +
+                    "(default is 1, or the number of processors with -r)")
+    private int jobs;
+
+    @Option(shortName = 'r', name = "recursive", hasValue = false,
+            description = "read all files under each directory, recursively")
+    private boolean recursive;
+
+    @OptionList(name = "include",
+            description = "search only files whose base name matches one of the comma separated GLOBs")
+    private List<String> includes;
+
+    @OptionList(name = "exclude",
+            description = "skip files whose base name matches one of the comma separated GLOBs")
+    private List<String> excludes;
+
+    @Option(name = "debug", hasValue = false,
+            description = "report how many lines the literal prefilter rejected on standard error")
+    private boolean debug;
+
     @Arguments(completer = GrepCompletor.class)
     private List<String> arguments;
 
-    private Pattern pattern;
+    private PatternSet patternSet;
+    private boolean withFileName;
+    private PrefilterLineMatcher.Stats prefilterStats;
+    private final AtomicLong totalMatches = new AtomicLong();
 
     public List<String> getArguments() {
         return arguments;
@@ -97,38 +153,56 @@ public class Grep implements Command<CommandInvocation> {
     @Override
     public CommandResult execute(CommandInvocation commandInvocation) throws IOException {
         //just display help and return
-        if(help || arguments == null || arguments.size() == 0) {
+        if(help || ((arguments == null || arguments.size() == 0) && regexp == null && file == null)) {
             commandInvocation.getShell().out().println(commandInvocation.getHelpInfo("grep"));
             return CommandResult.SUCCESS;
         }
+        if(arguments == null)
+            arguments = new ArrayList<>();
 
         //first create the pattern
+        List<String> patterns;
         try {
-            if(ignoreCase)
-                pattern = Pattern.compile(arguments.remove(0), Pattern.CASE_INSENSITIVE);
-            else
-                pattern = Pattern.compile(arguments.remove(0));
+            patterns = readPatterns(commandInvocation);
+        }
+        catch(IOException e) {
+            commandInvocation.getShell().out().println("grep: "+e.getMessage());
+            return CommandResult.FAILURE;
+        }
+        try {
+            patternSet = PatternSet.compile(patterns, fixedStrings, ignoreCase, Charset.defaultCharset());
         }
         catch(PatternSyntaxException pse) {
-            commandInvocation.getShell().out().println("grep: invalid pattern.");
+            commandInvocation.getShell().out().println("grep: invalid pattern: "+pse.getPattern());
             return CommandResult.FAILURE;
         }
 
+        totalMatches.set(0);
+        prefilterStats = debug && patternSet.hasPrefilter() ? new PrefilterLineMatcher.Stats() : null;
         //do we have data from a pipe/redirect?
         if(commandInvocation.getShell().in().getStdIn().available() > 0) {
-            java.util.Scanner s = new java.util.Scanner(commandInvocation.getShell().in().getStdIn()).useDelimiter("\\A");
-            String input = s.hasNext() ? s.next() : "";
-            List<String> inputLines = new ArrayList<>();
-            Collections.addAll(inputLines, input.split(Config.getLineSeparator()));
-
-            doGrep(inputLines, commandInvocation.getShell());
+            //the stream belongs to the shell, stream through it without closing it
+            doGrep(new InputStreamReader(commandInvocation.getShell().in().getStdIn()),
+                    commandInvocation.getShell().out());
         }
         //find argument files and build regex..
         else {
-            if(arguments != null && arguments.size() > 0) {
+            //grep -r without a FILE searches the working directory
+            if(recursive && arguments.isEmpty())
+                arguments.add(".");
+
+            if(arguments.size() > 0) {
+                List<Resource> files = new ArrayList<>(arguments.size());
                 for(String s : arguments)
-                    doGrep(commandInvocation.getAeshContext().getCurrentWorkingDirectory().newInstance(s),
-                            commandInvocation.getShell());
+                    files.add(commandInvocation.getAeshContext().getCurrentWorkingDirectory().newInstance(s));
+
+                try {
+                    doGrep(files, commandInvocation.getShell().out());
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return CommandResult.FAILURE;
+                }
             }
             //posix starts an interactive shell and read from the input here
             //atm, we'll just quit
@@ -138,43 +212,146 @@ public class Grep implements Command<CommandInvocation> {
             }
         }
 
-        return null;
+        if(debug) {
+            if(prefilterStats != null)
+                commandInvocation.getShell().err().println("grep: prefilter " + prefilterStats);
+            else
+                commandInvocation.getShell().err().println("grep: no literal prefilter for these patterns");
+        }
+
+        //like grep, succeed only if a line was selected
+        return totalMatches.get() > 0 ? CommandResult.SUCCESS : CommandResult.FAILURE;
     }
 
-    private void doGrep(Resource file, Shell shell) {
+    private void doGrep(List<Resource> files, PrintStream out) throws IOException, InterruptedException {
+        int parallelism = jobs;
+        if(parallelism < 1)
+            parallelism = recursive ? Runtime.getRuntime().availableProcessors() : 1;
+
+        if(recursive) {
+            withFileName = true;
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                files = new ParallelFileWalker(new GlobResourceFilter(includes, excludes)).walk(pool, files);
+                new ParallelGrep(parallelism).search(pool, files, new FileSearch(), out);
+            }
+            finally {
+                pool.shutdownNow();
+            }
+        }
+        else {
+            withFileName = files.size() > 1;
+            if(parallelism > 1 && files.size() > 1)
+                new ParallelGrep(parallelism).search(files, new FileSearch(), out);
+            else {
+                for(Resource file : files)
+                    doGrep(file, out);
+            }
+        }
+    }
+
+    private void doGrep(Resource file, PrintStream out) {
+        //with -q the answer is known after the first match in any file
+        if(quiet && totalMatches.get() > 0)
+            return;
         if(!file.exists()) {
-            shell.out().println("grep: "+file.toString()+": No such file or directory");
+            out.println("grep: "+file.toString()+": No such file or directory");
         }
         else if(file.isLeaf()) {
             try {
-                BufferedReader br = new BufferedReader(new InputStreamReader(file.read()));
-                List<String> inputLines = new ArrayList<>();
-
-                String line;
-                while ((line = br.readLine()) != null) {
-                    inputLines.add(line);
+                //fixed strings are searched for in the raw bytes of the file,
+                //context lines need the line by line pipeline
+                if(patternSet.getByteSearch() != null && file instanceof FileResource && !hasContext()) {
+                    totalMatches.addAndGet(new MappedFileSearcher(patternSet.getByteSearch(), Charset.defaultCharset())
+                            .search(((FileResource) file).getFile(), createWriter(file.toString(), out), getMaxCount()));
+                    return;
+                }
+                Reader reader = new InputStreamReader(file.read());
+                try {
+                    totalMatches.addAndGet(createPipeline(createWriter(file.toString(), out)).run(reader));
+                }
+                finally {
+                    reader.close();
                 }
-
-                doGrep(inputLines, shell);
             }
             catch (IOException e) {
                 e.printStackTrace();
             }
-
         }
     }
 
-    private void doGrep(List<String> inputLines, Shell shell) {
-        if(pattern != null) {
-            for(String line : inputLines) {
-                if(line != null && pattern.matcher(line).find()) {
-                    shell.out().println(line);
+    private void doGrep(Reader reader, PrintStream out) throws IOException {
+        withFileName = false;
+        totalMatches.addAndGet(createPipeline(createWriter("(standard input)", out)).run(reader));
+    }
+
+    private GrepWriter createWriter(String name, PrintStream out) {
+        GrepWriter.Mode mode = GrepWriter.Mode.LINES;
+        if(quiet)
+            mode = GrepWriter.Mode.QUIET;
+        else if(filesWithMatches)
+            mode = GrepWriter.Mode.FILES_WITH_MATCHES;
+        else if(count)
+            mode = GrepWriter.Mode.COUNT;
+        return new GrepWriter(out, name, withFileName, mode);
+    }
+
+    private GrepPipeline createPipeline(GrepWriter writer) {
+        return new GrepPipeline(createLineMatcher(), writer, getMaxCount(),
+                Math.max(beforeContext, context), Math.max(afterContext, context));
+    }
+
+    private boolean hasContext() {
+        return beforeContext > 0 || afterContext > 0 || context > 0;
+    }
+
+    private long getMaxCount() {
+        return maxCount < 0 ? Long.MAX_VALUE : maxCount;
+    }
+
+    private LineMatcher createLineMatcher() {
+        return patternSet.newLineMatcher(prefilterStats);
+    }
+
+    /**
+     * Patterns are given with -e and/or read from the -f FILE, one per line.
+     * If neither is used the first argument is the pattern.
+     * -e, like the argument, may hold several newline separated patterns.
+     * The list is empty if only an empty -f FILE is given.
+     */
+    private List<String> readPatterns(CommandInvocation commandInvocation) throws IOException {
+        List<String> patterns = new ArrayList<>();
+        if(regexp == null && file == null) {
+            Collections.addAll(patterns, arguments.remove(0).split("\n"));
+        }
+        else {
+            if(regexp != null)
+                Collections.addAll(patterns, regexp.split("\n"));
+            if(file != null) {
+                List<Resource> resolved = file.resolve(commandInvocation.getAeshContext().getCurrentWorkingDirectory());
+                if(resolved.isEmpty() || !resolved.get(0).isLeaf())
+                    throw new IOException(file.toString()+": No such file or directory");
+                Resource patternFile = resolved.get(0);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(patternFile.read()));
+                try {
+                    String line;
+                    while((line = reader.readLine()) != null)
+                        patterns.add(line);
+                }
+                finally {
+                    reader.close();
                 }
             }
         }
-        else
-            shell.out().println("No pattern given");
+        //like GNU grep an empty -f FILE matches nothing
+        return patterns;
+    }
 
+    private class FileSearch implements ParallelGrep.FileSearch {
+        @Override
+        public void search(Resource file, PrintStream out) {
+            doGrep(file, out);
+        }
     }
 
     /**
@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streams input through grep one line at a time:
+ * the reader stage pulls a line, the matcher stage tests it and the
+ * writer stage emits it right away. Only the current line, and the lines
+ * kept for context before a match, are held in memory, so the size of the
+ * input does not matter.
+ */
+public class GrepPipeline {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final LineMatcher matcher;
+    private final GrepWriter writer;
+    private final long maxMatches;
+    private final LineRingBuffer before;
+    private final int after;
+
+    public GrepPipeline(LineMatcher matcher, GrepWriter writer) {
+        this(matcher, writer, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxMatches stop reading after this many matching lines
+     */
+    public GrepPipeline(LineMatcher matcher, GrepWriter writer, long maxMatches) {
+        this(matcher, writer, maxMatches, 0, 0);
+    }
+
+    /**
+     * @param maxMatches stop reading after this many matching lines, and their trailing context
+     * @param beforeContext number of lines to print before each matching line
+     * @param afterContext number of lines to print after each matching line
+     */
+    public GrepPipeline(LineMatcher matcher, GrepWriter writer, long maxMatches,
+                        int beforeContext, int afterContext) {
+        this.matcher = matcher;
+        this.writer = writer;
+        this.maxMatches = writer.isFirstMatchEnough() ? Math.min(1, maxMatches) : maxMatches;
+        boolean context = writer.isWritingLines();
+        this.before = new LineRingBuffer(context ? Math.max(0, beforeContext) : 0);
+        this.after = context ? Math.max(0, afterContext) : 0;
+    }
+
+    /**
+     * Read lines from the given reader and write out the matching ones.
+     * Reading stops as soon as the result is known, e.g. at the first match for -q.
+     * The reader is left open, closing it is up to the caller.
+     *
+     * @param input reader stage source
+     * @return number of matching lines
+     * @throws IOException
+     */
+    public long run(Reader input) throws IOException {
+        long matches = 0;
+        BufferedReader reader = new BufferedReader(input, BUFFER_SIZE);
+        boolean context = before.capacity() > 0 || after > 0;
+        long lineNumber = 0;
+        long lastWritten = -1;
+        int afterLeft = 0;
+        String line;
+        while((matches < maxMatches || afterLeft > 0) && (line = reader.readLine()) != null) {
+            if(matches < maxMatches && matcher.matches(line)) {
+                long firstToWrite = lineNumber - before.size();
+                if(context && lastWritten >= 0 && firstToWrite > lastWritten + 1)
+                    writer.writeGroupSeparator();
+                for(int i = 0; i < before.size(); i++)
+                    writer.writeContextLine(before.get(i));
+                before.clear();
+                writer.writeLine(line);
+                lastWritten = lineNumber;
+                afterLeft = after;
+                matches++;
+            }
+            else if(afterLeft > 0) {
+                writer.writeContextLine(line);
+                lastWritten = lineNumber;
+                afterLeft--;
+            }
+            else
+                before.add(line);
+            lineNumber++;
+        }
+        writer.finish(matches);
+        return matches;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import org.jboss.aesh.console.Config;
+
+import java.io.PrintStream;
+
+/**
+ * The writer stage of the grep pipeline.
+ * Selected lines are written as soon as they are handed over, nothing is buffered here.
+ */
+public class GrepWriter {
+
+    public enum Mode {
+        /** write every selected line */
+        LINES,
+        /** only write the number of selected lines (-c) */
+        COUNT,
+        /** only write the name of the input if a line is selected (-l) */
+        FILES_WITH_MATCHES,
+        /** write nothing (-q) */
+        QUIET
+    }
+
+    private final PrintStream out;
+    private final String name;
+    private final boolean prefixName;
+    private final Mode mode;
+
+    public GrepWriter(PrintStream out) {
+        this(out, null, false, Mode.LINES);
+    }
+
+    /**
+     * @param name of the input
+     * @param prefixName if set, lines and counts are prefixed with the name and a colon
+     */
+    public GrepWriter(PrintStream out, String name, boolean prefixName, Mode mode) {
+        this.out = out;
+        this.name = name;
+        this.prefixName = prefixName;
+        this.mode = mode;
+    }
+
+    /**
+     * @return true if the first selected line settles the result, no more input needs to be read
+     */
+    public boolean isFirstMatchEnough() {
+        return mode == Mode.FILES_WITH_MATCHES || mode == Mode.QUIET;
+    }
+
+    /**
+     * @return true if selected lines are written, context lines only make sense then
+     */
+    public boolean isWritingLines() {
+        return mode == Mode.LINES;
+    }
+
+    public void writeLine(String line) {
+        if(mode == Mode.LINES) {
+            writePrefix(':');
+            out.print(line);
+            out.print(Config.getLineSeparator());
+        }
+    }
+
+    /**
+     * Write a line of context around a selected line, the name is separated with a '-'
+     */
+    public void writeContextLine(String line) {
+        if(mode == Mode.LINES) {
+            writePrefix('-');
+            out.print(line);
+            out.print(Config.getLineSeparator());
+        }
+    }
+
+    /**
+     * Written between groups of context lines that are not adjacent
+     */
+    public void writeGroupSeparator() {
+        if(mode == Mode.LINES) {
+            out.print("--");
+            out.print(Config.getLineSeparator());
+        }
+    }
+
+    /**
+     * Called when an input is done
+     *
+     * @param matches number of selected lines
+     */
+    public void finish(long matches) {
+        if(mode == Mode.COUNT) {
+            writePrefix(':');
+            out.print(matches);
+            out.print(Config.getLineSeparator());
+        }
+        else if(mode == Mode.FILES_WITH_MATCHES && matches > 0) {
+            out.print(name);
+            out.print(Config.getLineSeparator());
+        }
+        out.flush();
+    }
+
+    private void writePrefix(char separator) {
+        if(prefixName) {
+            out.print(name);
+            out.print(separator);
+        }
+    }
+}
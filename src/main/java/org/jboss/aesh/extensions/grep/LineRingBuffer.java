@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+/**
+ * Fixed size ring buffer that holds the last N lines read,
+ * used to print the context before a match (grep -B).
+ */
+public class LineRingBuffer {
+
+    private final String[] lines;
+    private int start;
+    private int size;
+
+    public LineRingBuffer(int capacity) {
+        lines = new String[capacity];
+    }
+
+    /**
+     * Add a line, dropping the oldest one if the buffer is full
+     */
+    public void add(String line) {
+        if(lines.length == 0)
+            return;
+        if(size < lines.length) {
+            lines[(start + size) % lines.length] = line;
+            size++;
+        }
+        else {
+            lines[start] = line;
+            start = (start + 1) % lines.length;
+        }
+    }
+
+    public int capacity() {
+        return lines.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index 0 is the oldest line
+     */
+    public String get(int index) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index: "+index+", size: "+size);
+        return lines[(start + index) % lines.length];
+    }
+
+    public void clear() {
+        for(int i = 0; i < size; i++)
+            lines[(start + i) % lines.length] = null;
+        start = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Search a file for fixed strings directly in its memory mapped bytes.
+ *
+ * The file is mapped in windows that always end on a line boundary. Data is
+ * never decoded while searching, only the lines that contain a match are
+ * turned into Strings and handed to the writer.
+ */
+public class MappedFileSearcher {
+
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final ByteSearch search;
+    private final Charset charset;
+    private byte[] lineBuffer = new byte[256];
+
+    public MappedFileSearcher(ByteSearch search, Charset charset) {
+        this.search = search;
+        this.charset = charset;
+    }
+
+    public long search(File file, GrepWriter writer) throws IOException {
+        return search(file, writer, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxMatches stop searching after this many matching lines
+     * @return number of matching lines
+     */
+    public long search(File file, GrepWriter writer, long maxMatches) throws IOException {
+        if(writer.isFirstMatchEnough())
+            maxMatches = Math.min(1, maxMatches);
+        long matches = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long base = 0;
+            int window = WINDOW_SIZE;
+            while(base < size && matches < maxMatches) {
+                int length = (int) Math.min(window, size - base);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+                int limit = length;
+                if(base + length < size) {
+                    //only search up to the last complete line in this window
+                    limit = lastLineEnd(buffer, length);
+                    if(limit == 0) {
+                        //a single line is longer than the window
+                        if(window == Integer.MAX_VALUE)
+                            throw new IOException(file + ": line too long");
+                        window = (int) Math.min((long) window * 2, Integer.MAX_VALUE);
+                        continue;
+                    }
+                }
+                matches += searchRegion(buffer, limit, writer, maxMatches - matches);
+                base += limit;
+            }
+        }
+        writer.finish(matches);
+        return matches;
+    }
+
+    private long searchRegion(ByteBuffer buffer, int limit, GrepWriter writer, long maxMatches) {
+        long matches = 0;
+        int position = 0;
+        while(position < limit && matches < maxMatches) {
+            int hit = search.indexOf(buffer, position, limit);
+            if(hit < 0)
+                break;
+            int start = lineStart(buffer, position, hit);
+            int end = lineEnd(buffer, hit, limit);
+            writer.writeLine(decode(buffer, start, end));
+            matches++;
+            position = end + 1;
+        }
+        return matches;
+    }
+
+    private static int lastLineEnd(ByteBuffer buffer, int length) {
+        for(int i = length - 1; i >= 0; i--)
+            if(buffer.get(i) == NEW_LINE)
+                return i + 1;
+        return 0;
+    }
+
+    private static int lineStart(ByteBuffer buffer, int from, int index) {
+        for(int i = index - 1; i >= from; i--)
+            if(buffer.get(i) == NEW_LINE)
+                return i + 1;
+        return from;
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int index, int limit) {
+        for(int i = index; i < limit; i++)
+            if(buffer.get(i) == NEW_LINE)
+                return i;
+        return limit;
+    }
+
+    private String decode(ByteBuffer buffer, int start, int end) {
+        if(end > start && buffer.get(end - 1) == CARRIAGE_RETURN)
+            end--;
+        int length = end - start;
+        if(lineBuffer.length < length)
+            lineBuffer = new byte[Math.max(length, lineBuffer.length * 2)];
+        ByteBuffer line = buffer.duplicate();
+        line.position(start);
+        line.get(lineBuffer, 0, length);
+        return new String(lineBuffer, 0, length, charset);
+    }
+}
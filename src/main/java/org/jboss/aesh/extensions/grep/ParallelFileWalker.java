@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import org.jboss.aesh.comparators.PosixFileNameComparator;
+import org.jboss.aesh.io.Resource;
+import org.jboss.aesh.io.filter.ResourceFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walk directory trees in parallel on a fork-join pool.
+ *
+ * Every directory is listed in its own task, so large trees are spread over all
+ * the pool threads by work-stealing. The files found are returned in a stable
+ * order: entries are sorted by name within a directory, and a sub directory's
+ * files take the place of the directory itself. Symbolic links to directories
+ * are not followed.
+ */
+public class ParallelFileWalker {
+
+    private final ResourceFilter filter;
+
+    public ParallelFileWalker(ResourceFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @param roots files are returned as is, directories are walked
+     * @return all files found, in a stable order
+     */
+    public List<Resource> walk(ForkJoinPool pool, List<Resource> roots) {
+        return pool.invoke(new WalkTask(filter, roots, true));
+    }
+
+    private static class WalkTask extends RecursiveTask<List<Resource>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ResourceFilter filter;
+        private final List<Resource> entries;
+        private final boolean roots;
+
+        WalkTask(ResourceFilter filter, List<Resource> entries, boolean roots) {
+            this.filter = filter;
+            this.entries = entries;
+            this.roots = roots;
+        }
+
+        @Override
+        protected List<Resource> compute() {
+            //either a file or the task walking a sub directory, in listing order
+            List<Object> found = new ArrayList<>(entries.size());
+            for(Resource entry : entries) {
+                if(entry.isDirectory() && (roots || !entry.isSymbolicLink())) {
+                    List<Resource> children = entry.list(filter);
+                    Collections.sort(children, NAME_COMPARATOR);
+                    WalkTask task = new WalkTask(filter, children, false);
+                    task.fork();
+                    found.add(task);
+                }
+                //roots are kept even if missing, so they can be reported
+                else if(roots || entry.isLeaf())
+                    found.add(entry);
+            }
+
+            List<Resource> files = new ArrayList<>();
+            for(Object o : found) {
+                if(o instanceof WalkTask)
+                    files.addAll(((WalkTask) o).join());
+                else
+                    files.add((Resource) o);
+            }
+            return files;
+        }
+    }
+
+    private static final Comparator<Resource> NAME_COMPARATOR = new Comparator<Resource>() {
+        private final PosixFileNameComparator posixFileNameComparator = new PosixFileNameComparator();
+
+        @Override
+        public int compare(Resource o1, Resource o2) {
+            return posixFileNameComparator.compare(o1.getName(), o2.getName());
+        }
+    };
+}
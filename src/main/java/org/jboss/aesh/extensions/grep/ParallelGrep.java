@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import org.jboss.aesh.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Search several files concurrently on a bounded fork-join pool.
+ *
+ * The output of each file is collected in its own buffer and written to the
+ * real output in the order the files were given, as soon as every file before
+ * it is done. Only a window of files is in flight at any time, so the amount of
+ * buffered output stays bounded no matter how many files are searched.
+ */
+public class ParallelGrep {
+
+    /**
+     * Searches one file and writes the result to the given stream.
+     * Called concurrently from the pool threads.
+     */
+    public interface FileSearch {
+        void search(Resource file, PrintStream out) throws IOException;
+    }
+
+    private final int jobs;
+
+    public ParallelGrep(int jobs) {
+        if(jobs < 1)
+            throw new IllegalArgumentException("jobs must be a positive number, was "+jobs);
+        this.jobs = jobs;
+    }
+
+    public int getJobs() {
+        return jobs;
+    }
+
+    public void search(List<Resource> files, FileSearch search, PrintStream out)
+            throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            search(pool, files, search, out);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the search on an existing pool, the pool is not shut down afterwards.
+     */
+    public void search(ForkJoinPool pool, List<Resource> files, FileSearch search, PrintStream out)
+            throws IOException, InterruptedException {
+        int window = jobs * 2;
+        Deque<Future<byte[]>> pending = new ArrayDeque<>(window);
+        int next = 0;
+        try {
+            while(next < files.size() || !pending.isEmpty()) {
+                while(next < files.size() && pending.size() < window) {
+                    pending.addLast(pool.submit(new SearchTask(files.get(next), search)));
+                    next++;
+                }
+                //write out in argument order, blocks until the oldest file is done
+                out.write(pending.removeFirst().get());
+                out.flush();
+            }
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        finally {
+            for(Future<byte[]> future : pending)
+                future.cancel(true);
+        }
+    }
+
+    private static class SearchTask implements Callable<byte[]> {
+
+        private final Resource file;
+        private final FileSearch search;
+
+        SearchTask(Resource file, FileSearch search) {
+            this.file = file;
+            this.search = search;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(buffer, false);
+            search.search(file, out);
+            out.flush();
+            return buffer.toByteArray();
+        }
+    }
+}
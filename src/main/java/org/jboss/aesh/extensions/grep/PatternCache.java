@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small LRU cache of compiled pattern sets, shared by all grep invocations.
+ * Scripts that run the same grep over and over only compile the patterns once.
+ */
+final class PatternCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static final Map<String, PatternSet> CACHE =
+            new LinkedHashMap<String, PatternSet>(MAX_ENTRIES, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PatternSet> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    private PatternCache() {
+    }
+
+    static String key(List<String> patterns, boolean fixedStrings, boolean ignoreCase, Charset charset) {
+        StringBuilder key = new StringBuilder();
+        key.append(fixedStrings ? 'F' : 'G').append(ignoreCase ? 'i' : '-').append(charset.name());
+        for(String pattern : patterns)
+            key.append('\n').append(pattern);
+        return key.toString();
+    }
+
+    static PatternSet get(String key) {
+        synchronized(CACHE) {
+            return CACHE.get(key);
+        }
+    }
+
+    static void put(String key, PatternSet set) {
+        synchronized(CACHE) {
+            CACHE.put(key, set);
+        }
+    }
+}
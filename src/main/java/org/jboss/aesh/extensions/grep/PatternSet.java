@@ -0,0 +1,212 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * All the patterns of one grep invocation, compiled into a single matcher.
+ *
+ * Regular expressions are combined into one alternation, fixed strings into one
+ * Aho-Corasick automaton (or Boyer-Moore-Horspool for a single string).
+ * Regular expressions that all contain a required literal get a prefilter,
+ * so the regex only runs on lines holding one of those literals.
+ * Every regular expression is compiled on its own first, so an invalid one is
+ * reported as such rather than changing the meaning of the alternation.
+ * Regular expressions with a backreference or a named group are matched on their
+ * own, in an alternation their group numbers would refer to the groups of other
+ * patterns and two groups of the same name would not compile.
+ * An empty set matches no line.
+ * A PatternSet is immutable and can be shared, use {@link #newLineMatcher()}
+ * to get a matcher for each input.
+ */
+public final class PatternSet {
+
+    private final List<String> patterns;
+    private final boolean fixedStrings;
+    private final boolean ignoreCase;
+    private final Pattern pattern;
+    private final List<Pattern> separatePatterns;
+    private final ByteSearch byteSearch;
+    private final LineMatcher prefilter;
+
+    private PatternSet(List<String> patterns, boolean fixedStrings, boolean ignoreCase, Charset charset) {
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+        this.fixedStrings = fixedStrings;
+        this.ignoreCase = ignoreCase;
+        if(fixedStrings || this.patterns.isEmpty()) {
+            pattern = null;
+            separatePatterns = Collections.emptyList();
+            byteSearch = this.patterns.isEmpty() ? null : FixedStrings.compile(this.patterns, ignoreCase, charset);
+            prefilter = null;
+        }
+        else {
+            int flags = ignoreCase ? Pattern.CASE_INSENSITIVE : 0;
+            List<String> combined = new ArrayList<>(this.patterns.size());
+            List<Pattern> separate = new ArrayList<>();
+            for(String p : this.patterns) {
+                Pattern compiled = Pattern.compile(p, flags);
+                if(hasBackreference(p) || hasNamedGroup(p))
+                    separate.add(compiled);
+                else
+                    combined.add(p);
+            }
+            pattern = combined.isEmpty() ? null : Pattern.compile(alternation(combined), flags);
+            separatePatterns = Collections.unmodifiableList(separate);
+            byteSearch = null;
+            prefilter = createPrefilter(this.patterns, ignoreCase);
+        }
+    }
+
+    /**
+     * Compile the given patterns, or return the cached set if they have been compiled before.
+     *
+     * @throws java.util.regex.PatternSyntaxException if one of the regular expressions is invalid
+     */
+    public static PatternSet compile(List<String> patterns, boolean fixedStrings, boolean ignoreCase, Charset charset) {
+        String key = PatternCache.key(patterns, fixedStrings, ignoreCase, charset);
+        PatternSet set = PatternCache.get(key);
+        if(set == null) {
+            set = new PatternSet(patterns, fixedStrings, ignoreCase, charset);
+            PatternCache.put(key, set);
+        }
+        return set;
+    }
+
+    private static String alternation(List<String> patterns) {
+        if(patterns.size() == 1)
+            return patterns.get(0);
+        StringBuilder builder = new StringBuilder();
+        for(String p : patterns) {
+            if(builder.length() > 0)
+                builder.append('|');
+            builder.append("(?:").append(p).append(')');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return true if the regex refers back to one of its groups, by number or by name
+     */
+    static boolean hasBackreference(String regex) {
+        for(int i = 0; i < regex.length() - 1; i++) {
+            if(regex.charAt(i) == '\\') {
+                char e = regex.charAt(++i);
+                if((e >= '1' && e <= '9') || e == 'k')
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the regex has a group of the form {@code (?<name>...)}
+     */
+    static boolean hasNamedGroup(String regex) {
+        for(int i = 0; i < regex.length() - 3; i++) {
+            char c = regex.charAt(i);
+            if(c == '\\')
+                i++;
+            else if(c == '(' && regex.charAt(i + 1) == '?' && regex.charAt(i + 2) == '<' &&
+                    Character.isLetter(regex.charAt(i + 3)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * A line can only match if it contains the required literal of one of the patterns,
+     * if any pattern has no required literal every line is a candidate.
+     */
+    private static LineMatcher createPrefilter(List<String> patterns, boolean ignoreCase) {
+        List<String> literals = new ArrayList<>(patterns.size());
+        for(String p : patterns) {
+            String literal = RegexLiterals.requiredLiteral(p);
+            if(literal == null)
+                return null;
+            literals.add(literal);
+        }
+        //the stateless fixed string matcher can be shared by all inputs
+        return new FixedStringLineMatcher(literals, ignoreCase);
+    }
+
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    public boolean isFixedStrings() {
+        return fixedStrings;
+    }
+
+    /**
+     * @return the alternation of the regular expressions without backreferences or named groups,
+     * null for fixed strings or if there are none
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return byte level search for fixed strings, null if the set must be matched line by line
+     */
+    public ByteSearch getByteSearch() {
+        return byteSearch;
+    }
+
+    /**
+     * @return true if regular expressions are only run on lines that pass a literal prefilter
+     */
+    public boolean hasPrefilter() {
+        return prefilter != null;
+    }
+
+    /**
+     * A new matcher for each input, they are not thread safe
+     */
+    public LineMatcher newLineMatcher() {
+        return newLineMatcher(null);
+    }
+
+    /**
+     * @param stats prefilter counters, null to not count
+     */
+    public LineMatcher newLineMatcher(PrefilterLineMatcher.Stats stats) {
+        if(fixedStrings || patterns.isEmpty())
+            return new FixedStringLineMatcher(patterns, ignoreCase);
+        else if(prefilter != null)
+            return new PrefilterLineMatcher(prefilter, newRegexLineMatcher(), stats);
+        else
+            return newRegexLineMatcher();
+    }
+
+    private RegexLineMatcher newRegexLineMatcher() {
+        if(separatePatterns.isEmpty())
+            return new RegexLineMatcher(pattern);
+        List<Pattern> all = new ArrayList<>(separatePatterns.size() + 1);
+        if(pattern != null)
+            all.add(pattern);
+        all.addAll(separatePatterns);
+        return new RegexLineMatcher(all);
+    }
+}
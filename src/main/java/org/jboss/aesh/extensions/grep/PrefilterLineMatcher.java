@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a cheap literal test before the full matcher, lines that lack the
+ * required literal are rejected without running the regular expression.
+ */
+public class PrefilterLineMatcher implements LineMatcher {
+
+    private final LineMatcher prefilter;
+    private final LineMatcher matcher;
+    private final Stats stats;
+
+    /**
+     * @param prefilter must accept every line the matcher accepts
+     * @param stats where to count lines and candidates, null to not count
+     */
+    public PrefilterLineMatcher(LineMatcher prefilter, LineMatcher matcher, Stats stats) {
+        this.prefilter = prefilter;
+        this.matcher = matcher;
+        this.stats = stats;
+    }
+
+    @Override
+    public boolean matches(String line) {
+        if(stats == null)
+            return prefilter.matches(line) && matcher.matches(line);
+
+        stats.lines.incrementAndGet();
+        if(!prefilter.matches(line))
+            return false;
+        stats.candidates.incrementAndGet();
+        if(!matcher.matches(line))
+            return false;
+        stats.matches.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Prefilter counters, shared by all the files of one grep invocation
+     */
+    public static class Stats {
+        private final AtomicLong lines = new AtomicLong();
+        private final AtomicLong candidates = new AtomicLong();
+        private final AtomicLong matches = new AtomicLong();
+
+        public long getLines() {
+            return lines.get();
+        }
+
+        public long getCandidates() {
+            return candidates.get();
+        }
+
+        public long getMatches() {
+            return matches.get();
+        }
+
+        @Override
+        public String toString() {
+            long total = getLines();
+            long rejected = total - getCandidates();
+            return "lines: " + total + ", rejected by prefilter: " + rejected +
+                    " (" + (total == 0 ? 0 : rejected * 100 / total) + "%)" +
+                    ", regex runs: " + getCandidates() + ", matches: " + getMatches();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Match lines with one or more java.util.regex.Pattern, a line is selected if any of them is found.
+ * The Matchers are reused between lines, so one instance must only be used by one thread.
+ */
+public class RegexLineMatcher implements LineMatcher {
+
+    private final Matcher[] matchers;
+
+    public RegexLineMatcher(Pattern pattern) {
+        this.matchers = new Matcher[] { pattern.matcher("") };
+    }
+
+    public RegexLineMatcher(List<Pattern> patterns) {
+        this.matchers = new Matcher[patterns.size()];
+        for(int i = 0; i < matchers.length; i++)
+            matchers[i] = patterns.get(i).matcher("");
+    }
+
+    @Override
+    public boolean matches(String line) {
+        for(Matcher matcher : matchers) {
+            if(matcher.reset(line).find())
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+/**
+ * Finds a literal substring that every match of a regular expression must contain.
+ *
+ * Only the top level of the expression is looked at: groups, classes and
+ * optional characters end a literal run, and anything that could change how
+ * the literals are read (alternation, inline flags, quoting, numeric escapes...)
+ * makes the expression be treated as having no required literal.
+ */
+public final class RegexLiterals {
+
+    //escapes that match one char (or nothing) and take no argument
+    private static final String SIMPLE_ESCAPES = "dDsSwWbBAzZGtnrfaehHvVRX";
+
+    private RegexLiterals() {
+    }
+
+    /**
+     * @return the longest literal every match contains, null if none was found
+     */
+    public static String requiredLiteral(String regex) {
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        int length = regex.length();
+        while(i < length) {
+            char c = regex.charAt(i);
+            if(c == '\\') {
+                if(i + 1 >= length)
+                    return null;
+                char e = regex.charAt(i + 1);
+                i += 2;
+                if(!Character.isLetterOrDigit(e))
+                    run.append(e);
+                else if(SIMPLE_ESCAPES.indexOf(e) >= 0)
+                    longest = endRun(run, longest);
+                else
+                    return null;
+            }
+            else if(c == '|')
+                return null;
+            else if(c == '(') {
+                //inline flags, e.g. (?i), change how the rest is matched
+                if(i + 2 < length && regex.charAt(i + 1) == '?' && ":=!<>".indexOf(regex.charAt(i + 2)) < 0)
+                    return null;
+                longest = endRun(run, longest);
+                i = skipGroup(regex, i);
+                if(i < 0)
+                    return null;
+            }
+            else if(c == '[') {
+                longest = endRun(run, longest);
+                i = skipClass(regex, i);
+                if(i < 0)
+                    return null;
+            }
+            else if(c == '?' || c == '*' || c == '{') {
+                //the last char is optional (or repeated a number of times we do not check)
+                if(run.length() > 0)
+                    run.setLength(run.length() - 1);
+                longest = endRun(run, longest);
+                i = skipQuantifier(regex, i);
+                if(i < 0)
+                    return null;
+            }
+            else if(c == '+') {
+                longest = endRun(run, longest);
+                i = skipQuantifier(regex, i);
+            }
+            else if(c == '.' || c == '^' || c == '$') {
+                longest = endRun(run, longest);
+                i++;
+            }
+            else {
+                run.append(c);
+                i++;
+            }
+        }
+        longest = endRun(run, longest);
+        return longest.length() > 0 ? longest : null;
+    }
+
+    private static String endRun(StringBuilder run, String longest) {
+        if(run.length() > longest.length())
+            longest = run.toString();
+        run.setLength(0);
+        return longest;
+    }
+
+    /**
+     * @return the index after the quantifier starting at i, including a lazy or possessive suffix
+     */
+    private static int skipQuantifier(String regex, int i) {
+        if(regex.charAt(i) == '{') {
+            i = regex.indexOf('}', i);
+            if(i < 0)
+                return -1;
+        }
+        i++;
+        if(i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+'))
+            i++;
+        return i;
+    }
+
+    /**
+     * @return the index after the group starting at i, -1 if it is not closed
+     */
+    private static int skipGroup(String regex, int i) {
+        int depth = 0;
+        while(i < regex.length()) {
+            char c = regex.charAt(i);
+            if(c == '\\')
+                i++;
+            else if(c == '[') {
+                i = skipClass(regex, i);
+                if(i < 0)
+                    return -1;
+                continue;
+            }
+            else if(c == '(')
+                depth++;
+            else if(c == ')') {
+                depth--;
+                if(depth == 0)
+                    return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index after the character class starting at i, -1 if it is not closed
+     */
+    private static int skipClass(String regex, int i) {
+        int depth = 0;
+        int start = i;
+        while(i < regex.length()) {
+            char c = regex.charAt(i);
+            if(c == '\\')
+                i++;
+            else if(c == '[')
+                depth++;
+            //a ] right after [ or [^ is a literal
+            else if(c == ']' && !(i == start + 1 || (i == start + 2 && regex.charAt(start + 1) == '^'))) {
+                depth--;
+                if(depth == 0)
+                    return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+}
@@ -19,37 +19,39 @@
  */
 package org.jboss.aesh.extensions.less.aesh;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.List;
 
 import org.jboss.aesh.cl.Arguments;
 import org.jboss.aesh.cl.CommandDefinition;
 import org.jboss.aesh.cl.Option;
-import org.jboss.aesh.console.Config;
+import org.jboss.aesh.complete.CompleteOperation;
+import org.jboss.aesh.console.command.Command;
 import org.jboss.aesh.console.command.CommandResult;
 import org.jboss.aesh.console.command.invocation.CommandInvocation;
-import org.jboss.aesh.console.man.AeshFileDisplayer;
 import org.jboss.aesh.console.man.FileParser;
-import org.jboss.aesh.console.man.TerminalPage;
+import org.jboss.aesh.extensions.page.FileDisplayer;
 import org.jboss.aesh.extensions.page.SimpleFileParser;
-import org.jboss.aesh.extensions.text.highlight.Encoder;
 import org.jboss.aesh.extensions.text.highlight.Scanner;
-import org.jboss.aesh.extensions.text.highlight.Syntax;
+import org.jboss.aesh.extensions.text.highlight.scanner.PlainScanner;
+import org.jboss.aesh.io.FileResource;
 import org.jboss.aesh.io.Resource;
 import org.jboss.aesh.util.ANSI;
 
+import static org.jboss.aesh.console.man.TerminalPage.Search;
+
 /**
  * A less implementation for Æsh ref: http://en.wikipedia.org/wiki/Less_(Unix)
  *
+ * The input is paged by a {@link FileDisplayer}, so it is shown while it is
+ * still read, and G and searches see all of it.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 @CommandDefinition(name ="less", description = "less is more")
-public class Less extends AeshFileDisplayer {
+public class Less implements Command<CommandInvocation> {
 
     @Arguments
     List<Resource> arguments;
@@ -57,6 +59,10 @@ public class Less extends AeshFileDisplayer {
     @Option(hasValue = false)
     private boolean color;
 
+    @Option(shortName = 'i', name = "ignore-case", hasValue = false,
+            description = "searches ignore case, unless the pattern has an upper case letter")
+    private boolean ignoreCase;
+
     private SimpleFileParser loader;
 
     public Less() {
@@ -79,90 +85,106 @@ public class Less extends AeshFileDisplayer {
         loader.setFile(inputStream, fileName);
     }
 
-    @Override
     public FileParser getFileParser() {
         return loader;
     }
 
-    @Override
-    public void displayBottom() throws IOException {
-        if(getSearchStatus() == TerminalPage.Search.SEARCHING) {
-            clearBottomLine();
-           writeToConsole("/"+getSearchWord());
-        }
-        else if(getSearchStatus() == TerminalPage.Search.NOT_FOUND) {
-            clearBottomLine();
-            writeToConsole(ANSI.INVERT_BACKGROUND+
-                    "Pattern not found (press RETURN)"+
-                    ANSI.DEFAULT_TEXT);
-        }
-        else if(getSearchStatus() == TerminalPage.Search.RESULT) {
-            writeToConsole(":");
-        }
-        else if(getSearchStatus() == TerminalPage.Search.NO_SEARCH) {
-            if(isAtBottom())
-                writeToConsole(ANSI.INVERT_BACKGROUND+"(END)"+ANSI.DEFAULT_TEXT);
-            else
-                writeToConsole(":");
-        }
-    }
-
     @Override
     public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
-        setCommandInvocation(commandInvocation);
         //make sure to reset loader on each execute
         loader = new SimpleFileParser();
         if(commandInvocation.getShell().in().getStdIn().available() > 0) {
-            java.util.Scanner s = new java.util.Scanner(commandInvocation.getShell().in().getStdIn()).useDelimiter("\\A");
-            String fileContent = s.hasNext() ? s.next() : "";
-            setInput(fileContent);
-            afterAttach();
+            loader.setStdIn(commandInvocation.getShell().in().getStdIn());
+            new Pager().run(commandInvocation);
         }
         else if(arguments != null && arguments.size() > 0) {
             Resource f =
                     arguments.get(0).resolve(commandInvocation.getAeshContext().getCurrentWorkingDirectory()).get(0);
             if(f.isLeaf()) {
                 if(color) {
-                    String content = readFile(f.read());
-
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-                    Syntax.builtIns();
-                    Syntax.Builder.create()
-                            .encoderType(Encoder.Type.TERMINAL)
-                            .output(baos)
-                            .scanner(Scanner.Factory.byFileName(f.getName()))
-                            .execute(content);
-
-                    setInput(new String(baos.toByteArray()));
-                    afterAttach();
+                    Scanner scanner;
+                    //look at the first bytes when the name is not enough
+                    try (InputStream content = f.read()) {
+                        scanner = Scanner.Factory.byFileName(f.getName(), content);
+                    }
+                    //plain text has nothing to highlight
+                    if(scanner.getType() != PlainScanner.TYPE)
+                        loader.setScanner(scanner);
                 }
-                else {
+                //local files are indexed in place instead of copied
+                if(f instanceof FileResource)
+                    setFile(((FileResource) f).getFile());
+                else
                     setFile(f.read(), f.getName());
-                    afterAttach();
-                }
+                new Pager().run(commandInvocation);
             }
             else if(f.isDirectory()) {
-                getShell().err().println(f.getAbsolutePath()+": is a directory");
+                commandInvocation.getShell().err().println(f.getAbsolutePath()+": is a directory");
             }
             else {
-                getShell().err().println(f.getAbsolutePath() + ": No such file or directory");
+                commandInvocation.getShell().err().println(f.getAbsolutePath() + ": No such file or directory");
             }
         }
 
         return CommandResult.SUCCESS;
     }
 
-    private String readFile(InputStream inputStream) throws IOException {
-        StringBuilder builder = new StringBuilder();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            builder.append(line).append(Config.getLineSeparator());
+    private class Pager extends FileDisplayer {
+
+        /**
+         * Page the input until the user quits
+         */
+        void run(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            setShell(commandInvocation.getShell());
+            setControlOperator(commandInvocation.getControlOperator());
+            setSmartCase(ignoreCase);
+            afterAttach();
+            try {
+                while(isAttached())
+                    processOperation(commandInvocation.getInput());
+            }
+            finally {
+                if(isAttached())
+                    afterDetach();
+            }
+        }
+
+        @Override
+        public FileParser getFileParser() {
+            return loader;
         }
 
-        inputStream.close();
+        @Override
+        public void complete(CompleteOperation completeOperation) {
+            //the command line is completed by the command registry
+        }
 
-        return builder.toString();
+        @Override
+        public void displayBottom() throws IOException {
+            if(isFollowing()) {
+                writeToConsole(ANSI.INVERT_BACKGROUND+
+                        "Waiting for data... (press any key to stop)"+
+                        ANSI.DEFAULT_TEXT);
+            }
+            else if(getSearchStatus() == Search.SEARCHING) {
+                clearBottomLine();
+                writeToConsole("/"+getSearchWord());
+            }
+            else if(getSearchStatus() == Search.NOT_FOUND) {
+                clearBottomLine();
+                writeToConsole(ANSI.INVERT_BACKGROUND+
+                        "Pattern not found (press RETURN)"+
+                        ANSI.DEFAULT_TEXT);
+            }
+            else if(getSearchStatus() == Search.RESULT) {
+                writeToConsole(":");
+            }
+            else if(getSearchStatus() == Search.NO_SEARCH) {
+                if(isAtBottom())
+                    writeToConsole(ANSI.INVERT_BACKGROUND+"(END)"+ANSI.DEFAULT_TEXT);
+                else
+                    writeToConsole(":");
+            }
+        }
     }
 }
@@ -81,7 +81,12 @@ public class Less extends FileDisplayer {
 
     @Override
     public void displayBottom() throws IOException {
-        if(getSearchStatus() == Search.SEARCHING) {
+        if(isFollowing()) {
+            writeToConsole(ANSI.INVERT_BACKGROUND+
+                    "Waiting for data... (press any key to stop)"+
+                    ANSI.DEFAULT_TEXT);
+        }
+        else if(getSearchStatus() == Search.SEARCHING) {
             clearBottomLine();
            writeToConsole("/"+getSearchWord());
         }
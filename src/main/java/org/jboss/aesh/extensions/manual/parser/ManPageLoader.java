@@ -32,9 +32,9 @@ import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 import org.jboss.aesh.console.Config;
+import org.jboss.aesh.extensions.page.Decompressor;
 import org.jboss.aesh.extensions.page.PageLoader;
 
 /**
@@ -56,7 +56,7 @@ public class ManPageLoader implements PageLoader {
     }
 
     /**
-     * Read from a specified filename. Also supports gzipped files.
+     * Read from a specified filename. Also supports compressed files, see {@link Decompressor}.
      *
      * @param filename File
      * @throws IOException
@@ -66,7 +66,7 @@ public class ManPageLoader implements PageLoader {
     }
 
     /**
-     * Read from a specified file. Also supports gzipped files.
+     * Read from a specified file. Also supports compressed files, see {@link Decompressor}.
      *
      * @param file File
      * @throws IOException
@@ -75,8 +75,9 @@ public class ManPageLoader implements PageLoader {
         if(!file.isFile())
             throw new IllegalArgumentException(file+" must be a file.");
         else {
-            if(file.getName().endsWith("gz"))
-                initGzReader(file);
+            Decompressor decompressor = Decompressor.Factory.forFileName(file.getName());
+            if(decompressor != null)
+                initCompressedReader(file, decompressor);
             else
                 initReader(file);
             sections.clear();
@@ -89,10 +90,9 @@ public class ManPageLoader implements PageLoader {
 
     public void setFile(InputStream input, String fileName) throws IOException {
         if(input != null && fileName != null) {
-            if(fileName.endsWith("gz")) {
-                GZIPInputStream gzip = new GZIPInputStream(input);
-                reader = new InputStreamReader(gzip);
-            }
+            Decompressor decompressor = Decompressor.Factory.forFileName(fileName);
+            if(decompressor != null)
+                reader = new InputStreamReader(decompressor.decompress(input));
             else
                 reader = new InputStreamReader(input);
 
@@ -118,10 +118,9 @@ public class ManPageLoader implements PageLoader {
         reader = new FileReader(file);
     }
 
-    private void initGzReader(File file) throws IOException {
+    private void initCompressedReader(File file, Decompressor decompressor) throws IOException {
         fileName = file.getAbsolutePath();
-        GZIPInputStream gzip = new GZIPInputStream(new FileInputStream(file));
-        reader = new InputStreamReader(gzip);
+        reader = new InputStreamReader(decompressor.decompress(new FileInputStream(file)));
     }
 
     public String getResourceName() {
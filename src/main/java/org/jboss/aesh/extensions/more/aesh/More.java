@@ -32,10 +32,10 @@ import org.jboss.aesh.console.command.Command;
 import org.jboss.aesh.console.command.CommandOperation;
 import org.jboss.aesh.console.command.CommandResult;
 import org.jboss.aesh.console.command.invocation.CommandInvocation;
-import org.jboss.aesh.console.man.FileParser;
-import org.jboss.aesh.console.man.TerminalPage;
 import org.jboss.aesh.console.operator.ControlOperator;
+import org.jboss.aesh.extensions.page.Page;
 import org.jboss.aesh.extensions.page.SimpleFileParser;
+import org.jboss.aesh.io.FileResource;
 import org.jboss.aesh.io.Resource;
 import org.jboss.aesh.terminal.Key;
 import org.jboss.aesh.util.ANSI;
@@ -50,7 +50,7 @@ public class More implements Command<CommandInvocation> {
     private int topVisibleRow;
     private int prevTopVisibleRow;
     private StringBuilder number;
-    private MorePage page;
+    private Page page;
     private SimpleFileParser loader;
     private CommandInvocation commandInvocation;
     private ControlOperator operator;
@@ -81,15 +81,13 @@ public class More implements Command<CommandInvocation> {
     protected void afterAttach() throws IOException {
         rows = commandInvocation.getShell().getSize().getHeight();
         int columns = commandInvocation.getShell().getSize().getWidth();
-        page = new MorePage(loader, columns);
+        page = loader.createPage(columns);
 
         if(operator.isRedirectionOut() || operator.isPipe()) {
-            int count=0;
-            for(String line : this.page.getLines()) {
-                commandInvocation.getShell().out().print(line);
-                count++;
-                if(count < this.page.size())
+            for(int i=0; hasRow(i); i++) {
+                if(i > 0)
                     commandInvocation.getShell().out().print(Config.getLineSeparator());
+                commandInvocation.getShell().out().print(page.getLine(i));
             }
 
             page.clear();
@@ -128,6 +126,7 @@ public class More implements Command<CommandInvocation> {
                 }
                 else if( operation.getInputKey() == Key.ENTER) {
                     topVisibleRow = topVisibleRow + getNumber();
+                    page.waitFor(topVisibleRow+rows);
                     if(topVisibleRow > (page.size()-rows)) {
                         topVisibleRow = page.size()-rows;
                         if(topVisibleRow < 0)
@@ -143,6 +142,7 @@ public class More implements Command<CommandInvocation> {
                 else if(operation.getInputKey() == Key.CTRL_F ||
                         operation.getInputKey() == Key.SPACE) {
                     topVisibleRow = topVisibleRow + rows*getNumber();
+                    page.waitFor(topVisibleRow+rows);
                     if(topVisibleRow > (page.size()-rows)) {
                         topVisibleRow = page.size()-rows;
                         if(topVisibleRow < 0)
@@ -177,7 +177,7 @@ public class More implements Command<CommandInvocation> {
         commandInvocation.getShell().out().print(Buffer.printAnsi("2K"));
         if(prevTopVisibleRow == 0 && topVisibleRow == 0) {
             for(int i=topVisibleRow; i < (topVisibleRow+rows); i++) {
-                if(i < page.size()) {
+                if(hasRow(i)) {
                     commandInvocation.getShell().out().print(page.getLine(i));
                     commandInvocation.getShell().out().print(Config.getLineSeparator());
                 }
@@ -195,7 +195,7 @@ public class More implements Command<CommandInvocation> {
         }
         else if(prevTopVisibleRow > topVisibleRow) {
             for(int i=topVisibleRow; i < (topVisibleRow+rows); i++) {
-                if(i < page.size()) {
+                if(hasRow(i)) {
                     commandInvocation.getShell().out().print(page.getLine(i));
                     commandInvocation.getShell().out().print(Config.getLineSeparator());
                 }
@@ -205,6 +205,14 @@ public class More implements Command<CommandInvocation> {
         displayBottom(background);
     }
 
+    /**
+     * Check if the row exists, waiting for it while the page is loading
+     */
+    private boolean hasRow(int row) {
+        page.waitFor(row+1);
+        return row < page.size();
+    }
+
     private void displayBottom(Background background) throws IOException {
         if(background == Background.INVERSE) {
             commandInvocation.getShell().out().print(ANSI.INVERT_BACKGROUND);
@@ -246,16 +254,19 @@ public class More implements Command<CommandInvocation> {
         loader = new SimpleFileParser();
 
         if(commandInvocation.getShell().in().getStdIn().available() > 0) {
-            java.util.Scanner s = new java.util.Scanner(commandInvocation.getShell().in().getStdIn()).useDelimiter("\\A");
-            String fileContent = s.hasNext() ? s.next() : "";
-            setInput(fileContent);
+            //page the input while it is read
+            loader.setStdIn(commandInvocation.getShell().in().getStdIn());
             afterAttach();
         }
         else if(arguments != null && arguments.size() > 0) {
             Resource f = arguments.get(0);
             f = f.resolve(commandInvocation.getAeshContext().getCurrentWorkingDirectory()).get(0);
             if(f.isLeaf()) {
-                setInput(f.read(), f.getName());
+                //local files are indexed in place instead of copied
+                if(f instanceof FileResource)
+                    setFile(((FileResource) f).getFile());
+                else
+                    setInput(f.read(), f.getName());
                 afterAttach();
             }
             else if(f.isDirectory()) {
@@ -273,12 +284,4 @@ public class More implements Command<CommandInvocation> {
         NORMAL,
         INVERSE
     }
-
-    private class MorePage extends TerminalPage {
-
-        public MorePage(FileParser fileParser, int columns) throws IOException {
-            super(fileParser, columns);
-        }
-
-    }
 }
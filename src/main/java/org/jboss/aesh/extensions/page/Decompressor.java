@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses a file before it is paged.
+ *
+ * gzip (.gz and .tgz) is always available. bzip2, xz, zstd, lzma and compress (.Z) are
+ * registered when commons-compress (and the library it needs for the format)
+ * is on the class path. More can be added with {@link Factory#register(String, Decompressor)}.
+ */
+public interface Decompressor {
+
+    InputStream decompress(InputStream input) throws IOException;
+
+    public static class Factory {
+        private static Factory factory;
+
+        private final Map<String, Decompressor> registry;
+
+        private Factory() {
+            registry = new LinkedHashMap<>();
+            Decompressor gzip = new Decompressor() {
+                @Override
+                public InputStream decompress(InputStream input) throws IOException {
+                    return new GZIPInputStream(input, 64 * 1024);
+                }
+            };
+            registry.put(".gz", gzip);
+            registry.put(".tgz", gzip);
+            registerIfPresent(".bz2", "org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream");
+            registerIfPresent(".xz", "org.apache.commons.compress.compressors.xz.XZCompressorInputStream");
+            registerIfPresent(".zst", "org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream");
+            registerIfPresent(".lzma", "org.apache.commons.compress.compressors.lzma.LZMACompressorInputStream");
+            registerIfPresent(".Z", "org.apache.commons.compress.compressors.z.ZCompressorInputStream");
+        }
+
+        private static synchronized Factory instance() {
+            if(factory == null)
+                factory = new Factory();
+            return factory;
+        }
+
+        private void registerIfPresent(String suffix, String className) {
+            try {
+                Class<?> type = Class.forName(className, false, Decompressor.class.getClassLoader());
+                registry.put(suffix, new ReflectiveDecompressor(type.asSubclass(InputStream.class)));
+            }
+            catch(ClassNotFoundException | LinkageError | ClassCastException e) {
+                //not on the class path
+            }
+        }
+
+        /**
+         * @param suffix end of the file names to decompress, e.g. ".gz"
+         */
+        public static void register(String suffix, Decompressor decompressor) {
+            Factory instance = instance();
+            synchronized(instance) {
+                instance.registry.put(suffix, decompressor);
+            }
+        }
+
+        /**
+         * @return the decompressor for the file, null if the file name has no known suffix
+         */
+        public static Decompressor forFileName(String fileName) {
+            Factory instance = instance();
+            synchronized(instance) {
+                for(Map.Entry<String, Decompressor> entry : instance.registry.entrySet()) {
+                    if(fileName.endsWith(entry.getKey()))
+                        return entry.getValue();
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * An input stream class with a constructor taking the compressed stream
+     */
+    static class ReflectiveDecompressor implements Decompressor {
+        private final Class<? extends InputStream> type;
+
+        ReflectiveDecompressor(Class<? extends InputStream> type) {
+            this.type = type;
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            try {
+                Constructor<? extends InputStream> constructor = type.getConstructor(InputStream.class);
+                return constructor.newInstance(input);
+            }
+            catch(Exception | LinkageError e) {
+                throw new IOException("Could not decompress with " + type.getName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
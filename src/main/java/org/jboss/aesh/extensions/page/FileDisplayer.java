@@ -25,14 +25,19 @@ import org.jboss.aesh.console.Config;
 import org.jboss.aesh.console.Console;
 import org.jboss.aesh.console.command.CommandOperation;
 import org.jboss.aesh.console.man.FileParser;
-import org.jboss.aesh.console.man.TerminalPage;
 import org.jboss.aesh.console.operator.ControlOperator;
 import org.jboss.aesh.edit.actions.Operation;
+import org.jboss.aesh.terminal.Key;
+import org.jboss.aesh.terminal.Shell;
+import org.jboss.aesh.terminal.TerminalSize;
 import org.jboss.aesh.util.ANSI;
 import org.jboss.aesh.util.LoggerUtil;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
 import java.util.logging.Logger;
 
 import static org.jboss.aesh.console.man.TerminalPage.Search;
@@ -49,15 +54,38 @@ public abstract class FileDisplayer implements Completion {
     private int columns;
     private int topVisibleRow;
     private int topVisibleRowCache; //only rewrite page if rowCache != row
-    private TerminalPage page;
+    private Page page;
     private StringBuilder number;
     private Search search = Search.NO_SEARCH;
     private StringBuilder searchBuilder;
-    private List<Integer> searchLines;
+    private PageSearch pageSearch;
+    private Matcher searchMatcher;
+    private boolean smartCase;
+    //match offsets of the rows displayed, so scrolling does not run the search again
+    private final Map<Integer,int[]> rowMatches = new LinkedHashMap<Integer,int[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer,int[]> eldest) {
+            return size() > MATCH_CACHE_ROWS;
+        }
+    };
+
+    private static final int MATCH_CACHE_ROWS = 1024;
     private Logger logger = LoggerUtil.getLogger(getClass().getName());
     private Console console;
+    private Shell shell;
     private ControlOperator controlOperator;
     private boolean attached = true;
+    private ScreenRenderer renderer;
+    //while a frame is rendered, everything written to the console goes here
+    private StringBuilder frame;
+    private volatile boolean following;
+    private Thread follower;
+    private final Object followLock = new Object();
+    //a message is shown on the bottom line until the next key
+    private boolean messageShown;
+
+    //how often a followed file is checked for new data
+    private static final long FOLLOW_INTERVAL = 250;
 
     public FileDisplayer() {
         number = new StringBuilder();
@@ -68,39 +96,60 @@ public abstract class FileDisplayer implements Completion {
         this.console = console;
     }
 
+    /**
+     * Display on the given shell instead of a console, e.g. the shell of a command invocation
+     */
+    public void setShell(Shell shell) {
+        this.shell = shell;
+    }
+
+    private Shell getShell() {
+        return shell != null ? shell : console.getShell();
+    }
+
+    private TerminalSize getTerminalSize() {
+        return shell != null ? shell.getSize() : console.getTerminalSize();
+    }
+
+    /**
+     * Searches ignore case unless they have an upper case letter, like less -i
+     */
+    public void setSmartCase(boolean smartCase) {
+        this.smartCase = smartCase;
+    }
+
     public void setControlOperator(ControlOperator controlOperator) {
         this.controlOperator = controlOperator;
     }
 
     public void afterAttach() throws IOException {
-        rows = console.getTerminalSize().getHeight();
-        columns = console.getTerminalSize().getWidth();
-        page = new TerminalPage(getFileParser(), columns);
+        rows = getTerminalSize().getHeight();
+        columns = getTerminalSize().getWidth();
+        page = createPage(columns);
+        renderer = new ScreenRenderer(rows-1);
         topVisibleRow = 0;
         topVisibleRowCache = -1;
 
         if(controlOperator.isRedirectionOut()) {
-            int count=0;
             //if(Settings.getInstance().isLogging())
             //    logger.info("REDIRECTION IS OUT");
-            for(String line : this.page.getLines()) {
-                console.getShell().out().print(line);
-                count++;
-                if(count < this.page.size())
-                    console.getShell().out().print(Config.getLineSeparator());
+            for(int i=0; hasRow(i); i++) {
+                if(i > 0)
+                    getShell().out().print(Config.getLineSeparator());
+                getShell().out().print(page.getLine(i));
             }
-            console.getShell().out().flush();
+            getShell().out().flush();
 
             afterDetach();
         }
         else {
 
             if(!page.hasData()) {
-                console.getShell().out().print("Missing filename (\"less --help\" for help)\n");
+                getShell().out().print("Missing filename (\"less --help\" for help)\n");
                 afterDetach();
             }
             else {
-                console.getShell().out().print(ANSI.ALTERNATE_BUFFER);
+                getShell().out().print(ANSI.ALTERNATE_BUFFER);
 
                 if(this.page.getFileName() != null)
                     display();
@@ -108,12 +157,34 @@ public abstract class FileDisplayer implements Completion {
                     display();
             }
         }
-        console.getShell().out().flush();
+        getShell().out().flush();
+    }
+
+    /**
+     * Files given to a {@link SimpleFileParser} are loaded lazily,
+     * other parsers load the whole page up front.
+     */
+    protected Page createPage(int columns) throws IOException {
+        FileParser parser = getFileParser();
+        if(parser instanceof SimpleFileParser)
+            return ((SimpleFileParser) parser).createPage(columns);
+        else
+            return new ListPage(parser.getName(), parser.loadPage(columns));
+    }
+
+    /**
+     * @return true if the page has the given row, waiting for it to be loaded if needed
+     */
+    private boolean hasRow(int row) {
+        page.waitFor(row + 1);
+        return row < page.size();
     }
 
     protected void afterDetach() throws IOException {
+        stopFollowing();
+        cancelSearch();
         if(!controlOperator.isRedirectionOut())
-            console.getShell().out().print(ANSI.MAIN_BUFFER);
+            getShell().out().print(ANSI.MAIN_BUFFER);
 
         page.clear();
         topVisibleRow = 0;
@@ -121,6 +192,20 @@ public abstract class FileDisplayer implements Completion {
     }
 
     public void processOperation(CommandOperation operation) throws IOException {
+        //like less, any key stops following the file
+        if(following) {
+            stopFollowing();
+            clearBottomLine();
+            displayBottom();
+            clearNumber();
+            return;
+        }
+        if(messageShown) {
+            messageShown = false;
+            clearBottomLine();
+            displayBottom();
+        }
+        checkTerminalSize();
         if(operation.getInput()[0] == 'q') {
             if(search == Search.SEARCHING) {
                 searchBuilder.append((char) operation.getInput()[0]);
@@ -131,22 +216,22 @@ public abstract class FileDisplayer implements Completion {
                 afterDetach();
             }
         }
-        else if(operation.getInput()[0] == 'j' ||
-                operation.equals(Operation.HISTORY_NEXT) || operation.equals(Operation.NEW_LINE)) {
+        else if(operation.getInput()[0] == 'j' || isDown(operation) || isEnter(operation)) {
             if(search == Search.SEARCHING) {
                 if(operation.getInput()[0] == 'j') {
                     searchBuilder.append((char) operation.getInput()[0]);
                     displayBottom();
                 }
-                else if(operation.equals(Operation.NEW_LINE)) {
+                else if(isEnter(operation)) {
                     search = Search.RESULT;
                     findSearchWord(true);
                 }
             }
             else {
                 topVisibleRow = topVisibleRow + getNumber();
-                if(topVisibleRow > (page.size()-rows-1)) {
-                    topVisibleRow = page.size()-rows-1;
+                page.waitFor(topVisibleRow+rows);
+                if(topVisibleRow > getLastTopRow()) {
+                    topVisibleRow = getLastTopRow();
                     if(topVisibleRow < 0)
                         topVisibleRow = 0;
                     display();
@@ -156,7 +241,7 @@ public abstract class FileDisplayer implements Completion {
                 clearNumber();
             }
         }
-        else if(operation.getInput()[0] == 'k' || operation.equals(Operation.HISTORY_PREV)) {
+        else if(operation.getInput()[0] == 'k' || isUp(operation)) {
             if(search == Search.SEARCHING) {
                 if(operation.getInput()[0] == 'k')
                 searchBuilder.append((char) operation.getInput()[0]);
@@ -171,14 +256,16 @@ public abstract class FileDisplayer implements Completion {
             }
         }
         else if(operation.getInput()[0] == 6 || operation.equals(Operation.PGDOWN)
+                || operation.getInputKey() == Key.PGDOWN
                 || operation.getInput()[0] == 32) { // ctrl-f || pgdown || space
             if(search == Search.SEARCHING) {
 
             }
             else {
                 topVisibleRow = topVisibleRow + ((rows - 1) * getNumber());
-                if(topVisibleRow > (page.size()-rows-1)) {
-                    topVisibleRow = page.size()-rows-1;
+                page.waitFor(topVisibleRow+rows);
+                if(topVisibleRow > getLastTopRow()) {
+                    topVisibleRow = getLastTopRow();
                     if(topVisibleRow < 0)
                         topVisibleRow = 0;
                     display();
@@ -188,7 +275,8 @@ public abstract class FileDisplayer implements Completion {
                 clearNumber();
             }
         }
-        else if(operation.getInput()[0] == 2 || operation.equals(Operation.PGUP)) { // ctrl-b || pgup
+        else if(operation.getInput()[0] == 2 || operation.equals(Operation.PGUP)
+                || operation.getInputKey() == Key.PGUP) { // ctrl-b || pgup
             if(search != Search.SEARCHING) {
                 topVisibleRow = topVisibleRow - ((rows - 1) * getNumber());
                 if(topVisibleRow < 0)
@@ -216,20 +304,14 @@ public abstract class FileDisplayer implements Completion {
                 displayBottom();
             }
             else if(search == Search.RESULT) {
-                if(searchLines.size() > 0) {
-                    for(Integer i : searchLines) {
-                        if(i > topVisibleRow+1) {
-                            topVisibleRow = i-1;
-                            display();
-                            return;
-                        }
-                    }
-                    //we didnt find any more
-                    displayBottom();
+                int row = pageSearch.next(topVisibleRow+1);
+                if(row >= 0) {
+                    topVisibleRow = row-1;
+                    display();
                 }
-                else {
+                //we didnt find any more
+                else
                     displayBottom();
-                }
             }
         }
         else if(operation.getInput()[0] == 'N') {
@@ -238,19 +320,16 @@ public abstract class FileDisplayer implements Completion {
                 displayBottom();
             }
             else if(search == Search.RESULT) {
-                if(searchLines.size() > 0) {
-                    for(int i=searchLines.size()-1; i >= 0; i--) {
-                        if(searchLines.get(i) < topVisibleRow) {
-                            topVisibleRow = searchLines.get(i)-1;
-                            if(topVisibleRow < 0)
-                                topVisibleRow = 0;
-                            display();
-                            return;
-                        }
-                    }
-                    //we didnt find any more
-                    displayBottom();
+                int row = pageSearch.previous(topVisibleRow);
+                if(row >= 0) {
+                    topVisibleRow = row-1;
+                    if(topVisibleRow < 0)
+                        topVisibleRow = 0;
+                    display();
                 }
+                //we didnt find any more
+                else
+                    displayBottom();
             }
         }
         else if(operation.getInput()[0] == 'G') {
@@ -260,13 +339,21 @@ public abstract class FileDisplayer implements Completion {
             }
             else {
                 if(number.length() == 0 || getNumber() == 0) {
-                    topVisibleRow = page.size()-rows-1;
+                    //the end of the file is only known once it is loaded
+                    if(!page.isComplete()) {
+                        clearBottomLine();
+                        writeToConsole(ANSI.INVERT_BACKGROUND+"Reading to the end..."+ANSI.DEFAULT_TEXT);
+                        redrawAll();
+                    }
+                    page.waitFor(Integer.MAX_VALUE);
+                    topVisibleRow = getLastTopRow();
                     display();
                 }
                 else {
                     topVisibleRow = getNumber()-1;
-                    if(topVisibleRow > page.size()-rows-1) {
-                        topVisibleRow = page.size()-rows-1;
+                    page.waitFor(topVisibleRow+rows);
+                    if(topVisibleRow > getLastTopRow()) {
+                        topVisibleRow = getLastTopRow();
                         display();
                     }
                     else {
@@ -276,6 +363,20 @@ public abstract class FileDisplayer implements Completion {
                 clearNumber();
             }
         }
+        else if(operation.getInput()[0] == 'F') {
+            if(search == Search.SEARCHING) {
+                searchBuilder.append((char) operation.getInput()[0]);
+                displayBottom();
+            }
+            else if(!page.canGrow()) {
+                clearNumber();
+                showMessage("Nothing to follow, this input can not grow");
+            }
+            else {
+                clearNumber();
+                startFollowing();
+            }
+        }
         else if(Character.isDigit(operation.getInput()[0])) {
             if(search == Search.SEARCHING) {
                 searchBuilder.append((char) operation.getInput()[0]);
@@ -287,55 +388,212 @@ public abstract class FileDisplayer implements Completion {
             }
         }
         else {
-            if(search == Search.SEARCHING &&
-                    (Character.isAlphabetic(operation.getInput()[0]))) {
-                searchBuilder.append((char) operation.getInput()[0]);
-                displayBottom();
+            if(search == Search.SEARCHING) {
+                int c = operation.getInput()[0];
+                //backspace
+                if((c == 127 || c == 8) && searchBuilder.length() > 0) {
+                    searchBuilder.setLength(searchBuilder.length()-1);
+                    clearBottomLine();
+                    displayBottom();
+                }
+                //anything printable can be part of a regex
+                else if(c >= 32 && c != 127) {
+                    searchBuilder.append((char) c);
+                    displayBottom();
+                }
             }
         }
     }
 
+    //operations come from a console, keys from a command invocation
+    private static boolean isEnter(CommandOperation operation) {
+        return operation.equals(Operation.NEW_LINE) ||
+                operation.getInput()[0] == '\n' || operation.getInput()[0] == '\r';
+    }
+
+    private static boolean isDown(CommandOperation operation) {
+        return operation.equals(Operation.HISTORY_NEXT) ||
+                operation.getInputKey() == Key.DOWN || operation.getInputKey() == Key.DOWN_2;
+    }
+
+    private static boolean isUp(CommandOperation operation) {
+        return operation.equals(Operation.HISTORY_PREV) ||
+                operation.getInputKey() == Key.UP || operation.getInputKey() == Key.UP_2;
+    }
+
+    /**
+     * Only the rows that changed since the last frame are written,
+     * the whole frame goes out in one write
+     */
     private void display() throws IOException {
         if(topVisibleRow != topVisibleRowCache) {
-            console.clear();
-            if(search == Search.RESULT && searchLines.size() > 0) {
-                String searchWord = searchBuilder.toString();
-                for(int i=topVisibleRow; i < (topVisibleRow+rows-1); i++) {
-                    if(i < page.size()) {
-                        String line = page.getLine(i);
-                        if(line.contains(searchWord))
-                            displaySearchLine(line, searchWord);
-                        else
-                            console.getShell().out().print(line);
-                        console.getShell().out().print(Config.getLineSeparator());
-                    }
-                }
+            page.waitFor(topVisibleRow+rows-1);
+            String[] rowsToShow = new String[rows-1];
+            for(int i=topVisibleRow; i < (topVisibleRow+rows-1); i++) {
+                if(i < page.size())
+                    rowsToShow[i-topVisibleRow] = renderRow(i);
+            }
+            frame = new StringBuilder();
+            try {
+                renderer.render(frame, topVisibleRow, rowsToShow);
+                frame.append(Buffer.printAnsi(rows+";1H"));
+                frame.append(Buffer.printAnsi("2K"));
                 topVisibleRowCache = topVisibleRow;
+                displayBottom();
+                getShell().out().print(frame);
             }
-            else {
-                for(int i=topVisibleRow; i < (topVisibleRow+rows-1); i++) {
-                    if(i < page.size()) {
-                        console.getShell().out().print(page.getLine(i)+Config.getLineSeparator());
-                    }
+            finally {
+                frame = null;
+            }
+        }
+        getShell().out().flush();
+    }
+
+    private String renderRow(int row) {
+        String line = page.getLine(row);
+        int[] matches = search == Search.RESULT ? findMatches(row, line) : null;
+        if(matches != null && matches.length > 0)
+            return displaySearchLine(line, matches);
+        else
+            return line;
+    }
+
+    /**
+     * Show the end of the file and keep checking it for new data until a key is pressed
+     */
+    private void startFollowing() throws IOException {
+        page.waitFor(Integer.MAX_VALUE);
+        following = true;
+        topVisibleRow = getLastTopRow();
+        topVisibleRowCache = -1;
+        display();
+        follower = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                follow();
+            }
+        }, "follow "+page.getFileName());
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    private void stopFollowing() {
+        if(follower != null) {
+            following = false;
+            synchronized(followLock) {
+                followLock.notifyAll();
+            }
+            try {
+                follower.join();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            follower = null;
+        }
+    }
+
+    private void follow() {
+        try {
+            while(following) {
+                int firstChanged = page.update();
+                if(firstChanged >= 0 && following)
+                    displayChanged(firstChanged);
+                synchronized(followLock) {
+                    if(following)
+                        followLock.wait(FOLLOW_INTERVAL);
                 }
-                topVisibleRowCache = topVisibleRow;
             }
-            displayBottom();
         }
-        console.getShell().out().flush();
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch(IOException e) {
+            logger.warning("stopped following "+page.getFileName()+": "+e.getMessage());
+            following = false;
+        }
+    }
+
+    /**
+     * Show the end of the file again, the renderer scrolls the rows
+     * already on the screen and only writes the changed ones
+     */
+    private void displayChanged(int firstChanged) throws IOException {
+        for(Iterator<Integer> it = rowMatches.keySet().iterator(); it.hasNext();) {
+            if(it.next() >= firstChanged)
+                it.remove();
+        }
+        topVisibleRow = getLastTopRow();
+        topVisibleRowCache = -1;
+        display();
     }
 
     /**
-     * highlight the specific word thats found in the search
+     * Show a message on the bottom line, it is replaced by the usual one at the next key
      */
-    private void displaySearchLine(String line, String searchWord) throws IOException {
-        int start = line.indexOf(searchWord);
-        console.getShell().out().print(line.substring(0,start));
-        console.getShell().out().print(ANSI.INVERT_BACKGROUND);
-        console.getShell().out().print(searchWord);
-        console.getShell().out().print(ANSI.RESET);
-        console.getShell().out().print(line.substring(start + searchWord.length(), line.length()));
-        console.getShell().out().flush();
+    private void showMessage(String message) throws IOException {
+        clearBottomLine();
+        writeToConsole(ANSI.INVERT_BACKGROUND+message+ANSI.DEFAULT_TEXT);
+        messageShown = true;
+        //a message wider than the terminal scrolls the rows above it
+        if(message.length() >= columns)
+            redrawAll();
+    }
+
+    /**
+     * The next frame is written in full, used when the screen
+     * may no longer be what the renderer thinks it is
+     */
+    private void redrawAll() {
+        renderer.invalidate();
+        topVisibleRowCache = -1;
+    }
+
+    /**
+     * A resized terminal gets a renderer for its new height and is redrawn in full,
+     * rows already loaded keep the width they were wrapped at.
+     */
+    private void checkTerminalSize() {
+        int height = getTerminalSize().getHeight();
+        int width = getTerminalSize().getWidth();
+        if(height != rows) {
+            rows = height;
+            renderer = new ScreenRenderer(rows-1);
+            topVisibleRowCache = -1;
+        }
+        if(width != columns) {
+            columns = width;
+            redrawAll();
+        }
+    }
+
+    private int[] findMatches(int row, String line) {
+        if(searchMatcher == null)
+            return null;
+        int[] matches = rowMatches.get(row);
+        if(matches == null) {
+            matches = SearchPattern.findAll(searchMatcher, line);
+            rowMatches.put(row, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * highlight every match found in the line
+     *
+     * @param matches start and end offset of each match
+     */
+    private String displaySearchLine(String line, int[] matches) {
+        StringBuilder builder = new StringBuilder(line.length() + matches.length * 8);
+        int position = 0;
+        for(int i=0; i < matches.length; i += 2) {
+            builder.append(line, position, matches[i]);
+            builder.append(ANSI.INVERT_BACKGROUND);
+            builder.append(line, matches[i], matches[i+1]);
+            builder.append(ANSI.RESET);
+            position = matches[i+1];
+        }
+        return builder.append(line, position, line.length()).toString();
     }
 
     public abstract FileParser getFileParser();
@@ -343,24 +601,52 @@ public abstract class FileDisplayer implements Completion {
     public abstract void displayBottom() throws IOException;
 
     public void writeToConsole(String word) throws IOException {
-        console.getShell().out().print(word);
-        console.getShell().out().flush();
+        if(frame != null)
+            frame.append(word);
+        else {
+            getShell().out().print(word);
+            getShell().out().flush();
+        }
     }
 
     public void clearBottomLine() throws IOException {
-        console.getShell().out().print(Buffer.printAnsi("0G"));
-        console.getShell().out().print(Buffer.printAnsi("2K"));
-        console.getShell().out().flush();
+        if(frame != null) {
+            frame.append(Buffer.printAnsi("0G"));
+            frame.append(Buffer.printAnsi("2K"));
+        }
+        else {
+            getShell().out().print(Buffer.printAnsi("0G"));
+            getShell().out().print(Buffer.printAnsi("2K"));
+            getShell().out().flush();
+        }
+    }
+
+    /**
+     * @return the top row when the last row of the page is on the last row of the screen
+     */
+    private int getLastTopRow() {
+        return Math.max(0, page.size()-(rows-1));
     }
 
     public boolean isAtBottom() {
-        return topVisibleRow >= (page.size()-rows-1);
+        return page.isComplete() && topVisibleRow >= getLastTopRow();
+    }
+
+    /**
+     * @return false once the user quit, or if there was nothing to page
+     */
+    public boolean isAttached() {
+        return attached;
     }
 
     public boolean isAtTop() {
         return topVisibleRow == 0;
     }
 
+    public boolean isFollowing() {
+        return following;
+    }
+
     public Search getSearchStatus() {
         return search;
     }
@@ -373,24 +659,35 @@ public abstract class FileDisplayer implements Completion {
         return topVisibleRow+1;
     }
 
+    /**
+     * The page is searched in the background, we only wait
+     * until the first match after the top row is found
+     */
     private void findSearchWord(boolean forward) throws IOException {
         logger.info("searching for: " + searchBuilder.toString());
-        searchLines = page.findWord(searchBuilder.toString());
-        logger.info("found: "+searchLines);
-        if(searchLines.size() > 0) {
-            for(Integer i : searchLines)
-                if(i > topVisibleRow) {
-                    topVisibleRow = i-1;
-                    display();
-                    return;
-                }
+        cancelSearch();
+        SearchPattern pattern = SearchPattern.compile(searchBuilder.toString(), smartCase);
+        searchMatcher = pattern.matcher();
+        rowMatches.clear();
+        //the rows on screen may hold the highlights of the last search
+        redrawAll();
+        pageSearch = PageSearch.start(page, pattern);
+        int row = pageSearch.next(topVisibleRow);
+        if(row >= 0) {
+            topVisibleRow = row-1;
+            display();
         }
-        else {
+        else if(pageSearch.getHitCount() == 0) {
             search = Search.NOT_FOUND;
-            displayBottom();
+            display();
         }
     }
 
+    private void cancelSearch() {
+        if(pageSearch != null)
+            pageSearch.cancel();
+    }
+
     /**
      * number written by the user (used to jump to specific commands)
      */
@@ -0,0 +1,545 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.aesh.extensions.text.highlight.Encoder;
+import org.jboss.aesh.extensions.text.highlight.Options;
+import org.jboss.aesh.extensions.text.highlight.ResumableScanner;
+import org.jboss.aesh.extensions.text.highlight.Scanner;
+import org.jboss.aesh.extensions.text.highlight.StringScanner;
+import org.jboss.aesh.extensions.text.highlight.Theme;
+import org.jboss.aesh.extensions.text.highlight.TokenType;
+import org.jboss.aesh.extensions.text.highlight.encoder.ColorProfile;
+import org.jboss.aesh.extensions.text.highlight.encoder.TerminalEncoder.TerminalString;
+
+/**
+ * A page with syntax highlighting, only the rows displayed are highlighted.
+ *
+ * The lines are read from a source page that does not split them in rows.
+ * They are grouped in blocks of {@link #BLOCK_LINES} lines, and the start of
+ * every block is a checkpoint: a background thread indexes the row each block
+ * starts at, and once a block has been highlighted the checkpoint after it
+ * records if the scanner ended it with nothing open, for instance between two
+ * tokens rather than inside a comment.
+ *
+ * A block is highlighted when one of its rows is asked for, by scanning from
+ * the closest checkpoint before it where nothing was open, at most
+ * {@link #MAX_RESCAN_BLOCKS} blocks back. A block that was never reached is
+ * scanned as if nothing was open, so jumping into the middle of a file never
+ * scans it from the top. A block found to continue the one before it is
+ * highlighted again when that one gets highlighted.
+ *
+ * With a {@link ResumableScanner} a checkpoint keeps the snapshot the scanner
+ * gave after the blank lines the block starts with, and scanning starts again from it in
+ * the exact state, instead of guessing that nothing was open between tokens.
+ * After the source grows, only the blocks from the one that changed are
+ * highlighted again.
+ */
+public class HighlightedPage implements Page {
+
+    static final int BLOCK_LINES = 128;
+    static final int MAX_RESCAN_BLOCKS = 8;
+    private static final int MAX_CACHED_BLOCKS = 32;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte CLEAN = 1;
+    private static final byte OPEN = 2;
+
+    private final Page source;
+    private final Scanner scanner;
+    private final Theme theme;
+    private final ColorProfile profile;
+    private final int columns;
+
+    //the index, guarded by this
+    private int[] blockRows = new int[64];
+    private byte[] blockEnds = new byte[64];
+    //the snapshot at the start of the next block, and how far it is from the first line of that block
+    private ResumableScanner.Snapshot[] endSnapshots = new ResumableScanner.Snapshot[64];
+    private int[] endOffsets = new int[64];
+    private int blocks;
+    private int indexedLines;
+    private int rows;
+    private boolean complete;
+
+    private volatile boolean closed;
+
+    private final Map<Integer, Block> cache = new LinkedHashMap<Integer, Block>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Block> eldest) {
+            return size() > MAX_CACHED_BLOCKS;
+        }
+    };
+
+    private HighlightedPage(Page source, Scanner scanner, Theme theme, ColorProfile profile, int columns) {
+        this.source = source;
+        this.scanner = scanner;
+        this.theme = theme;
+        this.profile = profile;
+        this.columns = columns;
+    }
+
+    /**
+     * Start indexing the rows of the source in the background
+     *
+     * @param source a page with one row per line
+     * @param profile how the colors are written, see {@link ColorProfile.Factory#detect()}
+     */
+    public static HighlightedPage open(Page source, Scanner scanner, Theme theme, ColorProfile profile, int columns) {
+        final HighlightedPage page = new HighlightedPage(source, scanner, theme, profile, columns);
+        Thread indexer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                page.index();
+            }
+        }, "page-highlighter "+source.getFileName());
+        indexer.setDaemon(true);
+        indexer.start();
+        return page;
+    }
+
+    /**
+     * Count the rows of the lines not indexed yet, until the source is complete.
+     * The last line of a source still loading is only indexed once the next one
+     * starts, as it can still grow.
+     */
+    private void index() {
+        LineWrapper wrapper = new LineWrapper(columns);
+        try {
+            while(!closed) {
+                int line;
+                synchronized(this) {
+                    line = indexedLines;
+                }
+                source.waitFor(line + 2);
+                boolean sourceComplete = source.isComplete();
+                int end = sourceComplete ? source.size() : source.size() - 1;
+                if(line >= end) {
+                    if(sourceComplete)
+                        break;
+                    else
+                        continue;
+                }
+                end = Math.min(end, (line / BLOCK_LINES + 1) * BLOCK_LINES);
+                int count = 0;
+                for(int i = line; i < end; i++)
+                    count += wrapper.rowCount(source.getLine(i));
+                synchronized(this) {
+                    if(line % BLOCK_LINES == 0)
+                        addBlock(rows);
+                    rows += count;
+                    indexedLines = end;
+                    notifyAll();
+                }
+            }
+        }
+        catch(RuntimeException e) {
+            //the source is cleared while indexing
+            if(!closed)
+                throw e;
+        }
+        finally {
+            synchronized(this) {
+                complete = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private void addBlock(int row) {
+        if(blocks == blockRows.length) {
+            blockRows = Arrays.copyOf(blockRows, blocks * 2);
+            blockEnds = Arrays.copyOf(blockEnds, blocks * 2);
+            endSnapshots = Arrays.copyOf(endSnapshots, blocks * 2);
+            endOffsets = Arrays.copyOf(endOffsets, blocks * 2);
+        }
+        blockRows[blocks] = row;
+        blockEnds[blocks] = UNKNOWN;
+        endSnapshots[blocks] = null;
+        blocks++;
+    }
+
+    /**
+     * Update the source and index its new lines again, from the block
+     * holding the first line that changed.
+     */
+    @Override
+    public int update() throws IOException {
+        synchronized(this) {
+            if(!complete || closed)
+                return -1;
+        }
+        int changed = source.update();
+        if(changed < 0)
+            return -1;
+        int firstChanged;
+        synchronized(this) {
+            int block = Math.min(changed, indexedLines) / BLOCK_LINES;
+            if(block < blocks) {
+                rows = blockRows[block];
+                blocks = block;
+            }
+            indexedLines = block * BLOCK_LINES;
+            for(Iterator<Integer> it = cache.keySet().iterator(); it.hasNext(); ) {
+                if(it.next() >= block)
+                    it.remove();
+            }
+            complete = false;
+            firstChanged = rows;
+        }
+        index();
+        return firstChanged;
+    }
+
+    @Override
+    public boolean canGrow() {
+        return source.canGrow();
+    }
+
+    @Override
+    public synchronized String getLine(int row) {
+        waitFor(row + 1);
+        if(row < 0 || row >= rows)
+            throw new IndexOutOfBoundsException("row: "+row+", size: "+rows);
+        int block = Arrays.binarySearch(blockRows, 0, blocks, row);
+        if(block < 0)
+            block = -block - 2;
+        return highlight(block)[row - blockRows[block]];
+    }
+
+    /**
+     * @return the rows of the block, highlighted
+     */
+    private String[] highlight(int block) {
+        int lines = linesOf(block);
+        Block cached = cache.get(block);
+        if(cached != null && cached.lines == lines)
+            return cached.rows;
+
+        int start = block;
+        while(start > 0 && block - start < MAX_RESCAN_BLOCKS && blockEnds[start - 1] == OPEN)
+            start--;
+
+        boolean guessed = start > 0 && blockEnds[start - 1] != CLEAN;
+        BlockEncoder encoder = new BlockEncoder(theme, profile, columns);
+        StringBuilder text = new StringBuilder();
+        int end = block * BLOCK_LINES + lines;
+        for(int i = start * BLOCK_LINES; i < end; i++)
+            text.append(source.getLine(i)).append('\n');
+        boolean resumable = scanner instanceof ResumableScanner;
+        if(resumable) {
+            //the snapshot of the next block is taken after the blanks it starts with
+            for(int i = end; i < indexedLines && i < end + BLOCK_LINES; i++) {
+                String line = source.getLine(i);
+                text.append(line).append('\n');
+                if(!isBlank(line, 0, line.length()))
+                    break;
+            }
+            resume((ResumableScanner) scanner, start, block, guessed, text, encoder);
+        }
+        else
+            scanner.scan(new StringScanner(text), encoder, Options.create());
+
+        for(int b = start; b <= block; b++) {
+            int count = linesOf(b);
+            int firstLine = (b - start) * BLOCK_LINES;
+            if(count == BLOCK_LINES) {
+                if(resumable)
+                    blockEnds[b] = endSnapshots[b] != null ? CLEAN : OPEN;
+                else
+                    blockEnds[b] = encoder.isClean(firstLine + count - 1) ? CLEAN : OPEN;
+            }
+            cache.put(b, new Block(encoder.rows(firstLine, count, rowsOf(b)), count, start, guessed));
+        }
+
+        //a snapshot can differ from the state guessed, even when nothing was open
+        Block next = cache.get(block + 1);
+        if(next != null && next.start == block + 1 && (blockEnds[block] == OPEN || resumable && next.guessed))
+            cache.remove(block + 1);
+        return cache.get(block).rows;
+    }
+
+    /**
+     * Scan the text of the blocks from the snapshot of the block before the first one,
+     * and keep the snapshots given where the blocks after it start
+     */
+    private void resume(ResumableScanner scanner, final int start, int block, boolean guessed,
+                        final StringBuilder text, final BlockEncoder encoder) {
+        for(int b = start; b <= block; b++)
+            endSnapshots[b] = null;
+        ResumableScanner.Snapshot snapshot = null;
+        int offset = 0;
+        if(start > 0 && !guessed) {
+            snapshot = endSnapshots[start - 1];
+            offset = endOffsets[start - 1];
+            encoder.textToken(text, 0, offset, TokenType.space);
+        }
+        scanner.scan(new StringScanner(text, offset), encoder, Options.create(), snapshot,
+                new ResumableScanner.Listener() {
+                    //the block of the last line start, from the first one scanned
+                    private int current;
+
+                    @Override
+                    public boolean lineStart(int index, ResumableScanner.Snapshot snapshot) {
+                        //blank lines come as one token, the count can go past the first line of a block
+                        int line = encoder.lineCount();
+                        if(line / BLOCK_LINES > current) {
+                            current = line / BLOCK_LINES;
+                            int blockStart = blankLinesStart(text, index, line - current * BLOCK_LINES);
+                            //at the end of the text the scanner could not see what follows
+                            if(blockStart >= 0 && index < text.length()) {
+                                int b = start + current - 1;
+                                endSnapshots[b] = snapshot;
+                                endOffsets[b] = index - blockStart;
+                            }
+                        }
+                        return true;
+                    }
+                });
+    }
+
+    /**
+     * @return the start of the line the given number of lines above the one of the index,
+     * -1 if there is more than blanks from there to the index
+     */
+    private static int blankLinesStart(CharSequence text, int index, int lines) {
+        int i = index;
+        for(; i > 0; i--) {
+            char c = text.charAt(i - 1);
+            if(c == '\n') {
+                if(lines == 0)
+                    return i;
+                lines--;
+            }
+            else if(!Character.isWhitespace(c))
+                return -1;
+        }
+        return lines == 0 ? 0 : -1;
+    }
+
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        for(int i = start; i < end; i++) {
+            if(!Character.isWhitespace(text.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private int linesOf(int block) {
+        return Math.min(BLOCK_LINES, indexedLines - block * BLOCK_LINES);
+    }
+
+    private int rowsOf(int block) {
+        return (block + 1 < blocks ? blockRows[block + 1] : rows) - blockRows[block];
+    }
+
+    @Override
+    public synchronized int size() {
+        return rows;
+    }
+
+    @Override
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public synchronized void waitFor(int rows) {
+        try {
+            while(!complete && this.rows < rows)
+                wait();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String getFileName() {
+        return source.getFileName();
+    }
+
+    @Override
+    public boolean hasData() {
+        return source.hasData();
+    }
+
+    @Override
+    public void clear() {
+        closed = true;
+        source.clear();
+        synchronized(this) {
+            cache.clear();
+            notifyAll();
+        }
+    }
+
+    private static class Block {
+        final String[] rows;
+        final int lines;
+        //the block the scan started at
+        final int start;
+        //if the scan started as if nothing was open
+        final boolean guessed;
+
+        Block(String[] rows, int lines, int start, boolean guessed) {
+            this.rows = rows;
+            this.lines = lines;
+            this.start = start;
+            this.guessed = guessed;
+        }
+    }
+
+    /**
+     * Writes the tokens as terminal colored rows. A colored token split
+     * over several rows is closed and opened again on each row, so rows
+     * can be drawn on their own.
+     */
+    private static class BlockEncoder implements Encoder.RegionEncoder {
+
+        private final Theme theme;
+        private final ColorProfile profile;
+        private final LineWrapper wrapper;
+        private final Map<TokenType, String> colors = new EnumMap<TokenType, String>(TokenType.class);
+        private final List<String> rows = new ArrayList<String>();
+        private final StringBuilder row = new StringBuilder();
+        //first row of each line, and if nothing was open at the end of the line
+        private int[] lineRows = new int[BLOCK_LINES + 1];
+        private boolean[] cleanEnds = new boolean[BLOCK_LINES];
+        private int lines;
+        private int depth;
+
+        BlockEncoder(Theme theme, ColorProfile profile, int columns) {
+            this.theme = theme;
+            this.profile = profile;
+            wrapper = new LineWrapper(columns);
+        }
+
+        @Override
+        public void textToken(String text, TokenType type) {
+            textToken(text, 0, text.length(), type);
+        }
+
+        @Override
+        public void textToken(CharSequence source, int begin, int end, TokenType type) {
+            String start = colorOf(type);
+            boolean colored = false;
+            for(int i = begin; i < end; ) {
+                int c = Character.codePointAt(source, i);
+                i += Character.charCount(c);
+                if(c == '\n') {
+                    if(colored) {
+                        row.append(TerminalString.RESET);
+                        colored = false;
+                    }
+                    endLine(depth == 0 && type == TokenType.space);
+                }
+                else {
+                    if(wrapper.accept(c)) {
+                        if(colored) {
+                            row.append(TerminalString.RESET);
+                            colored = false;
+                        }
+                        rows.add(row.toString());
+                        row.setLength(0);
+                    }
+                    if(start != null && !colored) {
+                        row.append(start);
+                        colored = true;
+                    }
+                    row.appendCodePoint(c);
+                }
+            }
+            if(colored)
+                row.append(TerminalString.RESET);
+        }
+
+        private String colorOf(TokenType type) {
+            if(colors.containsKey(type))
+                return colors.get(type);
+            String start = TerminalString.start(profile, theme.style(type));
+            colors.put(type, start);
+            return start;
+        }
+
+        private void endLine(boolean clean) {
+            rows.add(row.toString());
+            row.setLength(0);
+            wrapper.reset();
+            if(lines == cleanEnds.length) {
+                cleanEnds = Arrays.copyOf(cleanEnds, lines * 2);
+                lineRows = Arrays.copyOf(lineRows, lines * 2 + 1);
+            }
+            cleanEnds[lines] = clean;
+            lines++;
+            lineRows[lines] = rows.size();
+        }
+
+        @Override
+        public void beginGroup(TokenType type) {
+            depth++;
+        }
+
+        @Override
+        public void endGroup(TokenType type) {
+            depth--;
+        }
+
+        @Override
+        public void beginLine(TokenType type) {
+            depth++;
+        }
+
+        @Override
+        public void endLine(TokenType type) {
+            depth--;
+        }
+
+        int lineCount() {
+            return lines;
+        }
+
+        boolean isClean(int line) {
+            return line < lines && cleanEnds[line];
+        }
+
+        /**
+         * @return the rows of the given lines, exactly as many as expected
+         * as the index counted them on the plain lines
+         */
+        String[] rows(int firstLine, int count, int expected) {
+            int from = firstLine < lines ? lineRows[firstLine] : rows.size();
+            int to = firstLine + count <= lines ? lineRows[firstLine + count] : rows.size();
+            String[] result = new String[expected];
+            for(int i = 0; i < expected; i++)
+                result[i] = from + i < to ? rows.get(from + i) : "";
+            return result;
+        }
+    }
+}
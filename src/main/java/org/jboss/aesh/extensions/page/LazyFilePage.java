@@ -0,0 +1,554 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A page over a file that is never read as a whole.
+ *
+ * A background thread scans the memory mapped file and keeps a sparse index:
+ * the byte offset of the first line starting after every {@link #CHECKPOINT_ROWS} rows.
+ * Rows are only decoded when asked for, by reading forward from the closest
+ * checkpoint. The first screen can be shown as soon as the first rows are indexed,
+ * whatever the size of the file.
+ *
+ * Once indexed, {@link #update()} only indexes the bytes appended since,
+ * which is what following a growing file needs.
+ *
+ * Rows are counted on the raw bytes, decoding code points on the fly with a
+ * {@link LineWrapper}, so only UTF-8 and single byte charsets are supported, see {@link #isSupported(java.nio.charset.Charset)}.
+ *
+ * Only the first {@link #MAX_LINE_BYTES} bytes of a line are decoded,
+ * the rows of a longer line after those are empty.
+ */
+public class LazyFilePage implements Page {
+
+    static final int CHECKPOINT_ROWS = 256;
+    private static final long WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    static final int MAX_LINE_BYTES = 64 * 1024 * 1024;
+    private static final int RECENT_LINES = 4;
+
+    private final File file;
+    private final FileChannel channel;
+    private final Charset charset;
+    private final int maxLineBytes;
+    private final RowCounter indexCounter;
+
+    //the index, guarded by this
+    private long[] checkpointOffsets = new long[64];
+    private int[] checkpointRows = new int[64];
+    private int checkpoints;
+    private int rows;          //rows of the lines ending with a newline
+    private long indexed;      //offset after the last newline
+    private int tailRows;      //rows of the last line when it does not end with a newline
+    private long scanned;      //number of bytes indexed, including the last line
+    private boolean complete;
+
+    private volatile boolean closed;
+    private Thread indexer;
+
+    //the lines decoded last, most recent first. Rows are mostly read one after the other,
+    //by the display and by a search in the background, each goes on from its own line
+    private final DecodedLine[] recentLines = new DecodedLine[RECENT_LINES];
+    private int lineRows;
+    private final RowCounter lineCounter;
+    private final LineWrapper rowWrapper;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    //the bytes in the read buffer, reused by the following lines
+    private long bufferStart;
+    private int bufferLength;
+
+    private LazyFilePage(File file, Charset charset, int columns, int maxLineBytes) throws IOException {
+        this.file = file;
+        this.charset = charset;
+        this.maxLineBytes = maxLineBytes;
+        indexCounter = new RowCounter(charset, columns);
+        lineCounter = new RowCounter(charset, columns);
+        rowWrapper = new LineWrapper(columns);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Open the file and start indexing it in the background
+     */
+    public static LazyFilePage open(File file, Charset charset, int columns) throws IOException {
+        return open(file, charset, columns, MAX_LINE_BYTES);
+    }
+
+    static LazyFilePage open(File file, Charset charset, int columns, int maxLineBytes) throws IOException {
+        final LazyFilePage page = new LazyFilePage(file, charset, columns, maxLineBytes);
+        page.indexer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                page.index();
+            }
+        }, "page-indexer "+file.getName());
+        page.indexer.setDaemon(true);
+        page.indexer.start();
+        return page;
+    }
+
+    /**
+     * @return true if a newline is a single '\n' byte and code points
+     * can be decoded one byte at a time
+     */
+    public static boolean isSupported(Charset charset) {
+        if(StandardCharsets.UTF_8.equals(charset))
+            return true;
+        try {
+            return charset.newEncoder().maxBytesPerChar() == 1f &&
+                    Arrays.equals("\n".getBytes(charset), new byte[]{'\n'});
+        }
+        catch(UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private void index() {
+        try {
+            scan(channel.size());
+        }
+        catch(IOException e) {
+            //closed while indexing, or the file could not be read further,
+            //what has been indexed so far can still be shown
+        }
+        finally {
+            synchronized(this) {
+                complete = true;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Index the lines from the last newline indexed up to end
+     */
+    private void scan(long end) throws IOException {
+        long lineStart;
+        int rowCount;
+        int nextCheckpoint;
+        synchronized(this) {
+            lineStart = indexed;
+            rowCount = rows;
+            nextCheckpoint = checkpoints == 0 ? 0 : checkpointRows[checkpoints - 1] + CHECKPOINT_ROWS;
+        }
+        long position = lineStart;
+        RowCounter counter = indexCounter;
+        counter.start();
+        while(position < end && !closed) {
+            long size = Math.min(WINDOW_SIZE, end - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            for(int i = 0; i < size; i++) {
+                byte b = window.get(i);
+                if(b == '\n') {
+                    if(rowCount >= nextCheckpoint) {
+                        addCheckpoint(rowCount, lineStart);
+                        nextCheckpoint = rowCount + CHECKPOINT_ROWS;
+                    }
+                    rowCount += counter.finish();
+                    lineStart = position + i + 1;
+                    counter.start();
+                }
+                else
+                    counter.add(b);
+            }
+            position += size;
+            synchronized(this) {
+                rows = rowCount;
+                indexed = lineStart;
+                scanned = position;
+                tailRows = lineStart < position ? counter.getRows() : 0;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Add a checkpoint and publish the rows indexed up to it
+     */
+    private synchronized void addCheckpoint(int row, long offset) {
+        if(checkpoints == checkpointRows.length) {
+            checkpointRows = Arrays.copyOf(checkpointRows, checkpoints * 2);
+            checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpoints * 2);
+        }
+        checkpointRows[checkpoints] = row;
+        checkpointOffsets[checkpoints] = offset;
+        checkpoints++;
+        if(row > rows) {
+            rows = row;
+            indexed = offset;
+            scanned = offset;
+            tailRows = 0;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Index the bytes appended since the last scan. The last line is indexed
+     * again if it did not end with a newline. If the file got smaller it is
+     * indexed from the start. Must not be called by several threads at once.
+     *
+     * @return the first row that changed, -1 if the file has not changed
+     *         or is still being indexed
+     */
+    @Override
+    public int update() throws IOException {
+        int firstChanged;
+        synchronized(this) {
+            if(!complete || closed)
+                return -1;
+        }
+        long size = channel.size();
+        synchronized(this) {
+            if(size == scanned)
+                return -1;
+            if(size < scanned) {
+                checkpoints = 0;
+                rows = 0;
+                indexed = 0;
+                tailRows = 0;
+                scanned = 0;
+                Arrays.fill(recentLines, null);
+                bufferLength = 0;
+            }
+            firstChanged = rows;
+        }
+        scan(size);
+        return firstChanged;
+    }
+
+    @Override
+    public boolean canGrow() {
+        return true;
+    }
+
+    @Override
+    public synchronized String getLine(int row) {
+        waitFor(row + 1);
+        if(row < 0 || row >= size())
+            throw new IndexOutOfBoundsException("row: "+row+", size: "+size());
+        DecodedLine line = recentLine(row);
+        try {
+            if(line == null)
+                line = findLine(row);
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Could not read "+file, e);
+        }
+        return line.row(row - line.firstRow);
+    }
+
+    /**
+     * @return the recently decoded line holding the given row, null if there is none
+     */
+    private DecodedLine recentLine(int row) {
+        for(int i = 0; i < recentLines.length && recentLines[i] != null; i++) {
+            DecodedLine line = recentLines[i];
+            //a last line without a newline is only valid until the file grows
+            if(row >= line.firstRow && row < line.next() && (line.terminated || line.end == scanned)) {
+                System.arraycopy(recentLines, 0, recentLines, 1, i);
+                recentLines[0] = line;
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find and decode the line holding the given row, reading forward
+     * from the closest checkpoint or recently decoded line before it
+     */
+    private DecodedLine findLine(int row) throws IOException {
+        long start;
+        int firstRow;
+        if(row >= rows) {
+            start = indexed;
+            firstRow = rows;
+        }
+        else {
+            int index = Arrays.binarySearch(checkpointRows, 0, checkpoints, row);
+            if(index < 0)
+                index = -index - 2;
+            start = checkpointOffsets[index];
+            firstRow = checkpointRows[index];
+        }
+        for(DecodedLine line : recentLines) {
+            if(line != null && line.terminated && line.next() > firstRow && line.next() <= row) {
+                start = line.end + 1;
+                firstRow = line.next();
+            }
+        }
+
+        while(true) {
+            long end = findLineEnd(start, scanned);
+            if(row < firstRow + lineRows || end >= scanned) {
+                String text = decode(start, end);
+                DecodedLine line = new DecodedLine(text, rowWrapper.rowStarts(text), end, end < scanned,
+                        firstRow, lineRows);
+                System.arraycopy(recentLines, 0, recentLines, 1, recentLines.length - 1);
+                recentLines[0] = line;
+                return line;
+            }
+            start = end + 1;
+            firstRow += lineRows;
+        }
+    }
+
+    /**
+     * @return the offset of the newline ending the line starting at start, or limit
+     */
+    private long findLineEnd(long start, long limit) throws IOException {
+        long position = start;
+        lineCounter.start();
+        while(position < limit) {
+            if(position < bufferStart || position >= bufferStart + bufferLength) {
+                if(fillBuffer(position, limit) <= 0)
+                    break;
+            }
+            int end = (int) Math.min(bufferLength, limit - bufferStart);
+            for(int i = (int) (position - bufferStart); i < end; i++) {
+                byte b = readBuffer.get(i);
+                if(b == '\n') {
+                    lineRows = lineCounter.finish();
+                    return bufferStart + i;
+                }
+                lineCounter.add(b);
+            }
+            position = bufferStart + end;
+        }
+        lineRows = lineCounter.finish();
+        return position;
+    }
+
+    /**
+     * Read the bytes from position, up to limit, in the read buffer
+     *
+     * @return the number of bytes read
+     */
+    private int fillBuffer(long position, long limit) throws IOException {
+        readBuffer.clear();
+        if(limit - position < readBuffer.capacity())
+            readBuffer.limit((int) (limit - position));
+        int read = channel.read(readBuffer, position);
+        bufferStart = position;
+        bufferLength = Math.max(read, 0);
+        return read;
+    }
+
+    private String decode(long start, long end) throws IOException {
+        //the rows after the first bytes of a huge line are shown empty
+        if(end - start > maxLineBytes)
+            end = start + maxLineBytes;
+        if(start >= bufferStart && end <= bufferStart + bufferLength) {
+            int length = (int) (end - start);
+            int offset = (int) (start - bufferStart);
+            if(length > 0 && readBuffer.get(offset + length - 1) == '\r')
+                length--;
+            return new String(readBuffer.array(), offset, length, charset);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while(bytes.hasRemaining()) {
+            if(channel.read(bytes, start + bytes.position()) < 0)
+                break;
+        }
+        int length = bytes.position();
+        if(length > 0 && bytes.get(length - 1) == '\r')
+            length--;
+        return new String(bytes.array(), 0, length, charset);
+    }
+
+    /**
+     * A line and where its rows start, wrapped once when it is decoded
+     */
+    private static final class DecodedLine {
+        private final String text;
+        private final int[] rowStarts;
+        private final long end;       //offset of the newline, or of the end of the file
+        private final boolean terminated;
+        private final int firstRow;
+        private final int rows;
+
+        DecodedLine(String text, int[] rowStarts, long end, boolean terminated, int firstRow, int rows) {
+            this.text = text;
+            this.rowStarts = rowStarts;
+            this.end = end;
+            this.terminated = terminated;
+            this.firstRow = firstRow;
+            this.rows = rows;
+        }
+
+        /**
+         * @return the part of the line shown on the given row, empty after the end of a capped line
+         */
+        String row(int index) {
+            int begin = index < rowStarts.length ? rowStarts[index] : text.length();
+            int end = index + 1 < rowStarts.length ? rowStarts[index + 1] : text.length();
+            return text.substring(begin, end);
+        }
+
+        int next() {
+            return firstRow + rows;
+        }
+    }
+
+    /**
+     * Counts the rows of a line from its bytes, decoding the code points on the fly.
+     * A '\r' is only counted if it is not followed by the newline.
+     */
+    private static final class RowCounter {
+        private final LineWrapper wrapper;
+        //the char of each byte for single byte charsets, null for UTF-8
+        private final char[] singleByte;
+        private int codePoint;
+        private int needed;
+        private boolean cr;
+
+        RowCounter(Charset charset, int columns) {
+            wrapper = new LineWrapper(columns);
+            if(StandardCharsets.UTF_8.equals(charset))
+                singleByte = null;
+            else {
+                byte[] bytes = new byte[256];
+                for(int i = 0; i < bytes.length; i++)
+                    bytes[i] = (byte) i;
+                singleByte = new String(bytes, charset).toCharArray();
+            }
+        }
+
+        void start() {
+            wrapper.reset();
+            needed = 0;
+            cr = false;
+        }
+
+        void add(byte b) {
+            if(singleByte != null) {
+                accept(singleByte[b & 0xFF]);
+                return;
+            }
+            if(needed > 0) {
+                if((b & 0xC0) == 0x80) {
+                    codePoint = (codePoint << 6) | (b & 0x3F);
+                    if(--needed == 0)
+                        accept(codePoint);
+                    return;
+                }
+                needed = 0;
+                accept(0xFFFD);
+            }
+            if(b >= 0)
+                accept(b);
+            else if((b & 0xE0) == 0xC0) {
+                codePoint = b & 0x1F;
+                needed = 1;
+            }
+            else if((b & 0xF0) == 0xE0) {
+                codePoint = b & 0x0F;
+                needed = 2;
+            }
+            else if((b & 0xF8) == 0xF0) {
+                codePoint = b & 0x07;
+                needed = 3;
+            }
+            else
+                accept(0xFFFD);
+        }
+
+        private void accept(int c) {
+            if(cr) {
+                wrapper.accept('\r');
+                cr = false;
+            }
+            if(c == '\r')
+                cr = true;
+            else
+                wrapper.accept(c);
+        }
+
+        int getRows() {
+            return wrapper.getRows();
+        }
+
+        /**
+         * @return the rows of the line, at the newline or the end of the file
+         */
+        int finish() {
+            if(needed > 0) {
+                needed = 0;
+                wrapper.accept(0xFFFD);
+            }
+            return wrapper.getRows();
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return rows + tailRows;
+    }
+
+    @Override
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public synchronized void waitFor(int rows) {
+        try {
+            while(!complete && size() < rows)
+                wait();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String getFileName() {
+        return file.getAbsolutePath();
+    }
+
+    @Override
+    public boolean hasData() {
+        return file.length() > 0;
+    }
+
+    @Override
+    public void clear() {
+        closed = true;
+        try {
+            channel.close();
+        }
+        catch(IOException ignored) {
+        }
+        synchronized(this) {
+            Arrays.fill(recentLines, null);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits lines in rows that fit the terminal width.
+ *
+ * Widths are counted in terminal columns: East Asian wide chars take two,
+ * combining marks and ANSI escape sequences take none. A wide char that does
+ * not fit at the end of a row starts the next one.
+ *
+ * The wrapper can be fed one code point at a time with {@link #reset()} and
+ * {@link #accept(int)}, so rows can be counted while reading bytes, or be used on
+ * a whole line. Nothing is allocated except the rows returned by {@link #wrap}.
+ * An instance keeps state and is not thread safe.
+ */
+public class LineWrapper {
+
+    private static final int ESC = 0x1B;
+
+    private final int columns;
+
+    private int rows;
+    private int column;
+    //0: text, 1: after ESC, 2: in a CSI sequence
+    private int escape;
+
+    public LineWrapper(int columns) {
+        this.columns = Math.max(1, columns);
+        reset();
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Start a new line
+     */
+    public void reset() {
+        rows = 1;
+        column = 0;
+        escape = 0;
+    }
+
+    /**
+     * Add the next code point of the line
+     *
+     * @return true if the code point starts a new row
+     */
+    public boolean accept(int codePoint) {
+        if(escape == 1) {
+            escape = codePoint == '[' ? 2 : 0;
+            return false;
+        }
+        if(escape == 2) {
+            if(codePoint >= 0x40 && codePoint <= 0x7E)
+                escape = 0;
+            return false;
+        }
+        if(codePoint == ESC) {
+            escape = 1;
+            return false;
+        }
+        int width = width(codePoint);
+        if(column + width > columns && column > 0) {
+            rows++;
+            column = width;
+            return true;
+        }
+        column += width;
+        return false;
+    }
+
+    /**
+     * @return the number of rows of the line so far, at least one
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of rows the line is split in
+     */
+    public int rowCount(CharSequence line) {
+        reset();
+        for(int i = 0; i < line.length(); ) {
+            int codePoint = Character.codePointAt(line, i);
+            accept(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return rows;
+    }
+
+    /**
+     * @return the offset where each row of the line starts, in one pass over the line
+     */
+    public int[] rowStarts(CharSequence line) {
+        reset();
+        int[] starts = new int[Math.max(1, line.length() / columns + 1)];
+        for(int i = 0; i < line.length(); ) {
+            int codePoint = Character.codePointAt(line, i);
+            if(accept(codePoint)) {
+                if(rows > starts.length)
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                starts[rows - 1] = i;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return rows == starts.length ? starts : Arrays.copyOf(starts, rows);
+    }
+
+    /**
+     * Add the rows of the line to the list, an empty line is one empty row
+     */
+    public void wrap(String line, List<String> rows) {
+        reset();
+        int start = 0;
+        for(int i = 0; i < line.length(); ) {
+            int codePoint = line.codePointAt(i);
+            if(accept(codePoint)) {
+                rows.add(line.substring(start, i));
+                start = i;
+            }
+            i += Character.charCount(codePoint);
+        }
+        rows.add(start == 0 ? line : line.substring(start));
+    }
+
+    /**
+     * @return the number of terminal columns used to show the code point
+     */
+    public static int width(int codePoint) {
+        if(codePoint < 0x300)
+            return 1;
+        int type = Character.getType(codePoint);
+        if(type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK ||
+                type == Character.FORMAT || codePoint == 0x200B)
+            return 0;
+        if(isWide(codePoint))
+            return 2;
+        return 1;
+    }
+
+    private static boolean isWide(int c) {
+        return c >= 0x1100 &&
+                (c <= 0x115F || c == 0x2329 || c == 0x232A ||
+                        (c >= 0x2E80 && c <= 0xA4CF && c != 0x303F) ||
+                        (c >= 0xAC00 && c <= 0xD7A3) ||
+                        (c >= 0xF900 && c <= 0xFAFF) ||
+                        (c >= 0xFE10 && c <= 0xFE19) ||
+                        (c >= 0xFE30 && c <= 0xFE6F) ||
+                        (c >= 0xFF00 && c <= 0xFF60) ||
+                        (c >= 0xFFE0 && c <= 0xFFE6) ||
+                        (c >= 0x1F300 && c <= 0x1F64F) ||
+                        (c >= 0x1F900 && c <= 0x1F9FF) ||
+                        (c >= 0x20000 && c <= 0x2FFFD) ||
+                        (c >= 0x30000 && c <= 0x3FFFD));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page where all the rows are loaded up front
+ */
+public class ListPage implements Page {
+
+    private final String fileName;
+    private List<String> lines;
+
+    public ListPage(String fileName, List<String> lines) {
+        this.fileName = fileName;
+        this.lines = lines;
+    }
+
+    @Override
+    public String getLine(int row) {
+        return lines.get(row);
+    }
+
+    @Override
+    public int size() {
+        return lines.size();
+    }
+
+    @Override
+    public boolean isComplete() {
+        return true;
+    }
+
+    @Override
+    public void waitFor(int rows) {
+    }
+
+    @Override
+    public int update() {
+        return -1;
+    }
+
+    @Override
+    public boolean canGrow() {
+        return false;
+    }
+
+    @Override
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public boolean hasData() {
+        return !lines.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        lines = Collections.emptyList();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.io.IOException;
+
+/**
+ * The rows of a file as displayed in a terminal, lines longer than the
+ * terminal width are split in several rows.
+ *
+ * A page might still be loading in the background, {@link #size()} returns
+ * the number of rows known so far and {@link #waitFor(int)} blocks until
+ * enough rows are known.
+ */
+public interface Page {
+
+    /**
+     * @param row zero based row number
+     * @return the row, waiting until it is loaded if needed
+     */
+    String getLine(int row);
+
+    /**
+     * @return the number of rows loaded so far
+     */
+    int size();
+
+    /**
+     * @return true when all the rows are loaded
+     */
+    boolean isComplete();
+
+    /**
+     * Block until at least the given number of rows are loaded, or the page is complete
+     */
+    void waitFor(int rows);
+
+    /**
+     * Load what has been appended to the file since it was loaded,
+     * only the new bytes are read.
+     *
+     * @return the first row that changed, -1 if nothing changed
+     */
+    int update() throws IOException;
+
+    /**
+     * @return false if {@link #update()} can never report new rows,
+     *         e.g. for text loaded up front or an input that has been read to its end
+     */
+    boolean canGrow();
+
+    String getFileName();
+
+    boolean hasData();
+
+    /**
+     * Release what the page holds, it can not be used afterwards
+     */
+    void clear();
+}
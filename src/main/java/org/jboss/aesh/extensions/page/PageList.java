@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A live, read only list view of a page that is still loading, for code that
+ * works on the list returned by {@link org.jboss.aesh.console.man.FileParser#loadPage(int)}.
+ *
+ * The size grows while the page loads. {@link #size()} first waits for enough
+ * rows to fill a screen, so the first screen can be shown before the rest is loaded.
+ * The iterator waits for every row, and for the row after it, so code that
+ * iterates and compares the count with {@link #size()} sees the whole page.
+ */
+public class PageList extends AbstractList<String> {
+
+    private final Page page;
+    private final int screenRows;
+
+    public PageList(Page page, int screenRows) {
+        this.page = page;
+        this.screenRows = screenRows;
+    }
+
+    @Override
+    public String get(int index) {
+        return page.getLine(index);
+    }
+
+    @Override
+    public int size() {
+        page.waitFor(screenRows);
+        return page.size();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                page.waitFor(next + 1);
+                return next < page.size();
+            }
+
+            @Override
+            public String next() {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                page.waitFor(next + 2);
+                return page.getLine(next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Release the page
+     */
+    @Override
+    public void clear() {
+        page.clear();
+    }
+
+    public Page getPage() {
+        return page;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+
+/**
+ * Search a page for a pattern in the background.
+ *
+ * Rows are scanned in chunks and the rows matching the pattern are appended to
+ * a sorted int array as they are found, so the first results can be used
+ * while the rest of a large file is still searched. Finding the next or
+ * previous hit from a row is a binary search.
+ */
+public class PageSearch {
+
+    private static final int CHUNK_ROWS = 4096;
+
+    private final Page page;
+    private final SearchPattern pattern;
+
+    //guarded by this
+    private int[] hits = new int[64];
+    private int hitCount;
+    private int searched;
+    private boolean complete;
+
+    private volatile boolean cancelled;
+
+    private PageSearch(Page page, SearchPattern pattern) {
+        this.page = page;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Start searching the page for the given pattern
+     */
+    public static PageSearch start(Page page, SearchPattern pattern) {
+        final PageSearch search = new PageSearch(page, pattern);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                search.scan();
+            }
+        }, "search "+pattern.getText());
+        thread.setDaemon(true);
+        thread.start();
+        return search;
+    }
+
+    private void scan() {
+        Matcher matcher = pattern.matcher();
+        int[] found = new int[CHUNK_ROWS];
+        int row = 0;
+        try {
+            while(!cancelled) {
+                page.waitFor(row + CHUNK_ROWS);
+                boolean loaded = page.isComplete();
+                int end = Math.min(page.size(), row + CHUNK_ROWS);
+                if(row >= end) {
+                    if(loaded)
+                        break;
+                    continue;
+                }
+                int count = 0;
+                for(; row < end && !cancelled; row++) {
+                    if(matcher.reset(page.getLine(row)).find())
+                        found[count++] = row;
+                }
+                addHits(found, count, row);
+            }
+        }
+        catch(RuntimeException e) {
+            //the page has been cleared
+        }
+        finally {
+            synchronized(this) {
+                complete = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized void addHits(int[] found, int count, int searchedRows) {
+        if(hitCount + count > hits.length)
+            hits = Arrays.copyOf(hits, Math.max(hits.length * 2, hitCount + count));
+        System.arraycopy(found, 0, hits, hitCount, count);
+        hitCount += count;
+        searched = searchedRows;
+        notifyAll();
+    }
+
+    public SearchPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the first row after the given row matching the pattern, -1 if there is none.
+     *         Waits for the search to get that far if needed.
+     */
+    public synchronized int next(int row) {
+        int index = indexAfter(row);
+        while(index == hitCount && !complete && await())
+            index = indexAfter(row);
+        return index < hitCount ? hits[index] : -1;
+    }
+
+    /**
+     * @return the last row before the given row matching the pattern, -1 if there is none.
+     *         Waits for the search to get that far if needed.
+     */
+    public synchronized int previous(int row) {
+        while(searched < row && !complete && await()) {
+        }
+        int index = indexAfter(row - 1) - 1;
+        return index >= 0 ? hits[index] : -1;
+    }
+
+    /**
+     * @return the index of the first hit greater than row
+     */
+    private int indexAfter(int row) {
+        int index = Arrays.binarySearch(hits, 0, hitCount, row);
+        return index < 0 ? -index - 1 : index + 1;
+    }
+
+    /**
+     * @return false if interrupted while waiting
+     */
+    private boolean await() {
+        try {
+            wait();
+            return true;
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of rows found so far
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Block until the whole page has been searched
+     */
+    public synchronized void waitForCompletion() {
+        while(!complete && await()) {
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+}
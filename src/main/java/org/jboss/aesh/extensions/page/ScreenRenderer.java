@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import org.jboss.aesh.console.Buffer;
+
+import java.util.Arrays;
+
+/**
+ * Keeps what is on the terminal and only writes what changed to get to the next frame.
+ *
+ * When the top row moves by less than a screen, the lines still visible are moved
+ * with delete/insert line inside a scroll region that leaves the bottom status line
+ * alone, and only the rows that came into view are written.
+ */
+public class ScreenRenderer {
+
+    private final int lines;
+    private String[] screen;
+    private int top;
+
+    /**
+     * @param lines number of terminal lines used for rows, starting at the first line
+     */
+    public ScreenRenderer(int lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Forget what is on the terminal, the next frame is written in full
+     */
+    public void invalidate() {
+        screen = null;
+    }
+
+    /**
+     * Append the escape sequences and text that turn the terminal into the given frame
+     *
+     * @param newTop the page row shown on the first line
+     * @param frame the rows to show, one per line, an empty string for an empty line
+     */
+    public void render(StringBuilder out, int newTop, String[] frame) {
+        if(screen == null) {
+            out.append(Buffer.printAnsi("H")).append(Buffer.printAnsi("2J"));
+            screen = new String[lines];
+            Arrays.fill(screen, "");
+        }
+        else if(newTop != top)
+            scroll(out, newTop - top);
+        top = newTop;
+
+        for(int i = 0; i < lines; i++) {
+            String row = i < frame.length && frame[i] != null ? frame[i] : "";
+            if(!row.equals(screen[i])) {
+                out.append(Buffer.printAnsi((i + 1) + ";1H")).append(Buffer.printAnsi("2K")).append(row);
+                screen[i] = row;
+            }
+        }
+    }
+
+    /**
+     * Move the lines still visible, the lines that come into view are left empty
+     */
+    private void scroll(StringBuilder out, int shift) {
+        if(Math.abs(shift) >= lines)
+            return;
+        out.append(Buffer.printAnsi("1;" + lines + "r"));
+        out.append(Buffer.printAnsi("1;1H"));
+        out.append(Buffer.printAnsi(Math.abs(shift) + (shift > 0 ? "M" : "L")));
+        out.append(Buffer.printAnsi("r"));
+
+        String[] moved = new String[lines];
+        for(int i = 0; i < lines; i++) {
+            int from = i + shift;
+            moved[i] = from >= 0 && from < lines ? screen[from] : "";
+        }
+        screen = moved;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * What the user searches for in a page, compiled once per search.
+ *
+ * The text is a regular expression, if it is not a valid one it is searched
+ * for literally. With smart case the search ignores case unless the text
+ * has an upper case letter, like less -i.
+ */
+public final class SearchPattern {
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final String text;
+    private final Pattern pattern;
+
+    private SearchPattern(String text, Pattern pattern) {
+        this.text = text;
+        this.pattern = pattern;
+    }
+
+    public static SearchPattern compile(String text, boolean smartCase) {
+        int flags = smartCase && !hasUpperCase(text) ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(text, flags);
+        }
+        catch(PatternSyntaxException e) {
+            pattern = Pattern.compile(Pattern.quote(text), flags);
+        }
+        return new SearchPattern(text, pattern);
+    }
+
+    private static boolean hasUpperCase(String text) {
+        for(int i = 0; i < text.length(); i++) {
+            if(Character.isUpperCase(text.charAt(i)))
+                return true;
+        }
+        return false;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * A matcher to reuse for every row, matchers are not thread safe
+     */
+    public Matcher matcher() {
+        return pattern.matcher("");
+    }
+
+    /**
+     * @return the start and end offset of every match in the row, empty matches are skipped
+     */
+    public static int[] findAll(Matcher matcher, String row) {
+        matcher.reset(row);
+        int[] matches = NO_MATCHES;
+        int count = 0;
+        while(matcher.find()) {
+            if(matcher.end() == matcher.start())
+                continue;
+            if(count + 2 > matches.length)
+                matches = Arrays.copyOf(matches, Math.max(4, matches.length * 2));
+            matches[count++] = matcher.start();
+            matches[count++] = matcher.end();
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+}
@@ -20,18 +20,20 @@
 package org.jboss.aesh.extensions.page;
 
 import org.jboss.aesh.console.man.FileParser;
+import org.jboss.aesh.extensions.text.highlight.Scanner;
+import org.jboss.aesh.extensions.text.highlight.Syntax;
+import org.jboss.aesh.extensions.text.highlight.encoder.ColorProfile;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Util method that tries to read a file
@@ -43,13 +45,19 @@ public class SimpleFileParser implements FileParser {
 
     private String pageAsString;
     private String fileName;
+    private File file;
+    private Decompressor decompressor;
+    private InputStream stream;
+    private boolean closeStream;
     private InputStreamReader reader;
+    private int backgroundRows = -1;
+    private Scanner scanner;
 
     public SimpleFileParser() {
     }
 
     /**
-     * Read from a specified filename. Also supports gzipped files.
+     * Read from a specified filename. Also supports compressed files, see {@link Decompressor}.
      *
      * @param filename File
      * @throws IOException
@@ -59,7 +67,7 @@ public class SimpleFileParser implements FileParser {
     }
 
     /**
-     * Read from a specified file. Also supports gzipped files.
+     * Read from a specified file. Also supports compressed files, see {@link Decompressor}.
      *
      * @param file File
      * @throws IOException
@@ -68,22 +76,54 @@ public class SimpleFileParser implements FileParser {
         if(!file.isFile())
             throw new IllegalArgumentException(file+" must be a file.");
         else {
-            if(file.getName().endsWith("gz"))
-                initGzReader(file);
-            else
-                initReader(file);
+            initReader(file, Decompressor.Factory.forFileName(file.getName()));
         }
     }
 
     public void setFile(InputStream inputStream) {
-        reader = new InputStreamReader(inputStream);
+        initStream(inputStream, true);
     }
 
     public void setFile(InputStream inputStream, String fileName) {
-        reader = new InputStreamReader(inputStream);
+        initStream(inputStream, true);
         this.fileName = fileName;
     }
 
+    /**
+     * Read piped input. The stream belongs to the shell and is not closed.
+     */
+    public void setStdIn(InputStream inputStream) {
+        initStream(inputStream, false);
+        fileName = null;
+    }
+
+    /**
+     * Make {@link #loadPage(int)} return right away with a list that is loaded
+     * in the background, its size waits until the given rows are loaded.
+     * Used where the page is built by code that only knows about lists.
+     *
+     * @param screenRows number of rows needed to show the first screen
+     */
+    public void loadInBackground(int screenRows) {
+        backgroundRows = screenRows;
+    }
+
+    /**
+     * Highlight the page with the given scanner, only the rows displayed are highlighted
+     *
+     * @param scanner null for plain text
+     */
+    public void setScanner(Scanner scanner) {
+        this.scanner = scanner;
+    }
+
+    private void initStream(InputStream inputStream, boolean close) {
+        reader = new InputStreamReader(inputStream);
+        stream = inputStream;
+        closeStream = close;
+        file = null;
+    }
+
 
     /**
      * Read a file resouce located in a jar
@@ -94,13 +134,22 @@ public class SimpleFileParser implements FileParser {
         InputStream is = this.getClass().getResourceAsStream(fileName);
         if(is != null) {
             this.fileName = fileName;
-            reader = new InputStreamReader(is);
+            initStream(is, true);
         }
     }
 
-    private void initReader(File file) throws FileNotFoundException {
+    /**
+     * Files are opened when they are loaded,
+     * a lazy page does not need a reader at all
+     *
+     * @param decompressor null for a plain file
+     */
+    private void initReader(File file, Decompressor decompressor) {
         fileName = file.getAbsolutePath();
-        reader = new FileReader(file);
+        this.file = file;
+        this.decompressor = decompressor;
+        reader = null;
+        stream = null;
     }
 
     public void readPageAsString(String pageAsString) {
@@ -115,15 +164,54 @@ public class SimpleFileParser implements FileParser {
             return "STREAM";
     }
 
-    private void initGzReader(File file) throws IOException {
-        fileName = file.getAbsolutePath();
-        GZIPInputStream gzip = new GZIPInputStream(new FileInputStream(file));
-        reader = new InputStreamReader(gzip);
+    /**
+     * Create a page for the given terminal width. Plain files are indexed in the
+     * background and only the rows displayed are read. Compressed files and streams
+     * are copied once to a temporary file that is indexed the same way while
+     * they are read. Strings are loaded up front.
+     * With a scanner set, the page is highlighted while it is displayed.
+     */
+    public Page createPage(int columns) throws IOException {
+        if(scanner != null)
+            return HighlightedPage.open(createPlainPage(Integer.MAX_VALUE), scanner, Syntax.defaultTheme(),
+                    ColorProfile.Factory.detect(), columns);
+        else
+            return createPlainPage(columns);
+    }
+
+    private Page createPlainPage(int columns) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        if(LazyFilePage.isSupported(charset)) {
+            if(stream != null)
+                return SpooledPage.open(stream, getName(), charset, columns, closeStream);
+            else if(reader == null && file != null) {
+                if(decompressor == null)
+                    return LazyFilePage.open(file, charset, columns);
+                else
+                    return SpooledPage.open(decompressor.decompress(new FileInputStream(file)),
+                            getName(), charset, columns, true);
+            }
+        }
+        return new ListPage(getName(), loadRows(columns));
     }
 
     @Override
     public List<String> loadPage(int columns) throws IOException {
+        if(backgroundRows >= 0)
+            return new PageList(createPage(columns), backgroundRows);
+        else
+            return loadRows(columns);
+    }
+
+    private List<String> loadRows(int columns) throws IOException {
         List<String> lines = new ArrayList<String>();
+        LineWrapper wrapper = new LineWrapper(columns);
+        if(reader == null && file != null) {
+            if(decompressor == null)
+                reader = new FileReader(file);
+            else
+                reader = new InputStreamReader(decompressor.decompress(new FileInputStream(file)));
+        }
         //read file and save each line in a list
         if(reader != null) {
             BufferedReader br = new BufferedReader(reader);
@@ -131,25 +219,20 @@ public class SimpleFileParser implements FileParser {
                 String line = br.readLine();
 
                 while (line != null) {
-                    if(line.length() > columns) {
-                        //split the line in the size of column
-                        for(String s : line.split("(?<=\\G.{"+columns+"})"))
-                            lines.add(s);
-                    }
-                    else
-                        lines.add(line);
+                    //split the line in rows that fit the columns
+                    wrapper.wrap(line, lines);
                     line = br.readLine();
                 }
             }
             finally {
-                br.close();
+                //piped input belongs to the shell
+                if(stream == null || closeStream)
+                    br.close();
             }
         }
         else if(pageAsString != null) {
-            for(String s : pageAsString.split("\n")) {
-                for(String s2 : s.split("(?<=\\G.{" + columns + "})"))
-                    lines.add(s2);
-            }
+            for(String s : pageAsString.split("\n"))
+                wrapper.wrap(s, lines);
         }
 
         return lines;
@@ -0,0 +1,193 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.logging.Logger;
+
+import org.jboss.aesh.util.LoggerUtil;
+
+/**
+ * A page over a stream that can only be read once, e.g. a decompressed file or a pipe.
+ *
+ * The stream is copied to a temporary file in the background and indexed as it
+ * grows by a {@link LazyFilePage}, so rows can be shown as soon as they arrive
+ * and going back, or to the end, reads the temporary file instead of the stream again.
+ */
+public class SpooledPage implements Page {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOGGER = LoggerUtil.getLogger(SpooledPage.class.getName());
+
+    private final InputStream input;
+    private final boolean closeInput;
+    private final String name;
+    private final File spool;
+    private final LazyFilePage page;
+
+    private volatile boolean closed;
+    //guarded by this
+    private boolean done;
+    private int reportedSize;
+
+    private SpooledPage(InputStream input, boolean closeInput, String name,
+                        File spool, LazyFilePage page) {
+        this.input = input;
+        this.closeInput = closeInput;
+        this.name = name;
+        this.spool = spool;
+        this.page = page;
+    }
+
+    /**
+     * Start reading the stream in the background
+     *
+     * @param closeInput false if the stream belongs to someone else, like stdin
+     */
+    public static SpooledPage open(InputStream input, String name, Charset charset,
+                                   int columns, boolean closeInput) throws IOException {
+        File spool = File.createTempFile("aesh-page", ".spool");
+        spool.deleteOnExit();
+        LazyFilePage page = LazyFilePage.open(spool, charset, columns);
+        //the empty file is indexed right away, from then on only appended bytes are indexed
+        page.waitFor(1);
+        final SpooledPage spooled = new SpooledPage(input, closeInput, name, spool, page);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                spooled.spool();
+            }
+        }, "page-spooler "+name);
+        thread.setDaemon(true);
+        thread.start();
+        return spooled;
+    }
+
+    private void spool() {
+        try (OutputStream out = new FileOutputStream(spool)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while(!closed && (read = input.read(buffer)) > -1) {
+                out.write(buffer, 0, read);
+                if(page.update() >= 0) {
+                    synchronized(this) {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+        catch(IOException e) {
+            if(!closed)
+                LOGGER.warning("could not read "+name+": "+e.getMessage());
+        }
+        finally {
+            if(closeInput) {
+                try {
+                    input.close();
+                }
+                catch(IOException ignored) {
+                }
+            }
+            synchronized(this) {
+                done = true;
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public String getLine(int row) {
+        waitFor(row + 1);
+        return page.getLine(row);
+    }
+
+    @Override
+    public int size() {
+        return page.size();
+    }
+
+    @Override
+    public synchronized boolean isComplete() {
+        return done && page.isComplete();
+    }
+
+    @Override
+    public synchronized void waitFor(int rows) {
+        try {
+            while(!done && page.size() < rows)
+                wait();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        page.waitFor(rows);
+    }
+
+    /**
+     * The stream is read in the background, this only reports the rows that came in since the last call
+     */
+    @Override
+    public synchronized int update() {
+        int size = page.size();
+        if(size == reportedSize)
+            return -1;
+        int firstChanged = Math.max(0, Math.min(size, reportedSize) - 1);
+        reportedSize = size;
+        return firstChanged;
+    }
+
+    @Override
+    public boolean canGrow() {
+        return !isComplete();
+    }
+
+    @Override
+    public String getFileName() {
+        return name;
+    }
+
+    /**
+     * Waits until the first row, or the end of the stream, has been read
+     */
+    @Override
+    public boolean hasData() {
+        waitFor(1);
+        return page.size() > 0;
+    }
+
+    @Override
+    public void clear() {
+        closed = true;
+        if(closeInput) {
+            try {
+                input.close();
+            }
+            catch(IOException ignored) {
+            }
+        }
+        page.clear();
+        spool.delete();
+    }
+}
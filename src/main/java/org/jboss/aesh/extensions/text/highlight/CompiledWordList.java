@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable {@link WordList}, compiled to a char trie.
+ *
+ * Words are looked up straight from a region of the text, a case insensitive
+ * list folds the chars while it walks the trie: nothing is allocated.
+ */
+public final class CompiledWordList<T> {
+
+    private final T defaultValue;
+    private final boolean caseInsensitive;
+    private final int maxLength;
+
+    // the children of node n are the nodes first[n] to first[n] + count[n] - 1, sorted by label
+    private final char[] labels;
+    private final int[] first;
+    private final int[] count;
+    private final Object[] values;
+
+    CompiledWordList(Map<String, T> words, T defaultValue, boolean caseInsensitive) {
+        this.defaultValue = defaultValue;
+        this.caseInsensitive = caseInsensitive;
+
+        Node root = new Node();
+        int nodes = 1;
+        int maxLength = 0;
+        for (Map.Entry<String, T> entry : words.entrySet()) {
+            String word = entry.getKey();
+            Node node = root;
+            for (int i = 0; i < word.length(); i++) {
+                char c = fold(word.charAt(i));
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                    nodes++;
+                }
+                node = child;
+            }
+            node.value = entry.getValue();
+            maxLength = Math.max(maxLength, word.length());
+        }
+        this.maxLength = maxLength;
+
+        labels = new char[nodes];
+        first = new int[nodes];
+        count = new int[nodes];
+        values = new Object[nodes];
+        // breadth first, so the children of a node get consecutive indexes
+        Deque<Node> queue = new ArrayDeque<Node>();
+        queue.add(root);
+        int index = 0;
+        int next = 1;
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            values[index] = node.value;
+            first[index] = next;
+            count[index] = node.children.size();
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                labels[next++] = child.getKey();
+                queue.add(child.getValue());
+            }
+            index++;
+        }
+    }
+
+    public T lookup(String value) {
+        return lookup(value, 0, value.length());
+    }
+
+    /**
+     * @return the value of the word from start to end in the text, the default value if it is not listed
+     */
+    @SuppressWarnings("unchecked")
+    public T lookup(CharSequence text, int start, int end) {
+        if (end - start > maxLength) {
+            return defaultValue;
+        }
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            char c = fold(text.charAt(i));
+            int low = first[node];
+            int high = low + count[node] - 1;
+            node = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = labels[middle];
+                if (label < c) {
+                    low = middle + 1;
+                }
+                else if (label > c) {
+                    high = middle - 1;
+                }
+                else {
+                    node = middle;
+                    break;
+                }
+            }
+            if (node < 0) {
+                return defaultValue;
+            }
+        }
+        Object value = values[node];
+        return value != null ? (T) value : defaultValue;
+    }
+
+    private char fold(char c) {
+        return caseInsensitive ? Character.toLowerCase(c) : c;
+    }
+
+    private static final class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<Character, Node>();
+        private Object value;
+    }
+}
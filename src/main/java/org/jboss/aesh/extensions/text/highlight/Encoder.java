@@ -23,8 +23,12 @@ import java.awt.Color;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.aesh.extensions.text.highlight.encoder.DebugEncoder;
+import org.jboss.aesh.extensions.text.highlight.encoder.TerminalEncoder;
 
 public interface Encoder {
 
@@ -42,6 +46,20 @@ public interface Encoder {
         TERMINAL, DEBUG
     }
 
+    /**
+     * An encoder that writes tokens straight from the source text,
+     * see {@link StringScanner#token(Encoder, java.util.regex.MatchResult, TokenType)}
+     */
+    public interface RegionEncoder extends Encoder {
+
+        /**
+         * @param source the whole text scanned, not to be kept
+         * @param start offset of the token in the source
+         * @param end offset after the token
+         */
+        void textToken(CharSequence source, int start, int end, TokenType type);
+    }
+
     public abstract static class AbstractEncoder implements Encoder {
         public static final String NEW_LINE = System.getProperty("line.separator");
 
@@ -59,6 +77,13 @@ public interface Encoder {
             return this.theme.lookup(type);
         }
 
+        /**
+         * @return the packed style of the type, see {@link Theme}
+         */
+        protected int style(TokenType type) {
+            return this.theme.style(type);
+        }
+
         protected void write(String str) {
             try {
                 out.write(str.getBytes());
@@ -78,26 +103,35 @@ public interface Encoder {
         }
     }
 
+    /**
+     * The built in encoders are registered the first time the factory is used
+     */
     public static class Factory {
-        private static Factory factory;
 
-        private Map<String, Class<? extends Encoder>> registry;
+        private final Map<String, Class<? extends Encoder>> registry;
 
         private Factory() {
-            this.registry = new HashMap<>();
+            this.registry = new ConcurrentHashMap<>();
+            registry.put(Type.TERMINAL.name(), TerminalEncoder.class);
+            registry.put(Type.DEBUG.name(), DebugEncoder.class);
+        }
+
+        private static class Holder {
+            private static final Factory INSTANCE = new Factory();
         }
 
         private static Factory instance() {
-            if (factory == null) {
-                factory = new Factory();
-            }
-            return factory;
+            return Holder.INSTANCE;
         }
 
         public static void registrer(String type, Class<? extends Encoder> encoder) {
             instance().registry.put(type, encoder);
         }
 
+        public static Set<String> types() {
+            return instance().registry.keySet();
+        }
+
         public static Encoder create(String type, OutputStream out, Theme theme, Map<String, Object> options) {
             Class<? extends Encoder> encoder = instance().registry.get(type);
             if (encoder != null) {
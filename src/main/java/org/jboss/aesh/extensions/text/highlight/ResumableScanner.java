@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight;
+
+import java.util.Map;
+
+/**
+ * A scanner that can stop and start again at the start of lines.
+ *
+ * While it scans, the scanner gives a snapshot of its state at line starts,
+ * after the blanks the line starts with, where no group is open. Scanning
+ * the same text again from there with the snapshot writes the same tokens
+ * as the first scan did. A consumer that keeps the snapshots only has to
+ * highlight again from the last one before a change, not from the top.
+ */
+public interface ResumableScanner extends Scanner {
+
+    /**
+     * Scan from the current position of the source
+     *
+     * @param snapshot given to a listener by an earlier scan, null to scan from the start of a document
+     * @param listener told of the snapshots, null when they are not needed
+     */
+    void scan(StringScanner source, Encoder encoder, Map<String, Object> options, Snapshot snapshot,
+            Listener listener);
+
+    /**
+     * The state of a scanner at a line start, immutable and compared by value
+     */
+    interface Snapshot {
+    }
+
+    interface Listener {
+
+        /**
+         * @param index position in the source, only blanks come before it on its line
+         * @param snapshot the state to scan again from there
+         * @return false to stop scanning, for instance when the snapshot is the one
+         * an earlier scan had at the same line
+         */
+        boolean lineStart(int index, Snapshot snapshot);
+    }
+}
@@ -19,10 +19,27 @@
  */
 package org.jboss.aesh.extensions.text.highlight;
 
+import org.jboss.aesh.extensions.text.highlight.scanner.GroovyScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.HTMLScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.JavaScriptScanner;
 import org.jboss.aesh.extensions.text.highlight.scanner.PlainScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.XMLScanner;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public interface Scanner {
@@ -33,20 +50,54 @@ public interface Scanner {
     public class Type {
         private String name;
         private Pattern pattern;
+        private Set<String> extensions;
 
         public Type(String name, String pattern) {
             this(name, Pattern.compile(pattern, Pattern.CASE_INSENSITIVE));
         }
 
         public Type(String name, Pattern pattern) {
+            this(name, pattern, Collections.<String>emptySet());
+        }
+
+        private Type(String name, Pattern pattern, Set<String> extensions) {
             this.name = name;
             this.pattern = pattern;
+            this.extensions = extensions;
+        }
+
+        /**
+         * A type recognized by file extension, the extensions are looked up without a pattern
+         *
+         * @param extensions the file extensions, without the dot, case does not matter
+         */
+        public static Type ofExtensions(String name, String... extensions) {
+            Set<String> lowerCase = new LinkedHashSet<String>();
+            StringBuilder regex = new StringBuilder("\\.(");
+            for (String extension : extensions) {
+                if (lowerCase.add(extension.toLowerCase(Locale.ENGLISH))) {
+                    if (lowerCase.size() > 1) {
+                        regex.append('|');
+                    }
+                    regex.append(Pattern.quote(extension));
+                }
+            }
+            Pattern pattern = Pattern.compile(regex.append(")$").toString(), Pattern.CASE_INSENSITIVE);
+            return new Type(name, pattern, Collections.unmodifiableSet(lowerCase));
         }
 
         public String getName() {
             return name;
         }
 
+        /**
+         * @return the lower case file extensions, without the dot, the type was created with.
+         * Empty when the type is recognized by a pattern.
+         */
+        public Set<String> getExtensions() {
+            return extensions;
+        }
+
         public boolean supports(String fileName) {
             if (pattern == null) {
                 return false;
@@ -55,43 +106,182 @@ public interface Scanner {
         }
     }
 
+    /**
+     * The scanners listed in META-INF/services/org.jboss.aesh.extensions.text.highlight.Scanner
+     * are loaded the first time the factory is used, in the order they are listed.
+     * Scanners are stateless and shared, lookups do not lock.
+     *
+     * File names are looked up by extension in a hash map, the patterns are
+     * only matched for the types that are not a list of extensions.
+     */
     public static class Factory {
-        private static Factory factory;
 
-        private Map<String, Scanner> registry;
+        /**
+         * Number of bytes looked at by {@link #byContent(byte[], int)}
+         */
+        public static final int HEAD_SIZE = 256;
+
+        private static final Map<String, String> INTERPRETERS = new HashMap<String, String>();
+
+        static {
+            INTERPRETERS.put("groovy", GroovyScanner.TYPE.getName());
+            INTERPRETERS.put("node", JavaScriptScanner.TYPE.getName());
+            INTERPRETERS.put("nodejs", JavaScriptScanner.TYPE.getName());
+        }
+
+        //replaced on write
+        private volatile Registry registry;
 
         private Factory() {
-            this.registry = new LinkedHashMap<String, Scanner>();
+            Map<String, Scanner> scanners = new LinkedHashMap<String, Scanner>();
+            for (Scanner scanner : ServiceLoader.load(Scanner.class, Scanner.class.getClassLoader())) {
+                scanners.put(scanner.getType().getName(), scanner);
+            }
+            this.registry = new Registry(scanners);
+        }
+
+        private static class Holder {
+            private static final Factory INSTANCE = new Factory();
         }
 
         private static Factory instance() {
-            if (factory == null) {
-                factory = new Factory();
-            }
-            return factory;
+            return Holder.INSTANCE;
         }
 
+        /**
+         * Register a scanner, nothing is done if one of the same class is registered
+         */
         public static void registrer(Class<? extends Scanner> scanner) {
-            Scanner scannerInst = create(scanner);
-            instance().registry.put(scannerInst.getType().getName(), scannerInst);
+            Factory instance = instance();
+            synchronized (instance) {
+                for (Scanner registered : instance.registry.scanners.values()) {
+                    if (registered.getClass() == scanner) {
+                        return;
+                    }
+                }
+                Scanner scannerInst = create(scanner);
+                Map<String, Scanner> scanners = new LinkedHashMap<String, Scanner>(instance.registry.scanners);
+                scanners.put(scannerInst.getType().getName(), scannerInst);
+                instance.registry = new Registry(scanners);
+            }
         }
 
-        public static Scanner byType(String typeName) {
-            for (Scanner scanner : instance().registry.values()) {
-                if (scanner.getType().getName().equalsIgnoreCase(typeName)) {
-                    return scanner;
+        /**
+         * Remove the scanner of the given class, used by the tests to leave the factory as they found it
+         */
+        static void unregister(Class<? extends Scanner> scanner) {
+            Factory instance = instance();
+            synchronized (instance) {
+                Map<String, Scanner> scanners = new LinkedHashMap<String, Scanner>(instance.registry.scanners);
+                for (Iterator<Scanner> it = scanners.values().iterator(); it.hasNext(); ) {
+                    if (it.next().getClass() == scanner) {
+                        it.remove();
+                    }
                 }
+                instance.registry = new Registry(scanners);
             }
-            return null;
+        }
+
+        public static Collection<Scanner> scanners() {
+            return Collections.unmodifiableCollection(instance().registry.scanners.values());
+        }
+
+        public static Scanner byType(String typeName) {
+            if (typeName == null) {
+                return null;
+            }
+            return instance().registry.byName.get(typeName.toUpperCase(Locale.ENGLISH));
         }
 
         public static Scanner byFileName(String fileName) {
-            for (Scanner scanner : instance().registry.values()) {
-                if (scanner.getType().supports(fileName)) {
-                    return scanner;
+            Registry registry = instance().registry;
+            int found = registry.ordered.length;
+            int dot = fileName.lastIndexOf('.');
+            if (dot >= 0) {
+                Integer index = registry.byExtension.get(fileName.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+                if (index != null) {
+                    found = index;
                 }
             }
-            return instance().registry.get(PlainScanner.TYPE);
+            // a type registered before the one found by extension comes first
+            for (int index : registry.patternOnly) {
+                if (index >= found) {
+                    break;
+                }
+                if (registry.ordered[index].getType().supports(fileName)) {
+                    return registry.ordered[index];
+                }
+            }
+            if (found < registry.ordered.length) {
+                return registry.ordered[found];
+            }
+            return registry.byName.get(PlainScanner.TYPE.getName());
+        }
+
+        /**
+         * Look up the scanner by file name, and when the name says nothing more than
+         * plain text, by the first {@link #HEAD_SIZE} bytes of the content.
+         * The content is not closed.
+         */
+        public static Scanner byFileName(String fileName, InputStream content) throws IOException {
+            Scanner scanner = byFileName(fileName);
+            if ((scanner != null && scanner.getType() != PlainScanner.TYPE) || content == null) {
+                return scanner;
+            }
+            byte[] head = new byte[HEAD_SIZE];
+            int length = 0;
+            int read;
+            while (length < head.length && (read = content.read(head, length, head.length - length)) > 0) {
+                length += read;
+            }
+            Scanner sniffed = byContent(head, length);
+            return sniffed != null ? sniffed : scanner;
+        }
+
+        /**
+         * Recognize a file from its first bytes: a shebang naming a known
+         * interpreter, an XML prolog or an HTML doctype.
+         *
+         * @return the scanner, null if the content is not recognized
+         */
+        public static Scanner byContent(byte[] head, int length) {
+            String text = new String(head, 0, length, StandardCharsets.ISO_8859_1);
+            // UTF-8 byte order mark
+            if (text.startsWith("\u00EF\u00BB\u00BF")) {
+                text = text.substring(3);
+            }
+            String type = null;
+            if (text.startsWith("#!")) {
+                type = interpreterType(text);
+            }
+            else {
+                int start = 0;
+                while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+                    start++;
+                }
+                if (text.startsWith("<?xml", start)) {
+                    type = XMLScanner.TYPE.getName();
+                }
+                else if (text.regionMatches(true, start, "<!doctype html", 0, 14) ||
+                        text.regionMatches(true, start, "<html", 0, 5)) {
+                    type = HTMLScanner.TYPE.getName();
+                }
+            }
+            return type == null ? null : byType(type);
+        }
+
+        private static String interpreterType(String text) {
+            int end = text.indexOf('\n');
+            String[] words = text.substring(2, end < 0 ? text.length() : end).trim().split("\\s+");
+            String interpreter = words[0].substring(words[0].lastIndexOf('/') + 1);
+            // #!/usr/bin/env [-S] [NAME=value] interpreter
+            for (int i = 1; i < words.length && interpreter.equals("env"); i++) {
+                if (!words[i].startsWith("-") && words[i].indexOf('=') < 0) {
+                    interpreter = words[i];
+                }
+            }
+            // groovy3, node18
+            return INTERPRETERS.get(interpreter.replaceFirst("[\\d.]+$", ""));
         }
 
         private static Scanner create(Class<? extends Scanner> scanner) {
@@ -105,5 +295,45 @@ public interface Scanner {
             }
             return null;
         }
+
+        /**
+         * The scanners registered, indexed for the lookups
+         */
+        private static final class Registry {
+            private final Map<String, Scanner> scanners;
+            private final Scanner[] ordered;
+            private final Map<String, Scanner> byName = new HashMap<String, Scanner>();
+            private final Map<String, Integer> byExtension = new HashMap<String, Integer>();
+            private final int[] patternOnly;
+
+            Registry(Map<String, Scanner> scanners) {
+                this.scanners = scanners;
+                this.ordered = scanners.values().toArray(new Scanner[scanners.size()]);
+                List<Integer> patterns = new ArrayList<Integer>();
+                for (int i = 0; i < ordered.length; i++) {
+                    Type type = ordered[i].getType();
+                    String name = type.getName().toUpperCase(Locale.ENGLISH);
+                    if (!byName.containsKey(name)) {
+                        byName.put(name, ordered[i]);
+                    }
+                    if (type.getExtensions().isEmpty()) {
+                        if (type.pattern != null) {
+                            patterns.add(i);
+                        }
+                    }
+                    else {
+                        for (String extension : type.getExtensions()) {
+                            if (!byExtension.containsKey(extension)) {
+                                byExtension.put(extension, i);
+                            }
+                        }
+                    }
+                }
+                patternOnly = new int[patterns.size()];
+                for (int i = 0; i < patternOnly.length; i++) {
+                    patternOnly[i] = patterns.get(i);
+                }
+            }
+        }
     }
 }
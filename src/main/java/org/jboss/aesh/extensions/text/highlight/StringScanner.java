@@ -19,26 +19,63 @@
  */
 package org.jboss.aesh.extensions.text.highlight;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Scans a text with regular expressions, from the current position.
+ *
+ * A Matcher is kept per pattern and reused, and match results only hold offsets,
+ * so scanning allocates no String until a group is asked for. Scanners hand
+ * the matches to {@link #token(Encoder, MatchResult, TokenType)} so that a
+ * {@link Encoder.RegionEncoder} writes them straight from the source.
+ */
 public class StringScanner {
 
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+    // the single char strings returned by next()
+    private static final String[] CHARS = new String[128];
+
+    static {
+        for (int i = 0; i < CHARS.length; i++) {
+            CHARS[i] = String.valueOf((char) i);
+        }
+    }
+
     private StringSequence sequence;
 
+    private final Map<Pattern, Matcher> matchers = new IdentityHashMap<>();
+
     public StringScanner(String source) {
+        this((CharSequence) source);
+    }
+
+    public StringScanner(CharSequence source) {
         this.sequence = new StringSequence(source);
     }
 
+    /**
+     * Scan the source from the given index, the regions given to encoders
+     * and the indexes returned stay positions in the whole source
+     */
+    public StringScanner(CharSequence source, int index) {
+        this(source);
+        this.sequence.advance(index);
+    }
+
     public MatchResult scan(String pattern) {
-        return scan(Pattern.compile(pattern));
+        return scan(compile(pattern));
     }
 
     public MatchResult scan(Pattern pattern) {
-        Matcher m = pattern.matcher(sequence);
+        Matcher m = matcher(pattern);
         if (m.lookingAt()) {
-            MatchResult result = new StaticMatchResult(sequence, m);
+            MatchResult result = new StaticMatchResult(sequence, m, false);
             sequence.advance(m.end());
             return result;
         }
@@ -46,13 +83,13 @@ public class StringScanner {
     }
 
     public MatchResult scanUntil(String pattern) {
-        return scanUntil(Pattern.compile(pattern));
+        return scanUntil(compile(pattern));
     }
 
     public MatchResult scanUntil(Pattern pattern) {
-        Matcher m = pattern.matcher(sequence);
+        Matcher m = matcher(pattern);
         if (m.find()) {
-            MatchResult result = new UntilStaticMatchResult(sequence, m);
+            MatchResult result = new StaticMatchResult(sequence, m, true);
             sequence.advance(m.end());
             return result;
         }
@@ -60,17 +97,106 @@ public class StringScanner {
     }
 
     public MatchResult check(String pattern) {
-        return check(Pattern.compile(pattern));
+        return check(compile(pattern));
     }
 
     public MatchResult check(Pattern pattern) {
-        Matcher m = pattern.matcher(sequence);
+        Matcher m = matcher(pattern);
         if (m.lookingAt()) {
-            return new StaticMatchResult(sequence, m);
+            return new StaticMatchResult(sequence, m, false);
         }
         return null;
     }
 
+    /**
+     * @return the matcher of the pattern, reset to the current position
+     */
+    private Matcher matcher(Pattern pattern) {
+        Matcher m = matchers.get(pattern);
+        if (m == null) {
+            m = pattern.matcher(sequence);
+            matchers.put(pattern, m);
+        }
+        else {
+            m.reset();
+        }
+        return m;
+    }
+
+    private static Pattern compile(String pattern) {
+        Pattern compiled = PATTERNS.get(pattern);
+        if (compiled == null) {
+            compiled = Pattern.compile(pattern);
+            PATTERNS.put(pattern, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Write the text matched to the encoder
+     */
+    public void token(Encoder encoder, MatchResult match, TokenType type) {
+        token(encoder, match, 0, type);
+    }
+
+    /**
+     * Write the text of a group of the match to the encoder. When the encoder
+     * takes regions of the source, no String is created for the token.
+     */
+    public void token(Encoder encoder, MatchResult match, int group, TokenType type) {
+        if (encoder instanceof Encoder.RegionEncoder && match instanceof StaticMatchResult) {
+            StaticMatchResult result = (StaticMatchResult) match;
+            if (result.sequence == sequence && result.start(group) != -1) {
+                ((Encoder.RegionEncoder) encoder).textToken(sequence.source,
+                        result.previousIndex + result.start(group), result.previousIndex + result.end(group), type);
+                return;
+            }
+        }
+        encoder.textToken(match.group(group), type);
+    }
+
+    /**
+     * Look up the text matched in the word list, no String is created for it
+     */
+    public <T> T lookup(CompiledWordList<T> words, MatchResult match) {
+        if (match instanceof StaticMatchResult && ((StaticMatchResult) match).sequence == sequence) {
+            StaticMatchResult result = (StaticMatchResult) match;
+            return words.lookup(sequence.source, result.previousIndex + result.start(),
+                    result.previousIndex + result.end());
+        }
+        return words.lookup(match.group());
+    }
+
+    /**
+     * @return true if the text matched is the single char given, no String is created for it
+     */
+    public boolean is(MatchResult match, char c) {
+        if (match == null || match.end() - match.start() != 1) {
+            return false;
+        }
+        if (match instanceof StaticMatchResult && ((StaticMatchResult) match).sequence == sequence) {
+            StaticMatchResult result = (StaticMatchResult) match;
+            return sequence.sourceCharAt(result.previousIndex + result.start()) == c;
+        }
+        return match.group().charAt(0) == c;
+    }
+
+    /**
+     * @return true if the text matched holds the given char, no String is created for it
+     */
+    public boolean contains(MatchResult match, char c) {
+        if (match instanceof StaticMatchResult && ((StaticMatchResult) match).sequence == sequence) {
+            StaticMatchResult result = (StaticMatchResult) match;
+            for (int i = result.previousIndex + result.start(); i < result.previousIndex + result.end(); i++) {
+                if (sequence.sourceCharAt(i) == c) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return match.group().indexOf(c) != -1;
+    }
+
     public String next() {
         return sequence.pop();
     }
@@ -92,11 +218,11 @@ public class StringScanner {
      * @return
      */
     public int column(int pos) {
-        int currPrePos = 0;
-        while ((pos + currPrePos) > 0 && !sequence.peek(pos, currPrePos).startsWith("\n")) {
-            currPrePos--;
+        int back = 0;
+        while (pos - back > 0 && (back == 0 || sequence.sourceCharAt(pos - back) != '\n')) {
+            back++;
         }
-        return (currPrePos * -1);
+        return back;
     }
 
     public int index() {
@@ -107,121 +233,91 @@ public class StringScanner {
         if (sequence.index() == 0) {
             return true;
         }
-        return "\n".equals(sequence.peek(-1));
+        return sequence.sourceCharAt(sequence.index() - 1) == '\n';
     }
 
+    /*
+     * The offsets of the groups, relative to the position the match started from.
+     * A match found by scanUntil starts at that position, not at the pattern.
+     */
     private static class StaticMatchResult implements MatchResult {
 
         protected StringSequence sequence;
         protected int previousIndex;
-        protected MatchResult originalMatch;
+        private final int[] offsets;
 
-        public StaticMatchResult(StringSequence sequence, MatchResult result) {
-            this.originalMatch = result;
+        public StaticMatchResult(StringSequence sequence, Matcher matcher, boolean until) {
             this.sequence = sequence;
             this.previousIndex = sequence.index();
+            this.offsets = new int[(matcher.groupCount() + 1) * 2];
+            for (int group = 0; group <= matcher.groupCount(); group++) {
+                offsets[group * 2] = matcher.start(group);
+                offsets[group * 2 + 1] = matcher.end(group);
+            }
+            if (until) {
+                offsets[0] = 0;
+            }
         }
 
         @Override
         public int end() {
-            return originalMatch.end();
+            return offsets[1];
         }
 
         @Override
         public int end(int group) {
-            return originalMatch.end(group);
+            checkGroup(group);
+            return offsets[group * 2 + 1];
         }
 
         @Override
         public int groupCount() {
-            return originalMatch.groupCount();
+            return offsets.length / 2 - 1;
         }
 
         @Override
         public int start() {
-            return originalMatch.start();
+            return offsets[0];
         }
 
         @Override
         public int start(int group) {
-            return originalMatch.start(group);
+            checkGroup(group);
+            return offsets[group * 2];
         }
 
         @Override
         public String group() {
-            int start = originalMatch.start();
-            if (start == -1) {
-                return null;
-            }
-            int end = originalMatch.end();
-            return (String) sequence.subSequence(previousIndex, start, end);
+            return group(0);
         }
 
         @Override
         public String group(int group) {
-            int start = originalMatch.start(group);
+            int start = start(group);
             if (start == -1) {
                 return null;
             }
-            int end = originalMatch.end(group);
-            return (String) sequence.subSequence(previousIndex, start, end);
-        }
-
-        @Override
-        public String toString() {
-            return group();
-        }
-    }
-
-    /*
-     * group(0) start is always 0. We want from previous up til next, not from next.
-     */
-    private static class UntilStaticMatchResult extends StaticMatchResult {
-
-        public UntilStaticMatchResult(StringSequence sequence, MatchResult result) {
-            super(sequence, result);
+            return sequence.subSequence(previousIndex, start, end(group)).toString();
         }
 
-        @Override
-        public int start() {
-            return 0;
-        }
-
-        @Override
-        public int start(int group) {
-            if (group == 0) {
-                return 0;
+        private void checkGroup(int group) {
+            if (group < 0 || group > groupCount()) {
+                throw new IndexOutOfBoundsException("No group " + group);
             }
-            return originalMatch.start(group);
-        }
-
-        @Override
-        public String group() {
-            int start = 0;
-            int end = originalMatch.end();
-            return (String) sequence.subSequence(previousIndex, start, end);
         }
 
         @Override
-        public String group(int group) {
-            int start = originalMatch.start(group);
-            if (start == -1) {
-                return null;
-            }
-            if (group == 0) {
-                start = 0;
-            }
-            int end = originalMatch.end(group);
-            return (String) sequence.subSequence(previousIndex, start, end);
+        public String toString() {
+            return group();
         }
     }
 
     private static class StringSequence implements CharSequence {
-        private String source;
+        private CharSequence source;
 
         private int index;
 
-        public StringSequence(String source) {
+        public StringSequence(CharSequence source) {
             this.source = source;
             this.index = 0;
         }
@@ -245,19 +341,35 @@ public class StringScanner {
             return source.subSequence(index + start, index + end);
         }
 
+        @Override
+        public String toString() {
+            return source.subSequence(index, source.length()).toString();
+        }
+
+        public char sourceCharAt(int index) {
+            return source.charAt(index);
+        }
+
         public String peek(int length) {
             return peek(index, length);
         }
 
         public String peek(int pos, int length) {
+            if (length == 1) {
+                return charString(source.charAt(pos));
+            }
             if (length < 0) {
-                return source.substring(pos + length, pos);
+                return source.subSequence(pos + length, pos).toString();
             }
-            return source.substring(pos, pos + length);
+            return source.subSequence(pos, pos + length).toString();
         }
 
         public String pop() {
-            return String.valueOf(source.charAt(this.index++));
+            return charString(source.charAt(this.index++));
+        }
+
+        private static String charString(char c) {
+            return c < CHARS.length ? CHARS[c] : String.valueOf(c);
         }
 
         public int index() {
@@ -272,4 +384,4 @@ public class StringScanner {
             return this.index < source.length();
         }
     }
-}
\ No newline at end of file
+}
@@ -19,45 +19,27 @@
  */
 package org.jboss.aesh.extensions.text.highlight;
 
-import java.awt.Color;
 import java.io.BufferedOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Map;
 
-import org.jboss.aesh.extensions.text.highlight.encoder.DebugEncoder;
+import org.jboss.aesh.extensions.text.highlight.encoder.ColorProfile;
 import org.jboss.aesh.extensions.text.highlight.encoder.TerminalEncoder;
-import org.jboss.aesh.extensions.text.highlight.scanner.CSSScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.GroovyScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.HTMLScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.JSONScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.JavaScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.JavaScriptScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.PlainScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.PropertiesScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.SQLScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.XMLScanner;
-import org.jboss.aesh.extensions.text.highlight.scanner.YAMLScanner;
 
 public class Syntax {
+
+    /**
+     * Load the built in scanners and encoders now. They are loaded once, the
+     * first time a factory is used, so calling this is only needed to avoid
+     * paying for it later.
+     */
     public static void builtIns() {
-        Scanner.Factory.registrer(PlainScanner.class);
-        Scanner.Factory.registrer(JavaScanner.class);
-        Scanner.Factory.registrer(HTMLScanner.class);
-        Scanner.Factory.registrer(XMLScanner.class);
-        Scanner.Factory.registrer(CSSScanner.class);
-        Scanner.Factory.registrer(JavaScriptScanner.class);
-        Scanner.Factory.registrer(JSONScanner.class);
-        Scanner.Factory.registrer(PropertiesScanner.class);
-        Scanner.Factory.registrer(SQLScanner.class);
-        Scanner.Factory.registrer(GroovyScanner.class);
-        Scanner.Factory.registrer(YAMLScanner.class);
-
-
-        Encoder.Factory.registrer(Encoder.Type.TERMINAL.name(), TerminalEncoder.class);
-        Encoder.Factory.registrer(Encoder.Type.DEBUG.name(), DebugEncoder.class);
+        Scanner.Factory.scanners();
+        Encoder.Factory.types();
     }
 
     public static final class Builder {
@@ -150,17 +132,25 @@ public class Syntax {
                         : encoderOptions);
             }
             in.scan(source, out, scannerOptions == null ? Options.create() : scannerOptions);
+            if (out instanceof Flushable) {
+                try {
+                    ((Flushable) out).flush();
+                }
+                catch (IOException e) {
+                    throw new RuntimeException("Could not write to output", e);
+                }
+            }
         }
     }
 
     public static Theme defaultTheme() {
         return new Theme()
-                .set(Color.RED, TokenType.predefined_constant, TokenType.content, TokenType.delimiter, TokenType.color,
-                        TokenType.value, TokenType.integer, TokenType.float_)
-                .set(Color.CYAN, TokenType.tag, TokenType.class_, TokenType.function)
-                .set(Color.MAGENTA, TokenType.keyword)
-                .set(Color.GREEN, TokenType.type, TokenType.directive, TokenType.string, TokenType.attribute_value,
-                        TokenType.attribute_name, TokenType.key);
+                .set(Theme.color(0xFF0000), TokenType.predefined_constant, TokenType.content, TokenType.delimiter,
+                        TokenType.color, TokenType.value, TokenType.integer, TokenType.float_)
+                .set(Theme.color(0x00FFFF), TokenType.tag, TokenType.class_, TokenType.function)
+                .set(Theme.color(0xFF00FF), TokenType.keyword)
+                .set(Theme.color(0x00FF00), TokenType.type, TokenType.directive, TokenType.string,
+                        TokenType.attribute_value, TokenType.attribute_name, TokenType.key);
     }
 
     public static void main(String[] args) {
@@ -191,6 +181,8 @@ public class Syntax {
         Builder.create()
                 .scanner(scanner)
                 .encoderType(encoder)
+                .encoderOptions(Options.create()
+                        .add(TerminalEncoder.OPTION_COLOR_PROFILE, ColorProfile.Factory.detect()))
                 .output(out)
                 .execute(content);
 
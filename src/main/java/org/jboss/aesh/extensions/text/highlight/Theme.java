@@ -20,35 +20,180 @@
 package org.jboss.aesh.extensions.text.highlight;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Properties;
 
+/**
+ * The colors and styles of the token types.
+ *
+ * Each token type has a packed int, indexed by its ordinal: the RGB color in
+ * the low 24 bits and the {@link #COLOR}, {@link #BOLD}, {@link #ITALIC} and
+ * {@link #UNDERLINE} bits above it. 0 means nothing is set. The methods taking
+ * or returning a {@link Color} are kept for compatibility, the rest does not
+ * load AWT.
+ */
 public class Theme {
 
-    private Color defaultColor;
-    private Map<TokenType, Color> map;
+    public static final int RGB = 0xFFFFFF;
+    public static final int COLOR = 1 << 24;
+    public static final int BOLD = 1 << 25;
+    public static final int ITALIC = 1 << 26;
+    public static final int UNDERLINE = 1 << 27;
+
+    // the values of the java.awt.Color constants
+    private static final Map<String, Integer> NAMED_COLORS = new HashMap<>();
+
+    static {
+        NAMED_COLORS.put("black", 0x000000);
+        NAMED_COLORS.put("blue", 0x0000FF);
+        NAMED_COLORS.put("cyan", 0x00FFFF);
+        NAMED_COLORS.put("darkgray", 0x404040);
+        NAMED_COLORS.put("gray", 0x808080);
+        NAMED_COLORS.put("green", 0x00FF00);
+        NAMED_COLORS.put("lightgray", 0xC0C0C0);
+        NAMED_COLORS.put("magenta", 0xFF00FF);
+        NAMED_COLORS.put("orange", 0xFFC800);
+        NAMED_COLORS.put("pink", 0xFFAFAF);
+        NAMED_COLORS.put("red", 0xFF0000);
+        NAMED_COLORS.put("white", 0xFFFFFF);
+        NAMED_COLORS.put("yellow", 0xFFFF00);
+    }
+
+    private final int[] styles = new int[TokenType.values().length];
+    private final int defaultStyle;
 
     public Theme() {
-        this(null);
+        this.defaultStyle = 0;
     }
 
     public Theme(Color defaultColor) {
-        this.defaultColor = defaultColor;
-        this.map = new HashMap<>();
+        this.defaultStyle = defaultColor == null ? 0 : COLOR | (defaultColor.getRGB() & RGB);
+    }
+
+    /**
+     * @param defaultStyle the packed style of the types not set, 0 for none
+     */
+    public Theme(int defaultStyle) {
+        this.defaultStyle = defaultStyle;
     }
 
     public Theme set(Color color, TokenType type, TokenType... types) {
-        this.map.put(type, color);
+        return set(color == null ? 0 : COLOR | (color.getRGB() & RGB), type, types);
+    }
+
+    /**
+     * @param style a packed style, like {@code Theme.color(0xFF00FF) | Theme.BOLD}
+     */
+    public Theme set(int style, TokenType type, TokenType... types) {
+        styles[type.ordinal()] = style;
         if (types != null) {
             for (TokenType t : types) {
-                map.put(t, color);
+                styles[t.ordinal()] = style;
             }
         }
         return this;
     }
 
     public Color lookup(TokenType type) {
-        Color color = map.get(type);
-        return color != null ? color : defaultColor;
+        int style = style(type);
+        return (style & COLOR) == 0 ? null : new Color(style & RGB);
+    }
+
+    /**
+     * @return the packed style of the type, 0 when nothing is set
+     */
+    public int style(TokenType type) {
+        int style = styles[type.ordinal()];
+        return style != 0 ? style : defaultStyle;
+    }
+
+    /**
+     * @return the packed style of the RGB color
+     */
+    public static int color(int rgb) {
+        return COLOR | (rgb & RGB);
+    }
+
+    /**
+     * Load a theme from a properties file. Each key is a token type, or
+     * {@code default} for the types not listed, and each value a color,
+     * {@code #RRGGBB} or a name like {@code magenta}, and/or the styles
+     * {@code bold}, {@code italic} and {@code underline}:
+     *
+     * <pre>
+     * keyword = magenta bold
+     * string = #00FF00
+     * comment = italic
+     * </pre>
+     *
+     * The reader is not closed.
+     */
+    public static Theme load(Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+        String defaultStyle = properties.getProperty("default");
+        Theme theme = new Theme(defaultStyle == null ? 0 : parseStyle("default", defaultStyle));
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.equals("default")) {
+                theme.set(parseStyle(key, properties.getProperty(key)), tokenType(key));
+            }
+        }
+        return theme;
+    }
+
+    /**
+     * Load a UTF-8 theme file, see {@link #load(Reader)}. The stream is not closed.
+     */
+    public static Theme load(InputStream in) throws IOException {
+        return load(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static TokenType tokenType(String name) {
+        // class_, float_
+        for (String value : new String[]{name, name + "_"}) {
+            try {
+                return TokenType.valueOf(value);
+            }
+            catch (IllegalArgumentException e) {
+                // try the next one
+            }
+        }
+        throw new IllegalArgumentException("Unknown token type " + name + " in theme");
+    }
+
+    private static int parseStyle(String key, String value) {
+        int style = 0;
+        for (String word : value.trim().split("\\s+")) {
+            String lower = word.toLowerCase(Locale.ENGLISH);
+            if (lower.isEmpty()) {
+                continue;
+            }
+            else if (lower.equals("bold")) {
+                style |= BOLD;
+            }
+            else if (lower.equals("italic")) {
+                style |= ITALIC;
+            }
+            else if (lower.equals("underline")) {
+                style |= UNDERLINE;
+            }
+            else if (lower.matches("#[0-9a-f]{6}")) {
+                style = (style & ~RGB) | color(Integer.parseInt(lower.substring(1), 16));
+            }
+            else if (NAMED_COLORS.containsKey(lower)) {
+                style = (style & ~RGB) | color(NAMED_COLORS.get(lower));
+            }
+            else {
+                throw new IllegalArgumentException("Unknown color or style " + word + " for " + key + " in theme");
+            }
+        }
+        return style;
     }
 }
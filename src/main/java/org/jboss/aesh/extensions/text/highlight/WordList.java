@@ -50,6 +50,13 @@ public class WordList<T> {
         return found != null ? found : defaultValue;
     }
 
+    /**
+     * @return an immutable copy of the list, looked up without allocating
+     */
+    public CompiledWordList<T> compile() {
+        return new CompiledWordList<T>(lists, defaultValue, caseInsensitive);
+    }
+
     public WordList<T> clone() {
         WordList<T> clone = new WordList<T>(this.defaultValue, this.caseInsensitive);
         clone.lists = new HashMap<String, T>();
@@ -0,0 +1,268 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight.encoder;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How colors are written to a terminal. The encoder asks for the escape of
+ * each token type once, when it is created, never while it writes.
+ */
+public interface ColorProfile {
+
+    /**
+     * 24 bit colors, written as they are
+     */
+    ColorProfile TRUECOLOR = new TrueColor();
+
+    /**
+     * The xterm 256 color palette: the 6x6x6 color cube and the gray ramp
+     */
+    ColorProfile XTERM_256 = new Xterm256();
+
+    /**
+     * The 8 basic colors and their bright variants
+     */
+    ColorProfile ANSI_16 = new Ansi16();
+
+    /**
+     * No colors, no escapes at all
+     */
+    ColorProfile NONE = new None();
+
+    /**
+     * @param rgb the color, red in the bits 16 to 23
+     * @return the escape sequence setting the foreground color, null to write the text as is
+     */
+    String foreground(int rgb);
+
+    /**
+     * @return false when nothing is ever colored, the encoder then writes no escapes at all
+     */
+    boolean isColored();
+
+    class TrueColor implements ColorProfile {
+
+        @Override
+        public String foreground(int rgb) {
+            return "\u001B[38;2;" + Xterm256.red(rgb) + ";" + Xterm256.green(rgb) + ";" + Xterm256.blue(rgb) + "m";
+        }
+
+        @Override
+        public boolean isColored() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "truecolor";
+        }
+    }
+
+    class Xterm256 implements ColorProfile {
+
+        // the channel values of the color cube
+        private static final int[] LEVELS = {0, 95, 135, 175, 215, 255};
+        // nearest level of every channel value
+        private static final int[] NEAREST_LEVEL = new int[256];
+
+        static {
+            for (int value = 0, level = 0; value < NEAREST_LEVEL.length; value++) {
+                if (level < LEVELS.length - 1 && value - LEVELS[level] > LEVELS[level + 1] - value) {
+                    level++;
+                }
+                NEAREST_LEVEL[value] = level;
+            }
+        }
+
+        /**
+         * @return the index of the nearest value of the color cube, from 0 to 5
+         */
+        public static int scale(int value) {
+            return NEAREST_LEVEL[Math.max(0, Math.min(255, value))];
+        }
+
+        /**
+         * @return the nearest color of the palette, from 16 to 255
+         */
+        public static int index(int rgb) {
+            int r = scale(red(rgb));
+            int g = scale(green(rgb));
+            int b = scale(blue(rgb));
+            int cube = 16 + r * 36 + g * 6 + b;
+            int cubeDistance = distance(rgb, LEVELS[r], LEVELS[g], LEVELS[b]);
+
+            // the gray ramp goes from 8 to 238 by 10
+            int average = (red(rgb) + green(rgb) + blue(rgb)) / 3;
+            int gray = Math.max(0, Math.min(23, Math.round((average - 8) / 10f)));
+            int grayValue = 8 + gray * 10;
+            if (distance(rgb, grayValue, grayValue, grayValue) < cubeDistance) {
+                return 232 + gray;
+            }
+            return cube;
+        }
+
+        // squared distance, good enough to find the nearest color
+        static int distance(int rgb, int red, int green, int blue) {
+            int r = red(rgb) - red;
+            int g = green(rgb) - green;
+            int b = blue(rgb) - blue;
+            return r * r + g * g + b * b;
+        }
+
+        static int red(int rgb) {
+            return (rgb >> 16) & 0xFF;
+        }
+
+        static int green(int rgb) {
+            return (rgb >> 8) & 0xFF;
+        }
+
+        static int blue(int rgb) {
+            return rgb & 0xFF;
+        }
+
+        @Override
+        public String foreground(int rgb) {
+            return TerminalEncoder.TerminalString.START_COLOR + index(rgb) + TerminalEncoder.TerminalString.END;
+        }
+
+        @Override
+        public boolean isColored() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "256";
+        }
+    }
+
+    class Ansi16 implements ColorProfile {
+
+        // the xterm defaults
+        private static final int[][] PALETTE = {
+                {0, 0, 0}, {205, 0, 0}, {0, 205, 0}, {205, 205, 0},
+                {0, 0, 238}, {205, 0, 205}, {0, 205, 205}, {229, 229, 229},
+                {127, 127, 127}, {255, 0, 0}, {0, 255, 0}, {255, 255, 0},
+                {92, 92, 255}, {255, 0, 255}, {0, 255, 255}, {255, 255, 255}};
+
+        /**
+         * @return the nearest color of the palette, from 0 to 15
+         */
+        public static int index(int rgb) {
+            int nearest = 0;
+            int nearestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < PALETTE.length; i++) {
+                int distance = Xterm256.distance(rgb, PALETTE[i][0], PALETTE[i][1], PALETTE[i][2]);
+                if (distance < nearestDistance) {
+                    nearest = i;
+                    nearestDistance = distance;
+                }
+            }
+            return nearest;
+        }
+
+        @Override
+        public String foreground(int rgb) {
+            int index = index(rgb);
+            return "\u001B[" + (index < 8 ? 30 + index : 90 + index - 8) + "m";
+        }
+
+        @Override
+        public boolean isColored() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "16";
+        }
+    }
+
+    class None implements ColorProfile {
+
+        @Override
+        public String foreground(int rgb) {
+            return null;
+        }
+
+        @Override
+        public boolean isColored() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "none";
+        }
+    }
+
+    class Factory {
+
+        private Factory() {
+        }
+
+        /**
+         * @param name truecolor (or 24bit), 256, 16 or none, case does not matter
+         * @return the profile, null if the name is not known
+         */
+        public static ColorProfile byName(String name) {
+            switch (name.toLowerCase(Locale.ENGLISH)) {
+                case "truecolor":
+                case "24bit":
+                    return TRUECOLOR;
+                case "256":
+                    return XTERM_256;
+                case "16":
+                    return ANSI_16;
+                case "none":
+                    return NONE;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * The profile of the terminal the process writes to: none when the output
+         * is piped, NO_COLOR is set or TERM is dumb, truecolor when COLORTERM says so,
+         * 16 colors when TERM is a basic console, 256 colors otherwise.
+         */
+        public static ColorProfile detect() {
+            return detect(System.getenv(), System.console() != null);
+        }
+
+        static ColorProfile detect(Map<String, String> env, boolean terminal) {
+            String term = env.get("TERM");
+            if (!terminal || env.containsKey("NO_COLOR") || "dumb".equals(term)) {
+                return NONE;
+            }
+            String colorTerm = env.get("COLORTERM");
+            if ("truecolor".equals(colorTerm) || "24bit".equals(colorTerm)) {
+                return TRUECOLOR;
+            }
+            if ("linux".equals(term) || "vt100".equals(term) || "ansi".equals(term)) {
+                return ANSI_16;
+            }
+            return XTERM_256;
+        }
+    }
+}
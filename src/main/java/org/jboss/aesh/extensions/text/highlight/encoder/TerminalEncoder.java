@@ -20,31 +20,246 @@
 package org.jboss.aesh.extensions.text.highlight.encoder;
 
 import java.awt.Color;
+import java.io.Flushable;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.aesh.extensions.text.highlight.Encoder;
 import org.jboss.aesh.extensions.text.highlight.Theme;
 import org.jboss.aesh.extensions.text.highlight.TokenType;
 
-public class TerminalEncoder extends Encoder.AbstractEncoder implements Encoder {
+/**
+ * Writes the tokens with ANSI colors.
+ *
+ * The escape sequence of every token type is computed once, when the encoder
+ * is created with its theme. Text is encoded straight into a byte buffer, by
+ * hand for UTF-8, and a color is only set when it changes: tokens of the same
+ * color, and the blanks between them, share one escape sequence and one reset.
+ *
+ * Output is buffered: until {@link #flush()} is called, which writes it and
+ * resets the colors, only what overflowed the buffer reaches the output stream.
+ * {@link org.jboss.aesh.extensions.text.highlight.Syntax.Builder} flushes when done,
+ * code creating a TerminalEncoder itself has to call {@link #flush()} at the end.
+ */
+public class TerminalEncoder extends Encoder.AbstractEncoder implements Encoder.RegionEncoder, Flushable {
+
+    /**
+     * Option for the charset of the output, a {@link Charset} or its name. The default charset by default.
+     */
+    public static final String OPTION_CHARSET = "charset";
+
+    /**
+     * Option for the colors of the output, a {@link ColorProfile} or its name. 256 colors by default.
+     */
+    public static final String OPTION_COLOR_PROFILE = "colors";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] RESET = TerminalString.RESET.getBytes(StandardCharsets.US_ASCII);
+    private static final ConcurrentMap<ColorProfile, ConcurrentMap<Integer, byte[]>> ESCAPES = new ConcurrentHashMap<>();
+
+    private final byte[][] escapes = new byte[TokenType.values().length][];
+    // bold, italic or underlined, blanks are not written in such a style
+    private final boolean[] decorated = new boolean[TokenType.values().length];
+    private final boolean colored;
+    private final Charset charset;
+    private final boolean utf8;
+    private final boolean asciiCompatible;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int length;
+    // the escape sequence in effect, null when reset
+    private byte[] current;
+    private boolean currentDecorated;
 
     public TerminalEncoder(OutputStream out, Theme theme, Map<String, Object> options) {
         super(out, theme, options);
-        write(TerminalString.RESET); // reset terminal colors
+        ColorProfile profile = profileOf(options);
+        colored = profile.isColored();
+        if (colored) {
+            for (TokenType type : TokenType.values()) {
+                escapes[type.ordinal()] = escape(profile, style(type));
+                decorated[type.ordinal()] = (style(type) & (Theme.BOLD | Theme.ITALIC | Theme.UNDERLINE)) != 0;
+            }
+        }
+        charset = charsetOf(options);
+        utf8 = StandardCharsets.UTF_8.equals(charset);
+        asciiCompatible = utf8 || isAsciiCompatible(charset);
+        if (colored) {
+            put(RESET); // reset terminal colors
+        }
+    }
+
+    private static ColorProfile profileOf(Map<String, Object> options) {
+        Object profile = options == null ? null : options.get(OPTION_COLOR_PROFILE);
+        if (profile instanceof ColorProfile) {
+            return (ColorProfile) profile;
+        }
+        if (profile != null) {
+            ColorProfile named = ColorProfile.Factory.byName(profile.toString());
+            if (named == null) {
+                throw new IllegalArgumentException("Unknown color profile " + profile);
+            }
+            return named;
+        }
+        return ColorProfile.XTERM_256;
+    }
+
+    private static Charset charsetOf(Map<String, Object> options) {
+        Object charset = options == null ? null : options.get(OPTION_CHARSET);
+        if (charset instanceof Charset) {
+            return (Charset) charset;
+        }
+        if (charset != null) {
+            return Charset.forName(charset.toString());
+        }
+        return Charset.defaultCharset();
+    }
+
+    private static byte[] escape(ColorProfile profile, int style) {
+        ConcurrentMap<Integer, byte[]> escapes = ESCAPES.get(profile);
+        if (escapes == null) {
+            ESCAPES.putIfAbsent(profile, new ConcurrentHashMap<Integer, byte[]>());
+            escapes = ESCAPES.get(profile);
+        }
+        byte[] escape = escapes.get(style);
+        if (escape == null) {
+            String start = TerminalString.start(profile, style);
+            if (start == null) {
+                return null;
+            }
+            escape = start.getBytes(StandardCharsets.US_ASCII);
+            escapes.put(style, escape);
+        }
+        return escape;
     }
 
     @Override
     public void textToken(String text, TokenType type) {
-        Color color = color(type);
-        if (color != null) {
-            write(TerminalString.of(color, text));
+        textToken(text, 0, text.length(), type);
+    }
+
+    @Override
+    public void textToken(CharSequence source, int start, int end, TokenType type) {
+        byte[] escape = escapes[type.ordinal()];
+        if (escape != current) {
+            // blanks look the same in any foreground color, not underlined
+            if (escape != null || current == null || currentDecorated || !isBlank(source, start, end)) {
+                if (current != null) {
+                    put(RESET);
+                }
+                if (escape != null) {
+                    put(escape);
+                }
+                current = escape;
+                currentDecorated = decorated[type.ordinal()];
+            }
+        }
+        putText(source, start, end);
+    }
+
+    private static boolean isBlank(CharSequence source, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c != ' ' && c != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(byte[] bytes) {
+        if (length + bytes.length > buffer.length) {
+            drain();
+        }
+        if (bytes.length > buffer.length) {
+            write(bytes);
         }
         else {
-            write(text);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+    }
+
+    private void putText(CharSequence text, int start, int end) {
+        byte[] buffer = this.buffer;
+        int i = start;
+        while (i < end) {
+            // room for the longest UTF-8 sequence
+            if (length > buffer.length - 4) {
+                drain();
+            }
+            char c = text.charAt(i++);
+            if (c < 0x80 && asciiCompatible) {
+                buffer[length++] = (byte) c;
+            }
+            else if (!utf8) {
+                int from = i - 1;
+                while (i < end && (text.charAt(i) >= 0x80 || !asciiCompatible)) {
+                    i++;
+                }
+                put(text.subSequence(from, i).toString().getBytes(charset));
+            }
+            else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(text.charAt(i))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(i++));
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                // unpaired, as String.getBytes() does
+                buffer[length++] = '?';
+            }
+            else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
         }
     }
 
+    private static boolean isAsciiCompatible(Charset charset) {
+        byte[] ascii = new byte[0x80];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        return Arrays.equals(ascii, new String(ascii, StandardCharsets.US_ASCII).getBytes(charset));
+    }
+
+    private void drain() {
+        if (length > 0) {
+            try {
+                out.write(buffer, 0, length);
+            }
+            catch (IOException e) {
+                throw new RuntimeException("Could not write to output", e);
+            }
+            length = 0;
+        }
+    }
+
+    /**
+     * Reset the colors and write what is buffered, the output stream is not flushed
+     */
+    @Override
+    public void flush() {
+        if (current != null) {
+            put(RESET);
+            current = null;
+        }
+        drain();
+    }
+
     @Override
     public void beginGroup(TokenType type) {
     }
@@ -77,21 +292,49 @@ public class TerminalEncoder extends Encoder.AbstractEncoder implements Encoder
             return sb.toString();
         }
 
+        /**
+         * @return the nearest color of the xterm 256 color palette
+         */
         public static String from(Color color) {
-            return String.valueOf(
-                    rgbToAnsi(
-                            color.getRed(),
-                            color.getGreen(),
-                            color.getBlue())
-            );
+            return String.valueOf(ColorProfile.Xterm256.index(color.getRGB() & Theme.RGB));
         }
 
-        private static int rgbToAnsi(int red, int green, int blue) {
-            return 16 + (getAnsiScale(red) * 36) + (getAnsiScale(green) * 6) + getAnsiScale(blue);
+        /**
+         * @param style a packed {@link Theme} style
+         * @return the escape sequence setting the style, null when there is nothing to set
+         */
+        public static String start(ColorProfile profile, int style) {
+            if (style == 0 || !profile.isColored()) {
+                return null;
+            }
+            StringBuilder sb = new StringBuilder();
+            if ((style & (Theme.BOLD | Theme.ITALIC | Theme.UNDERLINE)) != 0) {
+                sb.append("\u001B[");
+                if ((style & Theme.BOLD) != 0) {
+                    sb.append("1;");
+                }
+                if ((style & Theme.ITALIC) != 0) {
+                    sb.append("3;");
+                }
+                if ((style & Theme.UNDERLINE) != 0) {
+                    sb.append("4;");
+                }
+                sb.setCharAt(sb.length() - 1, 'm');
+            }
+            if ((style & Theme.COLOR) != 0) {
+                String foreground = profile.foreground(style & Theme.RGB);
+                if (foreground != null) {
+                    sb.append(foreground);
+                }
+            }
+            return sb.length() == 0 ? null : sb.toString();
         }
 
+        /**
+         * @return the nearest value of the xterm color cube, from 0 to 5
+         */
         public static int getAnsiScale(int color) {
-            return Math.round(color / (255 / 5));
+            return ColorProfile.Xterm256.scale(color);
         }
     }
 }
\ No newline at end of file
@@ -110,7 +110,7 @@ public class CSSScanner implements Scanner {
 
     public static final String OPTION_START_STATE = "state";
 
-    public static final Type TYPE = new Type("CSS", "\\.(css)$");
+    public static final Type TYPE = Type.ofExtensions("CSS", "css");
 
     @Override
     public Type getType() {
@@ -132,22 +132,22 @@ public class CSSScanner implements Scanner {
             MatchResult m = null;
 
             if ((m = source.scan(SPACE)) != null) {
-                encoder.textToken(m.group(), TokenType.space);
+                source.token(encoder, m, TokenType.space);
             }
             else if (media_blocks(source, encoder, value_expected, state)) {
 
             }
             else if ((m = source.scan(COMMENT)) != null) {
-                encoder.textToken(m.group(), TokenType.comment);
+                source.token(encoder, m, TokenType.comment);
             }
             else if ((m = source.scan(BRACKET_OPEN)) != null) {
                 value_expected = false;
-                encoder.textToken(m.group(), TokenType.operator);
+                source.token(encoder, m, TokenType.operator);
                 state.push(State.block);
             }
             else if ((m = source.scan(BRACKET_CLOSE)) != null) {
                 value_expected = false;
-                encoder.textToken(m.group(), TokenType.operator);
+                source.token(encoder, m, TokenType.operator);
                 if (state.peek() == State.block || state.peek() == State.media) {
                     state.pop();
                 }
@@ -181,19 +181,19 @@ public class CSSScanner implements Scanner {
                 encoder.endGroup(TokenType.function);
             }
             else if ((m = source.scan(FLOAT)) != null) {
-                encoder.textToken(m.group(), TokenType.float_);
+                source.token(encoder, m, TokenType.float_);
             }
             else if ((m = source.scan(HEX_COLOR)) != null) {
-                encoder.textToken(m.group(), TokenType.color);
+                source.token(encoder, m, TokenType.color);
             }
             else if ((m = source.scan(IMPORTANT)) != null) {
-                encoder.textToken(m.group(), TokenType.important);
+                source.token(encoder, m, TokenType.important);
             }
             else if ((m = source.scan(COLOR)) != null) {
-                encoder.textToken(m.group(), TokenType.color);
+                source.token(encoder, m, TokenType.color);
             }
             else if ((m = source.scan(AT_KEYWORD)) != null) {
-                encoder.textToken(m.group(), TokenType.directive);
+                source.token(encoder, m, TokenType.directive);
             }
             else if ((m = source.scan(OPERATOR)) != null) {
                 if (":".equals(m.group())) {
@@ -202,7 +202,7 @@ public class CSSScanner implements Scanner {
                 else if (";".equals(m.group())) {
                     value_expected = false;
                 }
-                encoder.textToken(m.group(), TokenType.operator);
+                source.token(encoder, m, TokenType.operator);
             }
             else {
                 encoder.textToken(source.next(), TokenType.error);
@@ -217,19 +217,19 @@ public class CSSScanner implements Scanner {
             case initial:
             case media:
                 if ((m = source.scan(TAG)) != null) {
-                    encoder.textToken(m.group(), TokenType.tag);
+                    source.token(encoder, m, TokenType.tag);
                     return true;
                 }
                 else if ((m = source.scan(Class)) != null) {
-                    encoder.textToken(m.group(), TokenType.class_);
+                    source.token(encoder, m, TokenType.class_);
                     return true;
                 }
                 else if ((m = source.scan(ID)) != null) {
-                    encoder.textToken(m.group(), TokenType.id);
+                    source.token(encoder, m, TokenType.id);
                     return true;
                 }
                 else if ((m = source.scan(PSEUDO_CLASS)) != null) {
-                    encoder.textToken(m.group(), TokenType.pseudo_class);
+                    source.token(encoder, m, TokenType.pseudo_class);
                     return true;
                 }
                 else if ((m = source.scan(ATTRIBUTE_SELECTOR)) != null) {
@@ -243,7 +243,7 @@ public class CSSScanner implements Scanner {
                     return true;
                 }
                 else if ((m = source.scan(MEDIA)) != null) {
-                    encoder.textToken(m.group(), TokenType.directive);
+                    source.token(encoder, m, TokenType.directive);
                     state.push(State.media_before_name);
                     return true;
                 }
@@ -252,10 +252,10 @@ public class CSSScanner implements Scanner {
             case block:
                 if ((m = source.scan(KEY_VALUE)) != null) {
                     if (value_expected) {
-                        encoder.textToken(m.group(), TokenType.value);
+                        source.token(encoder, m, TokenType.value);
                     }
                     else {
-                        encoder.textToken(m.group(), TokenType.key);
+                        source.token(encoder, m, TokenType.key);
                     }
                     return true;
                 }
@@ -263,7 +263,7 @@ public class CSSScanner implements Scanner {
 
             case media_before_name:
                 if ((m = source.scan(IDENT)) != null) {
-                    encoder.textToken(m.group(), TokenType.type);
+                    source.token(encoder, m, TokenType.type);
                     state.pop();
                     state.push(State.media_after_name);
                     return true;
@@ -272,7 +272,7 @@ public class CSSScanner implements Scanner {
 
             case media_after_name:
                 if ((m = source.scan(BRACKET_OPEN)) != null) {
-                    encoder.textToken(m.group(), TokenType.operator);
+                    source.token(encoder, m, TokenType.operator);
                     state.pop();
                     state.push(State.media);
                     return true;
@@ -19,6 +19,7 @@
  */
 package org.jboss.aesh.extensions.text.highlight.scanner;
 
+import org.jboss.aesh.extensions.text.highlight.CompiledWordList;
 import org.jboss.aesh.extensions.text.highlight.Encoder;
 import org.jboss.aesh.extensions.text.highlight.Scanner;
 import org.jboss.aesh.extensions.text.highlight.StringScanner;
@@ -41,10 +42,10 @@ public class GroovyScanner implements Scanner {
             "as", "assert", "def", "in"};
 
 
-    private static final WordList<Boolean> KEYWORDS_EXPECTING_VALUE = new WordList<Boolean>(false)
+    private static final CompiledWordList<Boolean> KEYWORDS_EXPECTING_VALUE = new WordList<Boolean>(false)
             .add(new String[]{
                     "case", "instanceof", "new", "return", "throw", "typeof", "while", "as", "assert", "in"
-            }, true);
+            }, true).compile();
 
     private static final String[] GROOVY_MAGIC_VARIABLES = new String[]{"it"};
 
@@ -52,6 +53,8 @@ public class GroovyScanner implements Scanner {
             .add(GROOVY_KEYWORDS, TokenType.keyword)
             .add(GROOVY_MAGIC_VARIABLES, TokenType.local_variable);
 
+    private static final CompiledWordList<TokenType> IDENT_KINDS = IDENT_KIND.compile();
+
     private static final Pattern ESCAPE = Pattern.compile(" [bfnrtv$\\n\\\\'\"] | x[a-fA-F0-9]{1,2} | [0-7]{1,3} ", Pattern.COMMENTS);
     private static final Pattern UNICODE_ESCAPE = Pattern.compile(" u[a-fA-F0-9]{4} ", Pattern.COMMENTS);
     private static final Pattern REGEXP_ESCAPE = Pattern.compile(" [bfnrtv\\n\\\\'\"] | x[a-fA-F0-9]{1,2} | [0-7]{1,3} | \\d | [bBdDsSwW\\/] ", Pattern.COMMENTS);
@@ -106,7 +109,7 @@ public class GroovyScanner implements Scanner {
 
     public static final String OPTION_START_STATE = "state";
 
-    public static final Type TYPE = new Type("GROOVY", "\\.(groovy|gvy|gradle)$");
+    public static final Type TYPE = Type.ofExtensions("GROOVY", "groovy", "gvy", "gradle");
 
     @Override
     public Type getType() {
@@ -123,7 +126,8 @@ public class GroovyScanner implements Scanner {
         Stack<Object[]> inlineBlockStack = new Stack<Object[]>();
         int inlineBlockParenDepth = 0;
         String stringDelimiter = null;
-        String last_token = null;
+        boolean last_token_dot = false;
+        boolean last_token_question = false;
         boolean import_clause = false;
         boolean class_name_follows = false;
         boolean after_def = false;
@@ -137,7 +141,7 @@ public class GroovyScanner implements Scanner {
                 case initial:
 
                     if ((m = source.scan(SPACE)) != null) {
-                        encoder.textToken(m.group(), TokenType.space);
+                        source.token(encoder, m, TokenType.space);
                         if (m.group().indexOf("\n") != -1) {
                             import_clause = after_def = false;
                             if (!value_expected) {
@@ -149,19 +153,19 @@ public class GroovyScanner implements Scanner {
                     else if ((m = source.scan(COMMENT)) != null) {
                         value_expected = true;
                         after_def = false;
-                        encoder.textToken(m.group(), TokenType.comment);
+                        source.token(encoder, m, TokenType.comment);
                     }
                     else if ((m = source.scan(DOCTYPE)) != null) {
-                        encoder.textToken(m.group(), TokenType.doctype);
+                        source.token(encoder, m, TokenType.doctype);
                     }
                     else if (import_clause && (m = source.scan(INCLUDE)) != null) {
                         after_def = value_expected = false;
-                        encoder.textToken(m.group(), TokenType.include);
+                        source.token(encoder, m, TokenType.include);
                     }
                     else if ((m = source.scan(IDENT)) != null) {
-                        kind = IDENT_KIND.lookup(m.group());
-                        value_expected = (kind == TokenType.keyword) && KEYWORDS_EXPECTING_VALUE.lookup(m.group());
-                        if (".".equals(last_token)) {
+                        kind = source.lookup(IDENT_KINDS, m);
+                        value_expected = (kind == TokenType.keyword) && source.lookup(KEYWORDS_EXPECTING_VALUE, m);
+                        if (last_token_dot) {
                             kind = TokenType.ident;
                         }
                         else if (class_name_follows) {
@@ -172,7 +176,7 @@ public class GroovyScanner implements Scanner {
                             kind = TokenType.method;
                             after_def = false;
                         }
-                        else if (kind == TokenType.ident && !"?".equals(last_token) && source.check(":") != null) {
+                        else if (kind == TokenType.ident && !last_token_question && source.check(":") != null) {
                             kind = TokenType.key;
                         }
                         else {
@@ -184,17 +188,17 @@ public class GroovyScanner implements Scanner {
                                 after_def = true;
                             }
                         }
-                        encoder.textToken(m.group(), kind);
+                        source.token(encoder, m, kind);
                     }
                     else if ((m = source.scan(SEMI_COLON)) != null) {
                         import_clause = after_def = false;
                         value_expected = true;
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     }
                     else if ((m = source.scan(START_BRACKET)) != null) {
                         class_name_follows = after_def = false;
                         value_expected = true;
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                         if (!inlineBlockStack.isEmpty()) {
                             inlineBlockParenDepth += 1;
                         }
@@ -204,7 +208,7 @@ public class GroovyScanner implements Scanner {
                         //value_expected = :regexp if match == '~';
                         after_def = false;
 
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     }
                     else if ((m = source.scan(END_BRACKET)) != null) {
                         value_expected = after_def = false;
@@ -212,7 +216,7 @@ public class GroovyScanner implements Scanner {
                             inlineBlockParenDepth -= 1;
                             if (inlineBlockParenDepth == 0) // # closing brace of inline block reached
                             {
-                                encoder.textToken(m.group(), TokenType.inline_delimiter);
+                                source.token(encoder, m, TokenType.inline_delimiter);
                                 encoder.endGroup(TokenType.inline);
                                 Object[] inlineBlock = inlineBlockStack.pop();
                                 state = (State) inlineBlock[0];
@@ -221,21 +225,21 @@ public class GroovyScanner implements Scanner {
                                 continue;
                             }
                         }
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     }
                     else if (source.check(NUMBER) != null) {
                         after_def = value_expected = false;
                         if ((m = source.scan(HEX)) != null) {
-                            encoder.textToken(m.group(), TokenType.hex);
+                            source.token(encoder, m, TokenType.hex);
                         }
                         else if ((m = source.scan(OCTAL)) != null) {
-                            encoder.textToken(m.group(), TokenType.octal);
+                            source.token(encoder, m, TokenType.octal);
                         }
                         else if ((m = source.scan(FLOAT)) != null) {
-                            encoder.textToken(m.group(), TokenType.float_);
+                            source.token(encoder, m, TokenType.float_);
                         }
                         else if ((m = source.scan(INTEGER)) != null) {
-                            encoder.textToken(m.group(), TokenType.integer);
+                            source.token(encoder, m, TokenType.integer);
                         }
                     }
                     else if ((m = source.scan(MULTI_LINE_DELIMITER)) != null) {
@@ -243,30 +247,30 @@ public class GroovyScanner implements Scanner {
                         state = State.multiline_string;
                         encoder.beginGroup(TokenType.string);
                         stringDelimiter = m.group();
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                     }
                     else if ((m = source.scan(STRING_DELIMITER)) != null) {
                         after_def = value_expected = false;
                         state = m.group().equals("/") ? State.regexp : State.string;
                         encoder.beginGroup(TokenType.valueOf(state.name()));
                         stringDelimiter = m.group();
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                     }
                     else if (value_expected && (m = source.scan(START_REGEXP)) != null) {
                         after_def = value_expected = false;
                         encoder.beginGroup(TokenType.regexp);
                         state = State.regexp;
                         stringDelimiter = "/";
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                     }
                     else if ((m = source.scan(ANNOTATION)) != null) {
                         after_def = value_expected = false;
-                        encoder.textToken(m.group(), TokenType.annotation);
+                        source.token(encoder, m, TokenType.annotation);
                     }
                     else if ((m = source.scan(END_OPERATOR)) != null) {
                         after_def = false;
                         value_expected = true;
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     }
                     else {
                         encoder.textToken(source.next(), TokenType.error);
@@ -278,10 +282,10 @@ public class GroovyScanner implements Scanner {
                 case multiline_string:
 
                     if ((m = source.scan(STRING_CONTENT_PATTERN.get(stringDelimiter))) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     }
                     else if ((m = source.scan(state == State.multiline_string ? "'''|\"\"\"" : "[\"'\\/]")) != null) {
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                         if (state == State.regexp) {
                             MatchResult modifiers = source.scan("[ix]+");
                             if (modifiers != null && !modifiers.group().equals("")) {
@@ -299,38 +303,38 @@ public class GroovyScanner implements Scanner {
                     }
                     else if ((state == State.string || state == State.multiline_string) && (m = source.scan(CONTENT)) != null) {
                         if (stringDelimiter.charAt(0) == '\'' && !(m.group().equals("\\\\") || m.group().equals("\\'"))) {
-                            encoder.textToken(m.group(), TokenType.content);
+                            source.token(encoder, m, TokenType.content);
                         }
                         else {
-                            encoder.textToken(m.group(), TokenType.char_);
+                            source.token(encoder, m, TokenType.char_);
                         }
                     }
                     else if (state == State.regexp && (m = source.scan(REGEXP_CONTENT)) != null) {
-                        encoder.textToken(m.group(), TokenType.char_);
+                        source.token(encoder, m, TokenType.char_);
                     }
                     else if ((m = source.scan(INLINE_IDENT)) != null) {
                         encoder.beginGroup(TokenType.inline);
                         encoder.textToken("$", TokenType.inline_delimiter);
                         String ident = m.group().substring(1);
-                        encoder.textToken(ident, IDENT_KIND.lookup(ident));
+                        encoder.textToken(ident, IDENT_KINDS.lookup(ident));
                         encoder.endGroup(TokenType.inline);
                     }
                     else if ((m = source.scan(INLINE_DELIMITER)) != null) {
                         encoder.beginGroup(TokenType.inline);
-                        encoder.textToken(m.group(), TokenType.inline_delimiter);
+                        source.token(encoder, m, TokenType.inline_delimiter);
                         inlineBlockStack.push(new Object[]{state, stringDelimiter, inlineBlockParenDepth});
                         inlineBlockParenDepth = 1;
                         state = State.initial;
                     }
                     else if ((m = source.scan(CONTENT_2)) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     }
                     else if ((m = source.scan(CONTENT_3)) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     }
                     else if ((m = source.scan(END_NEWLINE)) != null) {
                         encoder.endGroup(state == State.regexp ? TokenType.regexp : TokenType.string);
-                        encoder.textToken(m.group(), TokenType.error);
+                        source.token(encoder, m, TokenType.error);
                         after_def = value_expected = false;
                         state = State.initial;
                     }
@@ -342,7 +346,8 @@ public class GroovyScanner implements Scanner {
                     throw new RuntimeException("Unknown state " + state);
             }
             if (kind != TokenType.space && kind != TokenType.comment && kind != TokenType.doctype) {
-                last_token = m == null ? null : m.group();
+                last_token_dot = source.is(m, '.');
+                last_token_question = source.is(m, '?');
             }
         }
         if (state == State.multiline_string || state == State.string || state == State.regexp) {
@@ -19,6 +19,7 @@
  */
 package org.jboss.aesh.extensions.text.highlight.scanner;
 
+import org.jboss.aesh.extensions.text.highlight.CompiledWordList;
 import org.jboss.aesh.extensions.text.highlight.Encoder;
 import org.jboss.aesh.extensions.text.highlight.Options;
 import org.jboss.aesh.extensions.text.highlight.Scanner;
@@ -102,7 +103,9 @@ public class HTMLScanner implements Scanner {
             .add(EVENT_ATTRIBUTES, EmbeddedType.script)
             .add(new String[]{"style"}, EmbeddedType.style);
 
-    public static final Type TYPE = new Type("HTML", "\\.(html|htm|xhtml)$");
+    private static final CompiledWordList<EmbeddedType> IN_ATTRIBUTES = IN_ATTRIBUTE.compile();
+
+    public static final Type TYPE = Type.ofExtensions("HTML", "html", "htm", "xhtml");
 
     @Override
     public Type getType() {
@@ -120,7 +123,7 @@ public class HTMLScanner implements Scanner {
             MatchResult m = null;
 
             if (state != State.in_special_tag && (m = source.scan(SPACE)) != null) {
-                encoder.textToken(m.group(), TokenType.space);
+                source.token(encoder, m, TokenType.space);
             }
             else {
 
@@ -128,33 +131,33 @@ public class HTMLScanner implements Scanner {
                     case initial:
 
                         if ((m = source.scan(CDATA_START)) != null) {
-                            encoder.textToken(m.group(), TokenType.inline_delimiter);
+                            source.token(encoder, m, TokenType.inline_delimiter);
                             if ((m = source.scan(CDATA_END)) != null) {
                                 encoder.textToken(m.group().substring(0, m.group().length() - 3), TokenType.plain);
                                 encoder.textToken("]]>", TokenType.inline_delimiter);
                             }
                             else if ((m = source.scan(CDATA_ERROR)) != null) {
-                                encoder.textToken(m.group(), TokenType.error);
+                                source.token(encoder, m, TokenType.error);
                             }
                         }
                         else if ((m = source.scan(COMMENT)) != null) {
-                            encoder.textToken(m.group(), TokenType.comment);
+                            source.token(encoder, m, TokenType.comment);
                         }
                         else if ((m = source.scan(DOCTYPE)) != null) {
-                            encoder.textToken(m.group(), TokenType.doctype);
+                            source.token(encoder, m, TokenType.doctype);
                         }
                         else if ((m = source.scan(PRE_PROCESSOR)) != null) {
-                            encoder.textToken(m.group(), TokenType.preprocessor);
+                            source.token(encoder, m, TokenType.preprocessor);
                         }
                         else if ((m = source.scan(COMMENT2)) != null) {
-                            encoder.textToken(m.group(), TokenType.comment);
+                            source.token(encoder, m, TokenType.comment);
                         }
                         else if ((m = source.scan(TAG)) != null) {
                             in_tag = null;
-                            encoder.textToken(m.group(), TokenType.tag);
+                            source.token(encoder, m, TokenType.tag);
                         }
                         else if ((m = source.scan(SPECIAL_TAG)) != null) {
-                            encoder.textToken(m.group(), TokenType.tag);
+                            source.token(encoder, m, TokenType.tag);
                             in_tag = m.group(1);
                             if (m.group(2) != null) {
                                 if (in_tag != null) {
@@ -166,14 +169,14 @@ public class HTMLScanner implements Scanner {
                             }
                         }
                         else if ((m = source.scan(PLAIN)) != null) {
-                            encoder.textToken(m.group(), TokenType.plain);
+                            source.token(encoder, m, TokenType.plain);
                         }
                         else if ((m = source.scan(ENTITY)) != null) {
-                            encoder.textToken(m.group(), TokenType.entity);
+                            source.token(encoder, m, TokenType.entity);
                         }
                         else if ((m = source.scan(ERROR)) != null) {
                             in_tag = null;
-                            encoder.textToken(m.group(), TokenType.error);
+                            source.token(encoder, m, TokenType.error);
                         }
                         else {
                             throw new RuntimeException("[BUG] else-case reached with state " + state + " in " + getClass());
@@ -183,7 +186,7 @@ public class HTMLScanner implements Scanner {
                     case attribute:
 
                         if ((m = source.scan(TAG_END)) != null) {
-                            encoder.textToken(m.group(), TokenType.tag);
+                            source.token(encoder, m, TokenType.tag);
                             in_attribute = null;
                             if (in_tag != null) {
                                 state = State.in_special_tag;
@@ -193,8 +196,8 @@ public class HTMLScanner implements Scanner {
                             }
                         }
                         else if ((m = source.scan(ATTR_NAME)) != null) {
-                            in_attribute = IN_ATTRIBUTE.lookup(m.group());
-                            encoder.textToken(m.group(), TokenType.attribute_name);
+                            in_attribute = source.lookup(IN_ATTRIBUTES, m);
+                            source.token(encoder, m, TokenType.attribute_name);
                             state = State.attribute_equal;
                         }
                         else {
@@ -206,7 +209,7 @@ public class HTMLScanner implements Scanner {
                     case attribute_equal:
 
                         if ((m = source.scan(EQUAL)) != null) {
-                            encoder.textToken(m.group(), TokenType.operator);
+                            source.token(encoder, m, TokenType.operator);
                             state = State.attribute_value;
                         }
                         else {
@@ -216,17 +219,17 @@ public class HTMLScanner implements Scanner {
 
                     case attribute_value:
                         if ((m = source.scan(ATTR_NAME)) != null) {
-                            encoder.textToken(m.group(), TokenType.attribute_value);
+                            source.token(encoder, m, TokenType.attribute_value);
                             state = State.attribute;
                         }
                         else if ((m = source.scan(QUOTE)) != null) {
                             if (EmbeddedType.script == in_attribute || EmbeddedType.style == in_attribute) {
                                 encoder.beginGroup(TokenType.string);
-                                encoder.textToken(m.group(), TokenType.delimiter);
+                                source.token(encoder, m, TokenType.delimiter);
                                 String groupStart = m.group();
 
                                 if ((m = source.scan(JAVASCRIPT_INLINE)) != null) {
-                                    encoder.textToken(m.group(), TokenType.comment);
+                                    source.token(encoder, m, TokenType.comment);
                                 }
                                 String code = source.scanUntil(Pattern.compile("(?=" + groupStart + "|\\z)")).group();
                                 if (EmbeddedType.script == in_attribute) {
@@ -247,7 +250,7 @@ public class HTMLScanner implements Scanner {
                                 }
                                 m = source.scan(QUOTE);
                                 if (m != null) {
-                                    encoder.textToken(m.group(), TokenType.delimiter);
+                                    source.token(encoder, m, TokenType.delimiter);
                                 }
                                 encoder.endGroup(TokenType.string);
                                 state = State.attribute;
@@ -257,11 +260,11 @@ public class HTMLScanner implements Scanner {
                                 encoder.beginGroup(TokenType.string);
                                 state = State.attribute_value_string;
                                 plain_string_content = PLAIN_STRING_CONTENT.get(m.group());
-                                encoder.textToken(m.group(), TokenType.delimiter);
+                                source.token(encoder, m, TokenType.delimiter);
                             }
                         }
                         else if ((m = source.scan(TAG_END)) != null) {
-                            encoder.textToken(m.group(), TokenType.tag);
+                            source.token(encoder, m, TokenType.tag);
                             state = State.initial;
                         }
                         else {
@@ -271,23 +274,23 @@ public class HTMLScanner implements Scanner {
                     case attribute_value_string:
 
                         if ((m = source.scan(plain_string_content)) != null) {
-                            encoder.textToken(m.group(), TokenType.content);
+                            source.token(encoder, m, TokenType.content);
                         }
                         else if ((m = source.scan(QUOTE)) != null) {
-                            encoder.textToken(m.group(), TokenType.delimiter);
+                            source.token(encoder, m, TokenType.delimiter);
                             encoder.endGroup(TokenType.string);
                             state = State.attribute;
                         }
                         else if ((m = source.scan(ENTITY)) != null) {
-                            encoder.textToken(m.group(), TokenType.entity);
+                            source.token(encoder, m, TokenType.entity);
                         }
                         else if ((m = source.scan(AMP)) != null) {
-                            encoder.textToken(m.group(), TokenType.content);
+                            source.token(encoder, m, TokenType.content);
                         }
                         else if ((m = source.scan(END)) != null) {
                             encoder.endGroup(TokenType.string);
                             state = State.initial;
-                            encoder.textToken(m.group(), TokenType.error);
+                            source.token(encoder, m, TokenType.error);
                         }
                         break;
                     case in_special_tag:
@@ -296,7 +299,7 @@ public class HTMLScanner implements Scanner {
                             String code = null;
                             String closing = null;
                             if ((m = source.scan(SPECIAL_SPACE)) != null) {
-                                encoder.textToken(m.group(), TokenType.space);
+                                source.token(encoder, m, TokenType.space);
                             }
                             if ((m = source.scan(SPECIAL_COMMENT)) != null) {
                                 code = m.group(2);
@@ -304,7 +307,7 @@ public class HTMLScanner implements Scanner {
                                     code = m.group(4);
                                 }
                                 closing = m.group(3);
-                                encoder.textToken(m.group(1), TokenType.comment);
+                                source.token(encoder, m, 1, TokenType.comment);
                             }
                             else {
                                 code = source.scanUntil("(?=(?:\\n\\s*)?<\\/" + in_tag + ">)|\\z").group();
@@ -55,7 +55,7 @@ public class JSONScanner implements Scanner {
         string
     }
 
-    public static final Type TYPE = new Type("JSON", "\\.(json|template)$");
+    public static final Type TYPE = Type.ofExtensions("JSON", "json", "template");
 
     @Override
     public Type getType() {
@@ -73,18 +73,18 @@ public class JSONScanner implements Scanner {
 
                 case initial:
                     if ((m = source.scan(SPACE)) != null) {
-                        encoder.textToken(m.group(), TokenType.space);
+                        source.token(encoder, m, TokenType.space);
                     }
                     else if ((m = source.scan(DOUBLE_QUOTE)) != null) {
                         state = source.check(KEY) != null ? State.key : State.string;
                         encoder.beginGroup(TokenType.valueOf(state.name()));
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                     }
                     else if ((m = source.scan(OPERATOR)) != null) {
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     }
                     else if ((m = source.scan(BOOLEAN)) != null) {
-                        encoder.textToken(m.group(), TokenType.value);
+                        source.token(encoder, m, TokenType.value);
                     }
                     else if ((m = source.scan(NUMBER)) != null) {
                         String match = m.group();
@@ -104,23 +104,23 @@ public class JSONScanner implements Scanner {
                 case string:
 
                     if ((m = source.scan(CONTENT)) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     }
                     else if ((m = source.scan(DOUBLE_QUOTE)) != null) {
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                         encoder.endGroup(TokenType.valueOf(state.name()));
                         state = State.initial;
                     }
                     else if ((m = source.scan(CHAR)) != null) {
-                        encoder.textToken(m.group(), TokenType.char_);
+                        source.token(encoder, m, TokenType.char_);
                     }
                     else if ((m = source.scan(CONTENT_2)) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     }
                     else if ((m = source.scan(END)) != null) {
                         encoder.endGroup(TokenType.valueOf(state.name()));
                         if (!m.group().isEmpty()) {
-                            encoder.textToken(m.group(), TokenType.error);
+                            source.token(encoder, m, TokenType.error);
                         }
                         state = State.initial;
                     }
@@ -19,8 +19,9 @@
  */
 package org.jboss.aesh.extensions.text.highlight.scanner;
 
+import org.jboss.aesh.extensions.text.highlight.CompiledWordList;
 import org.jboss.aesh.extensions.text.highlight.Encoder;
-import org.jboss.aesh.extensions.text.highlight.Scanner;
+import org.jboss.aesh.extensions.text.highlight.ResumableScanner;
 import org.jboss.aesh.extensions.text.highlight.StringScanner;
 import org.jboss.aesh.extensions.text.highlight.TokenType;
 import org.jboss.aesh.extensions.text.highlight.WordList;
@@ -35,7 +36,7 @@ import java.util.regex.Pattern;
  * Based on https://github.com/rubychan/coderay/blob/master/lib/coderay/scanners/java.rb
  * Last update sha: 1cdf0e17af6c280dc12130a9200d8196b056bbe9
  */
-public class JavaScanner implements Scanner {
+public class JavaScanner implements ResumableScanner {
 
     public static final Pattern SPACE = Pattern.compile("\\s+|\\n");
     public static final Pattern COMMENT = Pattern.compile(
@@ -99,6 +100,8 @@ public class JavaScanner implements Scanner {
             .add(BuiltInTypes.EXCEPTION_TYPES, TokenType.exception)
             .add(DIRECTIVES, TokenType.directive);
 
+    private static final CompiledWordList<TokenType> IDENT_KINDS = IDENT_KIND.compile();
+
     public static final Map<String, Pattern> STRING_CONTENT_PATTERN = new HashMap<String, Pattern>();
 
     {
@@ -107,7 +110,7 @@ public class JavaScanner implements Scanner {
         STRING_CONTENT_PATTERN.put("/", STRING_CONTENT_PATTERN_MULTI_LINE);
     }
 
-    public static final Type TYPE = new Type("JAVA", "\\.(java)$");
+    public static final Type TYPE = Type.ofExtensions("JAVA", "java");
 
     @Override
     public Type getType() {
@@ -116,11 +119,21 @@ public class JavaScanner implements Scanner {
 
     @Override
     public void scan(StringScanner source, Encoder encoder, Map<String, Object> options) {
+        scan(source, encoder, options, null, null);
+    }
+
+    /**
+     * Snapshots are taken after the blanks that end a line and start the next one
+     */
+    @Override
+    public void scan(StringScanner source, Encoder encoder, Map<String, Object> options, Snapshot snapshot,
+            Listener listener) {
+        JavaSnapshot last = snapshot == null ? JavaSnapshot.INITIAL : (JavaSnapshot) snapshot;
         State state = State.initial;
         String string_delimiter = null;
-        TokenType package_name_expected = null;
-        boolean class_name_follows = false;
-        boolean last_token_dot = false;
+        TokenType package_name_expected = last.package_name_expected;
+        boolean class_name_follows = last.class_name_follows;
+        boolean last_token_dot = last.last_token_dot;
 
         while (source.hasMore()) {
             MatchResult m = null;
@@ -128,22 +141,32 @@ public class JavaScanner implements Scanner {
             switch (state) {
                 case initial:
                     if ((m = source.scan(SPACE)) != null) {
-                        encoder.textToken(m.group(), TokenType.space);
+                        source.token(encoder, m, TokenType.space);
+                        if (listener != null && source.contains(m, '\n')) {
+                            // most lines start in the same state
+                            if (!last.is(package_name_expected, class_name_follows, last_token_dot)) {
+                                last = new JavaSnapshot(package_name_expected, class_name_follows, last_token_dot);
+                            }
+                            if (!listener.lineStart(source.index(), last)) {
+                                return;
+                            }
+                        }
                         continue;
                     } else if ((m = source.scan(COMMENT)) != null) {
-                        encoder.textToken(m.group(), TokenType.comment);
+                        source.token(encoder, m, TokenType.comment);
                         continue;
                     } else if (package_name_expected != null && (m = source.scan(PACKAGE)) != null) {
-                        encoder.textToken(m.group(), package_name_expected);
+                        source.token(encoder, m, package_name_expected);
                     } else if ((m = source.scan(IDENT_OR_ARRAY_TYPE)) != null) {
-                        String match = m.group();
-                        TokenType kind = IDENT_KIND.lookup(match);
+                        TokenType kind = source.lookup(IDENT_KINDS, m);
                         if (last_token_dot) {
                             kind = TokenType.ident;
                         } else if (class_name_follows) {
                             kind = TokenType.class_;
                             class_name_follows = false;
-                        } else {
+                        } else if (kind == TokenType.keyword || kind == TokenType.type) {
+                            // import and package are keywords, class and interface types
+                            String match = m.group();
                             if ("import".equals(match)) {
                                 package_name_expected = TokenType.include;
                             } else if ("package".equals(match)) {
@@ -152,57 +175,57 @@ public class JavaScanner implements Scanner {
                                 class_name_follows = true;
                             }
                         }
-                        encoder.textToken(match, kind);
+                        source.token(encoder, m, kind);
                     } else if ((m = source.scan(OPERATORS)) != null) {
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     } else if ((m = source.scan(SEMI_COLON)) != null) {
                         package_name_expected = null;
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     } else if ((m = source.scan(OPEN_BRAKCET)) != null) {
                         class_name_follows = false;
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     } else if ((m = source.check(ANY_WORD)) != null) {
                         if ((m = source.scan(HEX)) != null) {
-                            encoder.textToken(m.group(), TokenType.hex);
+                            source.token(encoder, m, TokenType.hex);
                         } else if ((m = source.scan(OCTAL)) != null) {
-                            encoder.textToken(m.group(), TokenType.octal);
+                            source.token(encoder, m, TokenType.octal);
                         } else if ((m = source.scan(FLOAT)) != null) {
-                            encoder.textToken(m.group(), TokenType.float_);
+                            source.token(encoder, m, TokenType.float_);
                         } else if ((m = source.scan(INTEGER)) != null) {
-                            encoder.textToken(m.group(), TokenType.integer);
+                            source.token(encoder, m, TokenType.integer);
                         }
                     } else if ((m = source.scan(START_STRING)) != null) {
                         state = State.string;
                         encoder.beginGroup(TokenType.string);
                         string_delimiter = m.group();
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                     } else if ((m = source.scan(ANNOTATION)) != null) {
-                        encoder.textToken(m.group(), TokenType.annotation);
+                        source.token(encoder, m, TokenType.annotation);
                     } else {
                         encoder.textToken(source.next(), TokenType.error);
                     }
                     break;
                 case string:
                     if ((m = source.scan(STRING_CONTENT_PATTERN.get(string_delimiter))) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     } else if ((m = source.scan(END_STRING)) != null) {
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                         encoder.endGroup(TokenType.string);
                         state = State.initial;
                         string_delimiter = null;
                     } else if (state == State.string && (m = source.scan(STRING_CONTENT)) != null) {
                         if ("'".equals(string_delimiter) && !("\\\\".equals(m.group()) || "\\'".equals(m.group()))) {
-                            encoder.textToken(m.group(), TokenType.content);
+                            source.token(encoder, m, TokenType.content);
                         } else {
-                            encoder.textToken(m.group(), TokenType.char_);
+                            source.token(encoder, m, TokenType.char_);
                         }
                     } else if ((m = source.scan(STRING_CONTENT_2)) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     } else if ((m = source.scan(END_GROUP)) != null) {
                         encoder.endGroup(TokenType.string);
                         state = State.initial;
                         if (!m.group().isEmpty()) {
-                            encoder.textToken(m.group(), TokenType.error);
+                            source.token(encoder, m, TokenType.error);
                         }
                     } else {
                         throw new RuntimeException("else case \" reached; " + source.peek(1) + " in " + getClass());
@@ -212,11 +235,47 @@ public class JavaScanner implements Scanner {
                     throw new RuntimeException("unknown state " + state);
             }
             if (m != null) {
-                last_token_dot = (".".equals(m.group()));
+                last_token_dot = source.is(m, '.');
             }
         }
         if (state == State.string) {
             encoder.endGroup(TokenType.string);
         }
     }
+
+    private static final class JavaSnapshot implements Snapshot {
+
+        static final JavaSnapshot INITIAL = new JavaSnapshot(null, false, false);
+
+        private final TokenType package_name_expected;
+        private final boolean class_name_follows;
+        private final boolean last_token_dot;
+
+        JavaSnapshot(TokenType package_name_expected, boolean class_name_follows, boolean last_token_dot) {
+            this.package_name_expected = package_name_expected;
+            this.class_name_follows = class_name_follows;
+            this.last_token_dot = last_token_dot;
+        }
+
+        boolean is(TokenType package_name_expected, boolean class_name_follows, boolean last_token_dot) {
+            return this.package_name_expected == package_name_expected
+                    && this.class_name_follows == class_name_follows
+                    && this.last_token_dot == last_token_dot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof JavaSnapshot)) {
+                return false;
+            }
+            JavaSnapshot other = (JavaSnapshot) o;
+            return is(other.package_name_expected, other.class_name_follows, other.last_token_dot);
+        }
+
+        @Override
+        public int hashCode() {
+            return (package_name_expected == null ? 0 : package_name_expected.hashCode() * 4)
+                    + (class_name_follows ? 2 : 0) + (last_token_dot ? 1 : 0);
+        }
+    }
 }
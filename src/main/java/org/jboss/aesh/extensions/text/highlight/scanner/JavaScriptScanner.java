@@ -19,6 +19,7 @@
  */
 package org.jboss.aesh.extensions.text.highlight.scanner;
 
+import org.jboss.aesh.extensions.text.highlight.CompiledWordList;
 import org.jboss.aesh.extensions.text.highlight.Encoder;
 import org.jboss.aesh.extensions.text.highlight.Scanner;
 import org.jboss.aesh.extensions.text.highlight.StringScanner;
@@ -51,9 +52,9 @@ public class JavaScriptScanner implements Scanner {
     private static final String[] MAGIC_VARIABLES = new String[]{
             "this", "arguments"};
 
-    private static final WordList<Boolean> KEYWORDS_EXPECTING_VALUE = new WordList<Boolean>(false)
+    private static final CompiledWordList<Boolean> KEYWORDS_EXPECTING_VALUE = new WordList<Boolean>(false)
             .add(new String[]{"case", "delete", "in", "instanceof", "new", "return", "throw", "typeof", "with"},
-                    true);
+                    true).compile();
 
     // Reserved for future use.
     private static final String[] RESERVED_WORDS = new String[]{
@@ -62,11 +63,11 @@ public class JavaScriptScanner implements Scanner {
             "private", "protected", "public", "short", "static", "super", "synchronized", "throws", "transient",
             "volatile"};
 
-    private static final WordList<TokenType> IDENT_KIND = new WordList<TokenType>(TokenType.ident)
+    private static final CompiledWordList<TokenType> IDENT_KIND = new WordList<TokenType>(TokenType.ident)
             .add(RESERVED_WORDS, TokenType.reserved)
             .add(PREDEFINED_CONSTANTS, TokenType.predefined_constant)
             .add(MAGIC_VARIABLES, TokenType.local_variable)
-            .add(KEYWORDS, TokenType.keyword);
+            .add(KEYWORDS, TokenType.keyword).compile();
 
     private static final Pattern ESCAPE = Pattern.compile(" [bfnrtv\\n\\\\'\"] | x[a-fA-F0-9]{1,2} | [0-7]{1,3} ",
             Pattern.COMMENTS);
@@ -134,7 +135,7 @@ public class JavaScriptScanner implements Scanner {
         regexp
     }
 
-    public static final Type TYPE = new Type("JAVASCRIPT", "\\.(js)$");
+    public static final Type TYPE = Type.ofExtensions("JAVASCRIPT", "js");
 
     @Override
     public Type getType() {
@@ -160,23 +161,23 @@ public class JavaScriptScanner implements Scanner {
                         if (!value_expected && m.group().indexOf("\n") != -1) {
                             value_expected = true;
                         }
-                        encoder.textToken(m.group(), TokenType.space);
+                        source.token(encoder, m, TokenType.space);
                     } else if ((m = source.scan(COMMENT)) != null) {
                         value_expected = true;
-                        encoder.textToken(m.group(), TokenType.comment);
+                        source.token(encoder, m, TokenType.comment);
                         if (m.group(1) != null) {
                             state = State.open_multi_line_comment;
                         }
                     } else if ((m = source.check(NUMBER)) != null) {
                         key_expected = value_expected = false;
                         if ((m = source.scan(HEX)) != null) {
-                            encoder.textToken(m.group(), TokenType.hex);
+                            source.token(encoder, m, TokenType.hex);
                         } else if ((m = source.scan(OCTAL)) != null) {
-                            encoder.textToken(m.group(), TokenType.octal);
+                            source.token(encoder, m, TokenType.octal);
                         } else if ((m = source.scan(FLOAT)) != null) {
-                            encoder.textToken(m.group(), TokenType.float_);
+                            source.token(encoder, m, TokenType.float_);
                         } else if ((m = source.scan(INTEGER)) != null) {
-                            encoder.textToken(m.group(), TokenType.integer);
+                            source.token(encoder, m, TokenType.integer);
                         }
                     } else if (value_expected && (m = source.scan(HTML)) != null) {
                         Syntax.Builder.create()
@@ -190,13 +191,13 @@ public class JavaScriptScanner implements Scanner {
                         String last_operator = m.group().substring(m.group().length() - 1);
                         key_expected = last_operator.equals("{") || last_operator.equals(",");
                         function_expected = false;
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     } else if ((m = source.scan(OPERATOR_END)) != null) {
                         function_expected = key_expected = value_expected = false;
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     } else if ((m = source.scan(IDENT)) != null) {
-                        TokenType kind = IDENT_KIND.lookup(m.group());
-                        value_expected = (kind == TokenType.keyword) && KEYWORDS_EXPECTING_VALUE.lookup(m.group());
+                        TokenType kind = source.lookup(IDENT_KIND, m);
+                        value_expected = (kind == TokenType.keyword) && source.lookup(KEYWORDS_EXPECTING_VALUE, m);
                         if (TokenType.ident == kind) {
                             if (m.group().indexOf("$") != -1) {
                                 kind = TokenType.predefined;
@@ -210,7 +211,7 @@ public class JavaScriptScanner implements Scanner {
                         }
                         function_expected = (kind == TokenType.keyword && m.group().equals("function"));
                         key_expected = false;
-                        encoder.textToken(m.group(), kind);
+                        source.token(encoder, m, kind);
                     } else if ((m = source.scan(ARRAY_KEY)) != null) {
                         if (key_expected && source.check(KEY_CHECK_PATTERN.get(m.group())) != null) {
                             state = State.key;
@@ -219,16 +220,16 @@ public class JavaScriptScanner implements Scanner {
                         }
                         encoder.beginGroup(TokenType.valueOf(state.name()));
                         string_delimiter = m.group();
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                     } else if (value_expected && (m = source.scan(REGEXP)) != null) {
                         encoder.beginGroup(TokenType.regexp);
                         state = State.regexp;
                         string_delimiter = "/";
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                     } else if ((m = source.scan(REGEXP)) != null) {
                         value_expected = true;
                         key_expected = false;
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     } else {
                         encoder.textToken(source.next(), TokenType.error);
                     }
@@ -239,9 +240,9 @@ public class JavaScriptScanner implements Scanner {
                 case key:
 
                     if ((m = source.scan(STRING_CONTENT_PATTERN.get(string_delimiter))) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     } else if ((m = source.scan(DELIMITER)) != null) {
-                        encoder.textToken(m.group(), TokenType.delimiter);
+                        source.token(encoder, m, TokenType.delimiter);
                         if (State.regexp == state) {
                             MatchResult modifiers;
                             if ((modifiers = source.scan(MODIFIER)) != null) {
@@ -254,18 +255,18 @@ public class JavaScriptScanner implements Scanner {
                         state = State.initial;
                     } else if (State.regexp != state && (m = source.scan(CONTENT)) != null) {
                         if (string_delimiter.equals("'") && !(m.group().equals("\\\\") || m.group().equals("\\'"))) {
-                            encoder.textToken(m.group(), TokenType.content);
+                            source.token(encoder, m, TokenType.content);
                         } else {
-                            encoder.textToken(m.group(), TokenType.char_);
+                            source.token(encoder, m, TokenType.char_);
                         }
                     } else if (State.regexp == state && (m = source.scan(CHAR)) != null) {
-                        encoder.textToken(m.group(), TokenType.char_);
+                        source.token(encoder, m, TokenType.char_);
                     } else if ((m = source.scan(CONTENT_2)) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     } else if ((m = source.scan(CONTENT_END)) != null) {
                         encoder.endGroup(TokenType.valueOf(state.name()));
                         if (!m.group().isEmpty()) {
-                            encoder.textToken(m.group(), TokenType.error);
+                            source.token(encoder, m, TokenType.error);
                         }
                         string_delimiter = null;
                         key_expected = value_expected = false;
@@ -285,7 +286,7 @@ public class JavaScriptScanner implements Scanner {
                     }
                     value_expected = true;
                     if (m != null) {
-                        encoder.textToken(m.group(), TokenType.comment);
+                        source.token(encoder, m, TokenType.comment);
                     }
 
                     break;
@@ -20,7 +20,7 @@
 package org.jboss.aesh.extensions.text.highlight.scanner;
 
 import org.jboss.aesh.extensions.text.highlight.Encoder;
-import org.jboss.aesh.extensions.text.highlight.Scanner;
+import org.jboss.aesh.extensions.text.highlight.ResumableScanner;
 import org.jboss.aesh.extensions.text.highlight.StringScanner;
 import org.jboss.aesh.extensions.text.highlight.TokenType;
 
@@ -28,8 +28,13 @@ import java.util.Map;
 import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
-public class PlainScanner implements Scanner {
+public class PlainScanner implements ResumableScanner {
    private static final Pattern ALL = Pattern.compile(".*", Pattern.DOTALL);
+   private static final Pattern LINE = Pattern.compile("[^\\n]*\\n|[^\\n]+");
+
+   // plain text has no state
+   private static final Snapshot STATELESS = new Snapshot() {
+   };
 
    // Never match a File, only match by default if no one else does. Handled in Scanner.Factory
    public static final Type TYPE = new Type("PLAIN", (Pattern)null);
@@ -43,7 +48,26 @@ public class PlainScanner implements Scanner {
    public void scan(StringScanner source, Encoder encoder, Map<String, Object> options) {
       MatchResult m = source.scan(ALL);
       if (m != null) {
-         encoder.textToken(m.group(), TokenType.plain);
+         source.token(encoder, m, TokenType.plain);
+      }
+   }
+
+   /**
+    * Resumed or listened to, the text is written one line at a time, every line start is a snapshot
+    */
+   @Override
+   public void scan(StringScanner source, Encoder encoder, Map<String, Object> options, Snapshot snapshot,
+         Listener listener) {
+      if (snapshot == null && listener == null) {
+         scan(source, encoder, options);
+         return;
+      }
+      MatchResult m;
+      while ((m = source.scan(LINE)) != null) {
+         source.token(encoder, m, TokenType.plain);
+         if (listener != null && source.hasMore() && !listener.lineStart(source.index(), STATELESS)) {
+            return;
+         }
       }
    }
 
@@ -45,7 +45,7 @@ public class PropertiesScanner implements Scanner {
         value
     }
 
-    public static final Type TYPE = new Type("PROPERTIES", "\\.(properties)$");
+    public static final Type TYPE = Type.ofExtensions("PROPERTIES", "properties");
 
     @Override
     public Type getType() {
@@ -61,16 +61,16 @@ public class PropertiesScanner implements Scanner {
             switch (state) {
                 case initial:
                     if ((m = source.scan(COMMENT)) != null) {
-                        encoder.textToken(m.group(), TokenType.comment);
+                        source.token(encoder, m, TokenType.comment);
                     }
                     else if ((m = source.scan(SPACE)) != null) {
-                        encoder.textToken(m.group(), TokenType.space);
+                        source.token(encoder, m, TokenType.space);
                     }
                     else if ((m = source.scan(KEY)) != null) {
-                        encoder.textToken(m.group(), TokenType.key);
+                        source.token(encoder, m, TokenType.key);
                     }
                     else if ((m = source.scan(OPERATOR)) != null) {
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                         state = State.value;
                     }
                     else {
@@ -79,10 +79,10 @@ public class PropertiesScanner implements Scanner {
                     break;
                 case value:
                     if ((m = source.scan(SPACE)) != null) {
-                        encoder.textToken(m.group(), TokenType.space);
+                        source.token(encoder, m, TokenType.space);
                     }
                     else if ((m = source.scan(FLOAT)) != null) {
-                        encoder.textToken(m.group(), TokenType.float_);
+                        source.token(encoder, m, TokenType.float_);
                         state = State.initial;
                     }
                     else if ((m = source.scan(NUMBER)) != null) {
@@ -97,15 +97,15 @@ public class PropertiesScanner implements Scanner {
                         state = State.initial;
                     }
                     else if ((m = source.scan(BOOLEAN)) != null) {
-                        encoder.textToken(m.group(), TokenType.value);
+                        source.token(encoder, m, TokenType.value);
                         state = State.initial;
                     }
                     else if ((m = source.scan(UNICODE_ESCAPE)) != null) {
-                        encoder.textToken(m.group(), TokenType.value);
+                        source.token(encoder, m, TokenType.value);
                         state = State.initial;
                     }
                     else if ((m = source.scan(VALUE)) != null) {
-                        encoder.textToken(m.group(), TokenType.value);
+                        source.token(encoder, m, TokenType.value);
                         if (!m.group().endsWith("\\")) {
                             state = State.initial;
                         }
@@ -19,6 +19,7 @@
  */
 package org.jboss.aesh.extensions.text.highlight.scanner;
 
+import org.jboss.aesh.extensions.text.highlight.CompiledWordList;
 import org.jboss.aesh.extensions.text.highlight.Encoder;
 import org.jboss.aesh.extensions.text.highlight.Scanner;
 import org.jboss.aesh.extensions.text.highlight.StringScanner;
@@ -66,14 +67,14 @@ public class SQLScanner implements Scanner {
 
     private static final String[] PREDEFINED_CONSTANTS = new String[]{"null", "true", "false"};
 
-    private static final WordList<TokenType> IDENT_KIND = new WordList<TokenType>(TokenType.ident, true)
+    private static final CompiledWordList<TokenType> IDENT_KIND = new WordList<TokenType>(TokenType.ident, true)
             .add(KEYWORDS, TokenType.keyword)
             .add(OBJECTS, TokenType.type)
             .add(COMMANDS, TokenType.class_)
             .add(PREDEFINED_TYPES, TokenType.predefined_type)
             .add(PREDEFINED_CONSTANTS, TokenType.predefined_constant)
             .add(PREDEFINED_FUNCTIONS, TokenType.predefined)
-            .add(DIRECTIVES, TokenType.directive);
+            .add(DIRECTIVES, TokenType.directive).compile();
 
     private static Pattern ESCAPE = Pattern.compile(" [rbfntv\\n\\\\\\/'\"] | x[a-fA-F0-9]{1,2} | [0-7]{1,3} | . ", Pattern.DOTALL | Pattern.COMMENTS);
     private static Pattern UNICODE_ESCAPE = Pattern.compile(" u[a-fA-F0-9]{4} | U[a-fA-F0-9]{8} ", Pattern.COMMENTS);
@@ -109,7 +110,7 @@ public class SQLScanner implements Scanner {
         string
     }
 
-    public static final Type TYPE = new Type("SQL", "\\.(sql|ddl|dml|dcl)$");
+    public static final Type TYPE = Type.ofExtensions("SQL", "sql", "ddl", "dml", "dcl");
 
     @Override
     public Type getType() {
@@ -129,19 +130,19 @@ public class SQLScanner implements Scanner {
                 case initial:
 
                     if ((m = source.scan(SPACE)) != null) {
-                        encoder.textToken(m.group(), TokenType.space);
+                        source.token(encoder, m, TokenType.space);
                     }
                     else if ((m = source.scan(COMMENT)) != null) {
-                        encoder.textToken(m.group(), TokenType.comment);
+                        source.token(encoder, m, TokenType.comment);
                     }
                     else if ((m = source.scan(COMMENT_DIRECTIVE)) != null) {
-                        encoder.textToken(m.group(), m.group(1) != null ? TokenType.directive : TokenType.comment);
+                        source.token(encoder, m, m.group(1) != null ? TokenType.directive : TokenType.comment);
                     }
                     else if ((m = source.scan(OPERATOR)) != null) {
                         if (m.group().equals(".") && source.check(LETTER) != null) {
                             nameExpected = true;
                         }
-                        encoder.textToken(m.group(), TokenType.operator);
+                        source.token(encoder, m, TokenType.operator);
                     }
                     else if ((m = source.scan(STRING)) != null) {
                         String prefix = m.group(1);
@@ -154,23 +155,23 @@ public class SQLScanner implements Scanner {
                         encoder.textToken(stringType, TokenType.delimiter);
                     }
                     else if ((m = source.scan(IDENT)) != null) {
-                        encoder.textToken(m.group(), nameExpected ? TokenType.ident : (m.group().startsWith("@") ? TokenType.variable : IDENT_KIND.lookup(m.group())));
+                        source.token(encoder, m, nameExpected ? TokenType.ident : (m.group().startsWith("@") ? TokenType.variable : source.lookup(IDENT_KIND, m)));
                         nameExpected = false;
                     }
                     else if ((m = source.scan(HEX)) != null) {
-                        encoder.textToken(m.group(), TokenType.hex);
+                        source.token(encoder, m, TokenType.hex);
                     }
                     else if ((m = source.scan(OCTAL)) != null) {
-                        encoder.textToken(m.group(), TokenType.octal);
+                        source.token(encoder, m, TokenType.octal);
                     }
                     else if ((m = source.scan(INTEGER)) != null) {
-                        encoder.textToken(m.group(), TokenType.integer);
+                        source.token(encoder, m, TokenType.integer);
                     }
                     else if ((m = source.scan(FLOAT)) != null) {
-                        encoder.textToken(m.group(), TokenType.float_);
+                        source.token(encoder, m, TokenType.float_);
                     }
                     else if ((m = source.scan(PREDEFINED_CONSTANT)) != null) {
-                        encoder.textToken(m.group(), TokenType.predefined_constant);
+                        source.token(encoder, m, TokenType.predefined_constant);
                     }
                     else {
                         encoder.textToken(source.next(), TokenType.error);
@@ -179,7 +180,7 @@ public class SQLScanner implements Scanner {
 
                 case string:
                     if ((m = source.scan(STRING_CONTENT_PATTERN.get(stringType))) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     }
                     else if ((m = source.scan(DELIMITER)) != null) {
                         if (m.group().equals(stringType)) {
@@ -187,25 +188,25 @@ public class SQLScanner implements Scanner {
                                 encoder.textToken(m.group() + source.next(), TokenType.content);
                             }
                             else {
-                                encoder.textToken(m.group(), TokenType.delimiter);
+                                source.token(encoder, m, TokenType.delimiter);
                                 encoder.endGroup(TokenType.string);
                                 state = State.initial;
                                 stringType = null;
                             }
                         }
                         else {
-                            encoder.textToken(m.group(), TokenType.content);
+                            source.token(encoder, m, TokenType.content);
                         }
                     }
                     else if ((m = source.scan(CHAR)) != null) {
-                        encoder.textToken(m.group(), TokenType.char_);
+                        source.token(encoder, m, TokenType.char_);
                     }
                     else if ((m = source.scan(CONTENT)) != null) {
-                        encoder.textToken(m.group(), TokenType.content);
+                        source.token(encoder, m, TokenType.content);
                     }
                     else if ((m = source.scan(STRING_END)) != null) {
                         if (m.group().length() != 0) {
-                            encoder.textToken(m.group(), TokenType.error);
+                            source.token(encoder, m, TokenType.error);
                         }
                         encoder.endGroup(TokenType.string);
                         state = State.initial;
@@ -22,7 +22,7 @@ package org.jboss.aesh.extensions.text.highlight.scanner;
 
 public class XMLScanner extends HTMLScanner {
 
-   public static final Type TYPE = new Type("XML", "\\.(xml|cfc|cfm|tmproj|xaml)$");
+   public static final Type TYPE = Type.ofExtensions("XML", "xml", "cfc", "cfm", "tmproj", "xaml");
 
    @Override
    public Type getType() {
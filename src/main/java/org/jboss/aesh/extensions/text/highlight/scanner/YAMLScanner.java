@@ -64,7 +64,7 @@ public class YAMLScanner implements Scanner {
         colon
     }
 
-    public static final Type TYPE = new Type("YAML", "\\.(yml|yaml)$");
+    public static final Type TYPE = Type.ofExtensions("YAML", "yml", "yaml");
 
     @Override
     public Type getType() {
@@ -84,16 +84,16 @@ public class YAMLScanner implements Scanner {
             }
 
             if ((m = source.scan(SPACE)) != null) {
-                encoder.textToken(m.group(), TokenType.space);
+                source.token(encoder, m, TokenType.space);
             }
             else if ((m = source.scan(SPACE_NEWLINE)) != null) {
-                encoder.textToken(m.group(), TokenType.space);
+                source.token(encoder, m, TokenType.space);
                 if (m.group().indexOf("\n") != -1) {
                     contxt.state = State.initial;
                 }
             }
             else if ((m = source.scan(COMMENT)) != null) {
-                encoder.textToken(m.group(), TokenType.comment);
+                source.token(encoder, m, TokenType.comment);
             }
             else if (source.isBeginningOfLine() && head_doctype(source, encoder)) {
                 continue;
@@ -117,12 +117,12 @@ public class YAMLScanner implements Scanner {
         MatchResult m;
         if ((m = source.scan(HEAD)) != null) {
             encoder.beginGroup(TokenType.head);
-            encoder.textToken(m.group(), TokenType.head);
+            source.token(encoder, m, TokenType.head);
             encoder.endGroup(TokenType.head);
             return true;
         }
         else if ((m = source.scan(DOCTYPE)) != null) {
-            encoder.textToken(m.group(), TokenType.doctype);
+            source.token(encoder, m, TokenType.doctype);
             return true;
         }
         return false;
@@ -133,32 +133,32 @@ public class YAMLScanner implements Scanner {
         int string_indent = 0;
         if (source.check(STRING) == null && (m = source.scan(DOUBLE_QUOTE)) != null) {
             encoder.beginGroup(TokenType.string);
-            encoder.textToken(m.group(), TokenType.delimiter);
+            source.token(encoder, m, TokenType.delimiter);
             if ((m = source.scan(COMMENT_ONELINE)) != null && !"".equals(m.group())) {
-                encoder.textToken(m.group(), TokenType.content);
+                source.token(encoder, m, TokenType.content);
             }
             if ((m = source.scan(DOUBLE_QUOTE)) != null) {
-                encoder.textToken(m.group(), TokenType.delimiter);
+                source.token(encoder, m, TokenType.delimiter);
             }
             encoder.endGroup(TokenType.string);
             return true;
         }
         else if ((m = source.scan(LINE_CONTINUE)) != null) {
             encoder.beginGroup(TokenType.string);
-            encoder.textToken(m.group(), TokenType.delimiter);
+            source.token(encoder, m, TokenType.delimiter);
             string_indent = context.key_indent != null ? context.key_indent : source.column(source.index() - m.group().length()) - 1;
             if ((m = source.scan(Pattern.compile("(?:\\n+ {" + (string_indent + 1) + "}.*)+"))) != null) {
-                encoder.textToken(m.group(), TokenType.content);
+                source.token(encoder, m, TokenType.content);
             }
             encoder.endGroup(TokenType.string);
             return true;
         }
         else if ((m = source.scan(STRING_ENDLINE)) != null) {
             encoder.beginGroup(TokenType.string);
-            encoder.textToken(m.group(), TokenType.content);
+            source.token(encoder, m, TokenType.content);
             string_indent = context.key_indent != null ? context.key_indent : source.column(source.index() - m.group().length()) - 1;
             if ((m = source.scan(Pattern.compile("(?:\\n+ {" + (string_indent + 1) + "}.*)+"))) != null) {
-                encoder.textToken(m.group(), TokenType.content);
+                source.token(encoder, m, TokenType.content);
             }
 
             encoder.endGroup(TokenType.string);
@@ -177,15 +177,15 @@ public class YAMLScanner implements Scanner {
             else if (context.state == State.initial && m.group().equals("-")) {
                 context.state = State.value;
             }
-            encoder.textToken(m.group(), TokenType.operator);
+            source.token(encoder, m, TokenType.operator);
             return true;
         }
         else if ((m = source.scan(OPERATOR_BRACKETS)) != null) {
-            encoder.textToken(m.group(), TokenType.operator);
+            source.token(encoder, m, TokenType.operator);
             return true;
         }
         else if (context.state == State.initial && (m = source.scan(KEY)) != null) {
-            encoder.textToken(m.group(), TokenType.key);
+            source.token(encoder, m, TokenType.key);
             context.key_indent = source.column(source.index() - m.group().length()) - 1;
             context.state = State.colon;
             return true;
@@ -204,43 +204,43 @@ public class YAMLScanner implements Scanner {
             return true;
         }
         else if ((m = source.scan(TYPE_EXP)) != null) {
-            encoder.textToken(m.group(1), TokenType.type);
+            source.token(encoder, m, 1, TokenType.type);
             if (m.group(2) != null) {
                 encoder.textToken(":", TokenType.operator);
-                encoder.textToken(m.group(3), TokenType.class_);
+                source.token(encoder, m, 3, TokenType.class_);
             }
             return true;
         }
         else if ((m = source.scan(VARIABLE)) != null) {
-            encoder.textToken(m.group(), TokenType.variable);
+            source.token(encoder, m, TokenType.variable);
             return true;
         }
         else if ((m = source.scan(GLOBAL_VARIABLE)) != null) {
-            encoder.textToken(m.group(), TokenType.global_variable);
+            source.token(encoder, m, TokenType.global_variable);
             return true;
         }
         else if ((m = source.scan(CLASS_VARIABLE)) != null) {
-            encoder.textToken(m.group(), TokenType.class_variable);
+            source.token(encoder, m, TokenType.class_variable);
             return true;
         }
         else if ((m = source.scan(OCTAL)) != null) {
-            encoder.textToken(m.group(), TokenType.octal);
+            source.token(encoder, m, TokenType.octal);
             return true;
         }
         else if ((m = source.scan(OCTAL_2)) != null) {
-            encoder.textToken(m.group(), TokenType.octal);
+            source.token(encoder, m, TokenType.octal);
             return true;
         }
         else if ((m = source.scan(SYMBOL)) != null) {
-            encoder.textToken(m.group(), TokenType.symbol);
+            source.token(encoder, m, TokenType.symbol);
             return true;
         }
         else if ((m = source.scan(ERROR)) != null) {
-            encoder.textToken(m.group(), TokenType.error);
+            source.token(encoder, m, TokenType.error);
             return true;
         }
         else if ((m = source.scan(ERROR_2)) != null) {
-            encoder.textToken(m.group(), TokenType.error);
+            source.token(encoder, m, TokenType.error);
             return true;
         }
         return false;
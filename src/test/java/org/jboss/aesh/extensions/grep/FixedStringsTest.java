@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FixedStringsTest {
+
+    private static final Charset UTF8 = StandardCharsets.UTF_8;
+
+    @Test
+    public void testBoyerMooreHorspool() {
+        ByteSearch search = FixedStrings.compile(Arrays.asList("needle"), false, UTF8);
+        assertTrue(search instanceof BoyerMooreHorspool);
+        assertEquals(10, indexOf(search, "haystack, needle in it"));
+        assertEquals(-1, indexOf(search, "haystack, needl"));
+        assertEquals(0, indexOf(search, "needle"));
+        assertEquals(-1, indexOf(search, "NEEDLE"));
+    }
+
+    @Test
+    public void testBoyerMooreHorspoolIgnoreCase() {
+        ByteSearch search = FixedStrings.compile(Arrays.asList("Needle"), true, UTF8);
+        assertEquals(4, indexOf(search, "the nEEDLE"));
+    }
+
+    @Test
+    public void testAhoCorasick() {
+        ByteSearch search = FixedStrings.compile(Arrays.asList("he", "she", "hers", "his"), false, UTF8);
+        assertTrue(search instanceof AhoCorasick);
+        assertEquals(1, indexOf(search, "ushers"));
+        assertEquals(2, indexOf(search, "a his"));
+        assertEquals(-1, indexOf(search, "nothing"));
+        //search range is respected
+        ByteBuffer buffer = ByteBuffer.wrap("she said".getBytes(UTF8));
+        assertEquals(-1, search.indexOf(buffer, 2, buffer.limit()));
+    }
+
+    @Test
+    public void testAhoCorasickIgnoreCase() {
+        ByteSearch search = FixedStrings.compile(Arrays.asList("error", "WARN"), true, UTF8);
+        assertEquals(5, indexOf(search, "2015 Warning"));
+        assertEquals(0, indexOf(search, "ERROR"));
+    }
+
+    @Test
+    public void testNotSearchableAsBytes() {
+        assertNull(FixedStrings.compile(Arrays.asList("foo", ""), false, UTF8));
+        assertNull(FixedStrings.compile(Arrays.asList("æsh"), true, UTF8));
+    }
+
+    @Test
+    public void testMappedFileSearcher() throws IOException {
+        File file = File.createTempFile("grep", ".log");
+        try {
+            Files.write(file.toPath(), "one ERROR\r\ntwo\nthree ERROR ERROR\nfour\nERROR".getBytes(UTF8));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(bytes, true);
+            long matches = new MappedFileSearcher(FixedStrings.compile(Arrays.asList("ERROR"), false, UTF8), UTF8)
+                    .search(file, new GrepWriter(out));
+
+            assertEquals(3, matches);
+            List<String> lines = new ArrayList<>(Arrays.asList(bytes.toString().split("\\r?\\n")));
+            assertEquals(Arrays.asList("one ERROR", "three ERROR ERROR", "ERROR"), lines);
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    private static int indexOf(ByteSearch search, String text) {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(UTF8));
+        return search.indexOf(buffer, 0, buffer.limit());
+    }
+}
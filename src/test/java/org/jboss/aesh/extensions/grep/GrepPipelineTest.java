@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import org.jboss.aesh.console.Config;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GrepPipelineTest {
+
+    @Test
+    public void testQuietStopsAtFirstMatch() throws IOException {
+        CountingReader input = new CountingReader(100000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long matches = new GrepPipeline(new RegexLineMatcher(Pattern.compile("line 10$")),
+                new GrepWriter(new PrintStream(bytes), "stdin", false, GrepWriter.Mode.QUIET)).run(input);
+
+        assertEquals(1, matches);
+        assertEquals(0, bytes.size());
+        //only the buffer holding line 10 has been read
+        assertTrue(input.getLinesRead() < 10000);
+    }
+
+    @Test
+    public void testMaxCountAndCount() throws IOException {
+        CountingReader input = new CountingReader(100000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long matches = new GrepPipeline(new RegexLineMatcher(Pattern.compile("0$")),
+                new GrepWriter(new PrintStream(bytes), "stdin", true, GrepWriter.Mode.COUNT), 3).run(input);
+
+        assertEquals(3, matches);
+        assertEquals("stdin:3" + Config.getLineSeparator(), bytes.toString());
+        assertTrue(input.getLinesRead() < 10000);
+    }
+
+    @Test
+    public void testContext() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long matches = new GrepPipeline(new RegexLineMatcher(Pattern.compile("line (5|6|20)$")),
+                new GrepWriter(new PrintStream(bytes), "stdin", true, GrepWriter.Mode.LINES),
+                Long.MAX_VALUE, 1, 1).run(new CountingReader(100));
+
+        assertEquals(3, matches);
+        assertEquals(lines("stdin-line 4", "stdin:line 5", "stdin:line 6", "stdin-line 7", "--",
+                "stdin-line 19", "stdin:line 20", "stdin-line 21"), bytes.toString());
+    }
+
+    @Test
+    public void testMaxCountKeepsTrailingContext() throws IOException {
+        CountingReader input = new CountingReader(100000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long matches = new GrepPipeline(new RegexLineMatcher(Pattern.compile("5$")),
+                new GrepWriter(new PrintStream(bytes), "stdin", false, GrepWriter.Mode.LINES),
+                1, 3, 2).run(input);
+
+        assertEquals(1, matches);
+        assertEquals(lines("line 2", "line 3", "line 4", "line 5", "line 6", "line 7"), bytes.toString());
+        assertTrue(input.getLinesRead() < 10000);
+    }
+
+    /**
+     * The expected output, each line ends with the separator GrepWriter uses
+     */
+    private static String lines(String... lines) {
+        StringBuilder builder = new StringBuilder();
+        for(String line : lines)
+            builder.append(line).append(Config.getLineSeparator());
+        return builder.toString();
+    }
+
+    /**
+     * Generates "line N" lines on demand and keeps track of how many were read
+     */
+    private static class CountingReader extends Reader {
+        private final int lines;
+        private int linesRead;
+        private String current = "";
+        private int position;
+
+        CountingReader(int lines) {
+            this.lines = lines;
+        }
+
+        int getLinesRead() {
+            return linesRead;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if(position == current.length()) {
+                if(linesRead == lines)
+                    return -1;
+                current = "line " + linesRead++ + "\n";
+                position = 0;
+            }
+            int count = Math.min(length, current.length() - position);
+            current.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -19,20 +19,149 @@
  */
 package org.jboss.aesh.extensions.grep;
 
+import org.jboss.aesh.console.Config;
 import org.jboss.aesh.extensions.common.AeshTestCommons;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class GrepTest extends AeshTestCommons {
 
+    private Path tempDir;
+
+    @Before
+    public void before() throws IOException {
+        tempDir = createTempDirectory();
+    }
+
+    @After
+    public void after() throws IOException {
+        deleteRecursiveTempDirectory(tempDir);
+    }
+
     @Test
     public void testGrep() throws IOException {
         prepare(Grep.class);
         pushToOutput("grep -i 'foo' /tmp\n");
         finish();
     }
+
+    @Test
+    public void testGrepFile() throws IOException {
+        Path file = tempDir.resolve("grep01.txt");
+        Files.write(file, ("first line\nan ERROR was logged\nlast line\n").getBytes(StandardCharsets.UTF_8));
+
+        prepare(Grep.class);
+        pushToOutput("grep ERROR " + file.toFile().getAbsolutePath());
+        assertTrue(getStream().toString().contains("an ERROR was logged" + Config.getLineSeparator()));
+        assertFalse(getStream().toString().contains("first line"));
+        finish();
+    }
+
+    @Test
+    public void testGrepJobsKeepsFileOrder() throws IOException {
+        StringBuilder files = new StringBuilder();
+        for(int i = 0; i < 6; i++) {
+            Path file = tempDir.resolve("jobs" + i + ".txt");
+            Files.write(file, ("match-" + i + "\nskip\n").getBytes(StandardCharsets.UTF_8));
+            files.append(' ').append(file.toFile().getAbsolutePath());
+        }
+
+        prepare(Grep.class);
+        pushToOutput("grep -j 3 match" + files);
+        String out = getStream().toString();
+        int previous = -1;
+        for(int i = 0; i < 6; i++) {
+            int index = out.indexOf("match-" + i);
+            assertTrue(index > previous);
+            previous = index;
+        }
+        finish();
+    }
+
+    @Test
+    public void testGrepRecursive() throws IOException {
+        Path sub = Files.createDirectories(tempDir.resolve("a").resolve("b"));
+        Files.write(tempDir.resolve("top.log"), "recursive-top\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(sub.resolve("deep.log"), "recursive-deep\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(sub.resolve("deep.txt"), "recursive-excluded\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve(".hidden.log"), "recursive-hidden\n".getBytes(StandardCharsets.UTF_8));
+
+        prepare(Grep.class);
+        pushToOutput("grep -r --include=*.log recursive " + tempDir.toFile().getAbsolutePath());
+        String out = getStream().toString();
+        assertTrue(out.contains("deep.log:recursive-deep"));
+        assertTrue(out.contains("top.log:recursive-top"));
+        assertTrue(out.indexOf("recursive-deep") < out.indexOf("recursive-top"));
+        assertFalse(out.contains("recursive-excluded"));
+        assertFalse(out.contains("recursive-hidden"));
+        finish();
+    }
+
+    @Test
+    public void testGrepPatternFile() throws IOException {
+        Path patterns = tempDir.resolve("patterns.txt");
+        Files.write(patterns, "WARN\nERR.R\n".getBytes(StandardCharsets.UTF_8));
+        Path file = tempDir.resolve("input.log");
+        Files.write(file, "line WARN one\nline INFO two\nline ERROR three\n".getBytes(StandardCharsets.UTF_8));
+
+        prepare(Grep.class);
+        pushToOutput("grep -f " + patterns.toFile().getAbsolutePath() + " " + file.toFile().getAbsolutePath());
+        String out = getStream().toString();
+        assertTrue(out.contains("line WARN one"));
+        assertTrue(out.contains("line ERROR three"));
+        assertFalse(out.contains("line INFO two"));
+        finish();
+    }
+
+    @Test
+    public void testGrepEmptyPatternFile() throws IOException {
+        Path patterns = tempDir.resolve("empty.txt");
+        Files.write(patterns, new byte[0]);
+        Path file = tempDir.resolve("input.log");
+        Files.write(file, "line one\nline two\n".getBytes(StandardCharsets.UTF_8));
+
+        prepare(Grep.class);
+        pushToOutput("grep -f " + patterns.toFile().getAbsolutePath() + " " + file.toFile().getAbsolutePath());
+        assertFalse(getStream().toString().contains("line one"));
+        assertFalse(getStream().toString().contains("line two"));
+        finish();
+    }
+
+    @Test
+    public void testGrepCountAndFilesWithMatches() throws IOException {
+        Path first = tempDir.resolve("first.log");
+        Files.write(first, "ERROR a\nok\nERROR b\nERROR c\n".getBytes(StandardCharsets.UTF_8));
+        Path second = tempDir.resolve("second.log");
+        Files.write(second, "ok\n".getBytes(StandardCharsets.UTF_8));
+        String files = " " + first.toFile().getAbsolutePath() + " " + second.toFile().getAbsolutePath();
+
+        prepare(Grep.class);
+        pushToOutput("grep -c ERROR" + files);
+        assertTrue(getStream().toString().contains("first.log:3"));
+        assertTrue(getStream().toString().contains("second.log:0"));
+
+        pushToOutput("grep -c -m 2 ERROR" + files);
+        assertTrue(getStream().toString().contains("first.log:2"));
+
+        pushToOutput("grep -l ERROR" + files);
+        assertTrue(getStream().toString().contains(first.toFile().getAbsolutePath() + Config.getLineSeparator()));
+        assertFalse(getStream().toString().contains(second.toFile().getAbsolutePath() + Config.getLineSeparator()));
+
+        getStream().reset();
+        pushToOutput("grep -q ERROR" + files);
+        assertFalse(getStream().toString().contains("ERROR a"));
+        finish();
+    }
 }
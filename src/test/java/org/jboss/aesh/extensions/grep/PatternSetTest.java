@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PatternSetTest {
+
+    private static final Charset UTF8 = StandardCharsets.UTF_8;
+
+    @Test
+    public void testRegexAlternation() {
+        PatternSet set = PatternSet.compile(Arrays.asList("ERR(OR)?", "time.*out"), false, false, UTF8);
+        assertNull(set.getByteSearch());
+        LineMatcher matcher = set.newLineMatcher();
+        assertTrue(matcher.matches("an ERR"));
+        assertTrue(matcher.matches("timed out"));
+        assertFalse(matcher.matches("all good"));
+    }
+
+    @Test
+    public void testFixedStrings() {
+        PatternSet set = PatternSet.compile(Arrays.asList("a.b", "c*"), true, false, UTF8);
+        assertTrue(set.getByteSearch() instanceof AhoCorasick);
+        LineMatcher matcher = set.newLineMatcher();
+        assertTrue(matcher.matches("xa.by"));
+        assertFalse(matcher.matches("axb"));
+    }
+
+    @Test
+    public void testBackreferencesKeepTheirGroups() {
+        //in an alternation the \\1 of the second pattern would refer to the group of the first
+        PatternSet set = PatternSet.compile(Arrays.asList("(x)y", "(a)\\1"), false, false, UTF8);
+        LineMatcher matcher = set.newLineMatcher();
+        assertTrue(matcher.matches("xy"));
+        assertTrue(matcher.matches("aa"));
+        assertFalse(matcher.matches("ax"));
+        assertTrue(PatternSet.hasBackreference("(?<w>a)\\k<w>"));
+        assertFalse(PatternSet.hasBackreference("a\\\\1"));
+    }
+
+    @Test
+    public void testPatternsAreCompiledOneByOne() {
+        //valid once wrapped in an alternation, as (?:a)|(b)
+        try {
+            PatternSet.compile(Arrays.asList("a)|(b", "c"), false, false, UTF8);
+            fail();
+        }
+        catch(PatternSyntaxException e) {
+            assertEquals("a)|(b", e.getPattern());
+        }
+        //the same group name in two patterns
+        PatternSet set = PatternSet.compile(Arrays.asList("(?<x>a)", "(?<x>b)", "c"), false, false, UTF8);
+        LineMatcher matcher = set.newLineMatcher();
+        assertTrue(matcher.matches("a"));
+        assertTrue(matcher.matches("b"));
+        assertTrue(matcher.matches("c"));
+        assertFalse(matcher.matches("d"));
+        assertTrue(PatternSet.hasNamedGroup("x(?<name>y)"));
+        assertFalse(PatternSet.hasNamedGroup("(?<=a)b"));
+        assertFalse(PatternSet.hasNamedGroup("\\(?<a"));
+    }
+
+    @Test
+    public void testEmptySetMatchesNothing() {
+        PatternSet set = PatternSet.compile(Collections.<String>emptyList(), false, false, UTF8);
+        assertFalse(set.newLineMatcher().matches(""));
+        assertFalse(set.newLineMatcher().matches("any line"));
+    }
+
+    @Test
+    public void testCompiledSetsAreCached() {
+        PatternSet first = PatternSet.compile(Arrays.asList("cached", "set"), false, true, UTF8);
+        assertSame(first, PatternSet.compile(Arrays.asList("cached", "set"), false, true, UTF8));
+        assertNotSame(first, PatternSet.compile(Arrays.asList("cached", "set"), false, false, UTF8));
+        assertNotSame(first, PatternSet.compile(Arrays.asList("cached", "set"), true, true, UTF8));
+    }
+}
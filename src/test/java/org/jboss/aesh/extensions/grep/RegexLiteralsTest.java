@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.grep;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RegexLiteralsTest {
+
+    @Test
+    public void testRequiredLiteral() {
+        assertEquals("timeout", RegexLiterals.requiredLiteral("ERROR.*timeout"));
+        assertEquals("ERROR", RegexLiterals.requiredLiteral("^ERROR\\s+\\d+"));
+        assertEquals("colo", RegexLiterals.requiredLiteral("colou?r"));
+        assertEquals("ab", RegexLiterals.requiredLiteral("ab+c"));
+        assertEquals("a.b", RegexLiterals.requiredLiteral("[xy]a\\.b(c|d)*"));
+        assertEquals("foo", RegexLiterals.requiredLiteral("foo[]x]{2,3}?"));
+    }
+
+    @Test
+    public void testNoRequiredLiteral() {
+        assertNull(RegexLiterals.requiredLiteral("foo|bar"));
+        assertNull(RegexLiterals.requiredLiteral("(?i)error"));
+        assertNull(RegexLiterals.requiredLiteral("\\Qa.b\\E"));
+        assertNull(RegexLiterals.requiredLiteral("\\x41BC"));
+        assertNull(RegexLiterals.requiredLiteral(".*"));
+        assertNull(RegexLiterals.requiredLiteral("a?"));
+    }
+
+    @Test
+    public void testPrefilteredMatcher() {
+        PatternSet set = PatternSet.compile(Arrays.asList("ERROR.*timeout", "WARN\\d"), false, true,
+                StandardCharsets.UTF_8);
+        assertTrue(set.hasPrefilter());
+        PrefilterLineMatcher.Stats stats = new PrefilterLineMatcher.Stats();
+        LineMatcher matcher = set.newLineMatcher(stats);
+        assertTrue(matcher.matches("error: read TIMEOUT"));
+        assertTrue(matcher.matches("warn1"));
+        assertFalse(matcher.matches("timeout without error"));
+        assertFalse(matcher.matches("all good"));
+        assertEquals(4, stats.getLines());
+        assertEquals(3, stats.getCandidates());
+        assertEquals(2, stats.getMatches());
+
+        assertFalse(PatternSet.compile(Arrays.asList("ERROR", "x*"), false, false,
+                StandardCharsets.UTF_8).hasPrefilter());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.less;
+
+import org.jboss.aesh.extensions.common.AeshTestCommons;
+import org.jboss.aesh.extensions.less.aesh.Less;
+import org.jboss.aesh.util.ANSI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertTrue;
+
+public class LessTest extends AeshTestCommons {
+
+    private Path tempDir;
+
+    @Before
+    public void before() throws IOException {
+        tempDir = createTempDirectory();
+    }
+
+    @After
+    public void after() throws IOException {
+        deleteRecursiveTempDirectory(tempDir);
+    }
+
+    private Path createFile(String name, int lines, String last) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < lines; i++)
+            text.append("line ").append(i).append('\n');
+        text.append(last).append('\n');
+        return Files.write(tempDir.resolve(name), text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    //keys typed in the pager, one at a time
+    private void type(String keys) throws IOException {
+        for(char key : keys.toCharArray()) {
+            getPipedOutputStream().write(key);
+            getPipedOutputStream().flush();
+            smallPause();
+        }
+    }
+
+    //the page is loaded and searched in the background
+    private boolean waitForOutput(String expected) {
+        for(int i = 0; i < 50 && !getStream().toString().contains(expected); i++)
+            smallPause();
+        return getStream().toString().contains(expected);
+    }
+
+    @Test
+    public void testEndShowsTheLastLine() throws IOException {
+        Path file = createFile("long.txt", 50000, "the last line");
+
+        prepare(Less.class);
+        pushToOutput("less " + file.toFile().getAbsolutePath());
+        type("G");
+        assertTrue(waitForOutput("the last line"));
+        type("q");
+        finish();
+    }
+
+    @Test
+    public void testSearchSeesTheWholeFile() throws IOException {
+        Path file = createFile("long.txt", 50000, "the last needle");
+
+        prepare(Less.class);
+        pushToOutput("less " + file.toFile().getAbsolutePath());
+        type("/needle\n");
+        assertTrue(waitForOutput(ANSI.INVERT_BACKGROUND + "needle" + ANSI.RESET));
+        type("q");
+        finish();
+    }
+
+    @Test
+    public void testIgnoreCaseUnlessUpperCase() throws IOException {
+        Path file = createFile("case.txt", 10, "an ERROR was logged");
+
+        prepare(Less.class);
+        pushToOutput("less " + file.toFile().getAbsolutePath());
+        type("/error\n");
+        assertTrue(waitForOutput("Pattern not found"));
+        type("q");
+
+        getStream().reset();
+        pushToOutput("less -i " + file.toFile().getAbsolutePath());
+        type("/error\n");
+        assertTrue(waitForOutput(ANSI.INVERT_BACKGROUND + "ERROR" + ANSI.RESET));
+        type("q");
+
+        //an upper case letter makes the search case sensitive again
+        getStream().reset();
+        pushToOutput("less --ignore-case " + file.toFile().getAbsolutePath());
+        type("/Error\n");
+        assertTrue(waitForOutput("Pattern not found"));
+        type("q");
+        finish();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import org.jboss.aesh.extensions.text.highlight.Encoder;
+import org.jboss.aesh.extensions.text.highlight.StringScanner;
+import org.jboss.aesh.extensions.text.highlight.Syntax;
+import org.jboss.aesh.extensions.text.highlight.encoder.ColorProfile;
+import org.jboss.aesh.extensions.text.highlight.encoder.TerminalEncoder.TerminalString;
+import org.jboss.aesh.extensions.text.highlight.scanner.JavaScanner;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class HighlightedPageTest {
+
+    private static final String KEYWORD = "\u001B[38;5;";
+
+    @Test
+    public void testRowsMatchThePlainText() {
+        List<String> lines = new ArrayList<>();
+        for(int i = 0; i < 1000; i++)
+            lines.add(i % 10 == 0 ? "String s" + i + " = \"a rather long string that is wrapped\";" : "return i + " + i + ";");
+        HighlightedPage page = open(lines, 12);
+        try {
+            List<String> expected = new ArrayList<>();
+            LineWrapper wrapper = new LineWrapper(12);
+            for(String line : lines)
+                wrapper.wrap(line, expected);
+
+            page.waitFor(Integer.MAX_VALUE);
+            assertEquals(expected.size(), page.size());
+            for(int row = expected.size() - 1; row >= 0; row -= 3)
+                assertEquals(expected.get(row), strip(page.getLine(row)));
+            //every row of a wrapped string is colored on its own
+            assertTrue(page.getLine(2).startsWith(KEYWORD));
+            assertTrue(page.getLine(2).endsWith("\u001B[0m"));
+            assertTrue(page.getLine(expected.indexOf("return i + 1")).startsWith(KEYWORD));
+        }
+        finally {
+            page.clear();
+        }
+    }
+
+    @Test
+    public void testBlockContinuingACommentIsHighlightedAgain() {
+        List<String> lines = new ArrayList<>();
+        for(int i = 0; i < HighlightedPage.BLOCK_LINES - 1; i++)
+            lines.add("int i" + i + ";");
+        lines.add("/*");
+        lines.add("return commented;");
+        lines.add("*/");
+        lines.add("return code;");
+        int commented = HighlightedPage.BLOCK_LINES;
+        HighlightedPage page = open(lines, 80);
+        try {
+            page.waitFor(Integer.MAX_VALUE);
+            //jumping straight to the second block, it is scanned as if nothing was open
+            assertTrue(page.getLine(commented).contains(KEYWORD));
+            //once the first block is known to end in a comment, the second one is scanned from it
+            page.getLine(0);
+            assertFalse(page.getLine(commented).contains(KEYWORD));
+            assertEquals("return commented;", page.getLine(commented));
+            assertTrue(page.getLine(commented + 2).contains(KEYWORD));
+        }
+        finally {
+            page.clear();
+        }
+    }
+
+    @Test
+    public void testBlockStartsInTheStateTheOneBeforeEndsIn() {
+        List<String> lines = new ArrayList<>();
+        for(int i = 0; i < HighlightedPage.BLOCK_LINES - 1; i++)
+            lines.add("int i" + i + ";");
+        lines.add("public class");
+        lines.add("   Foo {");
+        lines.add("}");
+        int name = HighlightedPage.BLOCK_LINES;
+        String className = "   " + KEYWORD + TerminalString.from(Color.CYAN) + "mFoo";
+        HighlightedPage page = open(lines, 80);
+        try {
+            page.waitFor(Integer.MAX_VALUE);
+            //scanned as if the block started a file, Foo is a plain identifier
+            assertEquals("   Foo {", page.getLine(name));
+            //the first block ends expecting a class name
+            page.getLine(0);
+            assertTrue(page.getLine(name).startsWith(className));
+            assertEquals("   Foo {", strip(page.getLine(name)));
+
+            //scanned from the snapshot of the first block
+            page.clear();
+            page = open(lines, 80);
+            page.waitFor(Integer.MAX_VALUE);
+            page.getLine(0);
+            assertTrue(page.getLine(name).startsWith(className));
+        }
+        finally {
+            page.clear();
+        }
+    }
+
+    @Test
+    public void testBlockStartingWithBlankLinesGetsASnapshot() {
+        //the blank lines start on the first line of the second block, or on the lines before it
+        for(int before = -1; before <= 2; before++) {
+            List<String> lines = new ArrayList<>();
+            for(int i = 0; i < HighlightedPage.BLOCK_LINES - 2 - before; i++)
+                lines.add("int i" + i + ";");
+            lines.add("public class");
+            while(lines.size() < HighlightedPage.BLOCK_LINES + 2)
+                lines.add(lines.size() % 2 == 0 ? "" : "  ");
+            lines.add("   Foo {");
+            lines.add("}");
+            int name = lines.size() - 2;
+            final List<Object> snapshots = new ArrayList<>();
+            JavaScanner scanner = new JavaScanner() {
+                @Override
+                public void scan(StringScanner source, Encoder encoder, Map<String, Object> options,
+                                 Snapshot snapshot, Listener listener) {
+                    snapshots.add(snapshot);
+                    super.scan(source, encoder, options, snapshot, listener);
+                }
+            };
+            HighlightedPage page = HighlightedPage.open(new ListPage("Test.java", lines), scanner,
+                    Syntax.defaultTheme(), ColorProfile.XTERM_256, 80);
+            try {
+                page.waitFor(Integer.MAX_VALUE);
+                page.getLine(0);
+                snapshots.clear();
+                //scanned from the snapshot of the first block, not from the first block
+                assertTrue(page.getLine(name).startsWith("   " + KEYWORD + TerminalString.from(Color.CYAN) + "mFoo"));
+                assertEquals(1, snapshots.size());
+                assertNotNull(snapshots.get(0));
+                assertEquals(lines.get(HighlightedPage.BLOCK_LINES), page.getLine(HighlightedPage.BLOCK_LINES));
+            }
+            finally {
+                page.clear();
+            }
+        }
+    }
+
+    @Test
+    public void testColorProfile() {
+        List<String> lines = new ArrayList<>();
+        lines.add("return i;");
+        HighlightedPage page = open(lines, ColorProfile.NONE, 80);
+        try {
+            assertEquals("return i;", page.getLine(0));
+        }
+        finally {
+            page.clear();
+        }
+        page = open(lines, ColorProfile.ANSI_16, 80);
+        try {
+            assertTrue(page.getLine(0).matches("\u001B\\[(3|9)\\dmreturn\u001B\\[0m i;"));
+        }
+        finally {
+            page.clear();
+        }
+    }
+
+    private static HighlightedPage open(List<String> lines, int columns) {
+        return open(lines, ColorProfile.XTERM_256, columns);
+    }
+
+    private static HighlightedPage open(List<String> lines, ColorProfile profile, int columns) {
+        return HighlightedPage.open(new ListPage("Test.java", lines), new JavaScanner(), Syntax.defaultTheme(),
+                profile, columns);
+    }
+
+    private static String strip(String row) {
+        return row.replaceAll("\u001B\\[[0-9;]*m", "");
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyFilePageTest {
+
+    private static final int COLUMNS = 20;
+
+    @Test
+    public void testRowsMatchEagerLoading() throws IOException {
+        File file = File.createTempFile("lazy", ".txt");
+        try {
+            Random random = new Random(42);
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset())) {
+                for(int i = 0; i < 5000; i++) {
+                    int length = random.nextInt(10) == 0 ? random.nextInt(200) : random.nextInt(30);
+                    StringBuilder line = new StringBuilder();
+                    for(int c = 0; c < length; c++)
+                        if(c % 7 == 0)
+                            line.append('é');
+                        else if(c % 11 == 0)
+                            line.append('漢');
+                        else if(c % 13 == 0)
+                            line.append("\u001B[31m");
+                        else
+                            line.append((char) ('a' + random.nextInt(26)));
+                    writer.write(line.toString());
+                    writer.write(i % 3 == 0 ? "\r\n" : "\n");
+                }
+                writer.write("last line without a newline");
+            }
+
+            SimpleFileParser parser = new SimpleFileParser();
+            parser.setFile(file);
+            List<String> expected = parser.loadPage(COLUMNS);
+
+            LazyFilePage page = LazyFilePage.open(file, Charset.defaultCharset(), COLUMNS);
+            try {
+                page.waitFor(Integer.MAX_VALUE);
+                assertTrue(page.isComplete());
+                assertEquals(expected.size(), page.size());
+                for(int i = 0; i < expected.size(); i++)
+                    assertEquals(expected.get(i), page.getLine(i));
+                //jumping around goes through the checkpoints
+                for(int i = 0; i < 1000; i++) {
+                    int row = random.nextInt(expected.size());
+                    assertEquals(expected.get(row), page.getLine(row));
+                }
+            }
+            finally {
+                page.clear();
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testUpdateReadsAppendedData() throws IOException {
+        File file = File.createTempFile("lazy", ".log");
+        try {
+            append(file, "first\nsecond\npart");
+            LazyFilePage page = LazyFilePage.open(file, Charset.defaultCharset(), COLUMNS);
+            try {
+                page.waitFor(Integer.MAX_VALUE);
+                assertEquals(3, page.size());
+                assertEquals("part", page.getLine(2));
+                assertEquals(-1, page.update());
+
+                //the last line is completed and followed by a line longer than a row
+                append(file, "ial\n0123456789012345678901234\n");
+                assertEquals(2, page.update());
+                assertEquals(5, page.size());
+                assertEquals("partial", page.getLine(2));
+                assertEquals("01234567890123456789", page.getLine(3));
+                assertEquals("01234", page.getLine(4));
+                assertEquals("second", page.getLine(1));
+
+                //truncated, e.g. by a log rotation
+                try (FileOutputStream out = new FileOutputStream(file)) {
+                    out.write("new\n".getBytes());
+                }
+                assertEquals(0, page.update());
+                assertEquals(1, page.size());
+                assertEquals("new", page.getLine(0));
+            }
+            finally {
+                page.clear();
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLongLinesAreCapped() throws IOException {
+        File file = File.createTempFile("lazy", ".txt");
+        try {
+            append(file, "short\n0123456789012345678901234567890123456789012\nend\n");
+            LazyFilePage page = LazyFilePage.open(file, Charset.defaultCharset(), COLUMNS, 25);
+            try {
+                page.waitFor(Integer.MAX_VALUE);
+                assertEquals(5, page.size());
+                assertEquals("01234567890123456789", page.getLine(1));
+                assertEquals("01234", page.getLine(2));
+                assertEquals("", page.getLine(3));
+                assertEquals("end", page.getLine(4));
+            }
+            finally {
+                page.clear();
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testInterleavedReadersKeepTheirLines() throws IOException {
+        File file = File.createTempFile("lazy", ".txt");
+        try {
+            StringBuilder text = new StringBuilder();
+            for(int i = 0; i < 2000; i++)
+                text.append("line ").append(i).append('\n');
+            append(file, text.toString());
+            LazyFilePage page = LazyFilePage.open(file, Charset.defaultCharset(), COLUMNS);
+            try {
+                page.waitFor(Integer.MAX_VALUE);
+                //a search reading forward while the display reads around another row
+                for(int i = 0; i < 1000; i++) {
+                    assertEquals("line " + i, page.getLine(i));
+                    assertEquals("line " + (1500 + i % 20), page.getLine(1500 + i % 20));
+                }
+            }
+            finally {
+                page.clear();
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRowsOfALastLineWithoutNewline() throws IOException {
+        File file = File.createTempFile("lazy", ".txt");
+        try {
+            StringBuilder text = new StringBuilder();
+            for(int i = 0; text.length() < 5000; i++)
+                text.append(i).append(i % 7 == 0 ? ", " : ",");
+            append(file, "first\n" + text);
+            LazyFilePage page = LazyFilePage.open(file, Charset.defaultCharset(), COLUMNS);
+            try {
+                page.waitFor(Integer.MAX_VALUE);
+                List<String> expected = new ArrayList<>();
+                expected.add("first");
+                new LineWrapper(COLUMNS).wrap(text.toString(), expected);
+                assertEquals(expected.size(), page.size());
+                for(int row = 0; row < expected.size(); row++)
+                    assertEquals(expected.get(row), page.getLine(row));
+
+                //the cached last line is decoded again once it grows
+                append(file, "0123456789012345678901234\n");
+                assertEquals(1, page.update());
+                page.waitFor(Integer.MAX_VALUE);
+                expected.clear();
+                expected.add("first");
+                new LineWrapper(COLUMNS).wrap(text + "0123456789012345678901234", expected);
+                assertEquals(expected.size(), page.size());
+                assertEquals(expected.get(expected.size() - 1), page.getLine(page.size() - 1));
+            }
+            finally {
+                page.clear();
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testMultiMegabyteLine() throws IOException {
+        File file = File.createTempFile("lazy", ".json");
+        try {
+            //minified JSON, a single line of 4 MB
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file))) {
+                out.write('[');
+                for(int i = 0; i < 200000; i++)
+                    out.write("{\"id\":" + (100000 + i) + ",\"ok\":true},");
+                out.write("{}]");
+            }
+            LazyFilePage page = LazyFilePage.open(file, Charset.defaultCharset(), 80);
+            try {
+                page.waitFor(Integer.MAX_VALUE);
+                int length = 0;
+                for(int row = 0; row < page.size(); row++)
+                    length += page.getLine(row).length();
+                assertEquals(file.length(), length);
+            }
+            finally {
+                page.clear();
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    private static void append(File file, String text) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(text.getBytes());
+        }
+    }
+
+    @Test
+    public void testCreatePage() throws IOException {
+        File file = File.createTempFile("lazy", ".txt");
+        try {
+            SimpleFileParser parser = new SimpleFileParser();
+            parser.setFile(file);
+            Page page = parser.createPage(COLUMNS);
+            assertTrue(page instanceof LazyFilePage || !LazyFilePage.isSupported(Charset.defaultCharset()));
+            page.waitFor(1);
+            assertEquals(0, page.size());
+            assertTrue(page.canGrow() || !LazyFilePage.isSupported(Charset.defaultCharset()));
+            page.clear();
+
+            parser = new SimpleFileParser();
+            parser.readPageAsString("one\ntwo");
+            page = parser.createPage(COLUMNS);
+            assertEquals(2, page.size());
+            assertEquals("two", page.getLine(1));
+            //text given as a string can not be followed
+            assertFalse(page.canGrow());
+        }
+        finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class LineWrapperTest {
+
+    @Test
+    public void testWrap() {
+        LineWrapper wrapper = new LineWrapper(4);
+        assertEquals(Arrays.asList(""), wrap(wrapper, ""));
+        assertEquals(Arrays.asList("abcd"), wrap(wrapper, "abcd"));
+        assertEquals(Arrays.asList("abcd", "efgh", "i"), wrap(wrapper, "abcdefghi"));
+        assertEquals(3, wrapper.rowCount("abcdefghi"));
+        assertArrayEquals(new int[]{0, 4, 8}, wrapper.rowStarts("abcdefghi"));
+        assertArrayEquals(new int[]{0}, wrapper.rowStarts(""));
+    }
+
+    @Test
+    public void testWideCharsAndEscapes() {
+        LineWrapper wrapper = new LineWrapper(4);
+        //a wide char that does not fit starts the next row
+        assertEquals(Arrays.asList("a漢", "漢漢", "b"), wrap(wrapper, "a漢漢漢b"));
+        //escapes and combining marks take no columns
+        assertEquals(Arrays.asList("\u001B[31mabcd\u001B[0m", "e"), wrap(wrapper, "\u001B[31mabcd\u001B[0me"));
+        assertEquals(Arrays.asList("e\u0301abc"), wrap(wrapper, "e\u0301abc"));
+        assertEquals(2, LineWrapper.width(0x1F600));
+        assertEquals(1, LineWrapper.width('a'));
+    }
+
+    private static List<String> wrap(LineWrapper wrapper, String line) {
+        List<String> rows = new ArrayList<>();
+        wrapper.wrap(line, rows);
+        return rows;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PageSearchTest {
+
+    @Test
+    public void testNextAndPrevious() {
+        List<String> lines = new ArrayList<>();
+        for(int i = 0; i < 20000; i++)
+            lines.add(i % 1000 == 7 ? "an ERROR on row " + i : "row " + i);
+        PageSearch search = PageSearch.start(new ListPage("test", lines), SearchPattern.compile("ERROR", false));
+
+        assertEquals(7, search.next(0));
+        assertEquals(1007, search.next(7));
+        assertEquals(19007, search.next(18500));
+        assertEquals(-1, search.next(19007));
+        assertEquals(18007, search.previous(19007));
+        assertEquals(7, search.previous(1007));
+        assertEquals(-1, search.previous(7));
+
+        search.waitForCompletion();
+        assertTrue(search.isComplete());
+        assertEquals(20, search.getHitCount());
+    }
+
+    @Test
+    public void testRegexAndSmartCase() {
+        List<String> lines = new ArrayList<>();
+        lines.add("timeout after 30s");
+        lines.add("Timeout after 5s");
+        lines.add("all good");
+        assertEquals(0, PageSearch.start(new ListPage("test", lines), SearchPattern.compile("t.*\\d+s", false)).next(-1));
+        //no upper case letter, so case is ignored
+        PageSearch search = PageSearch.start(new ListPage("test", lines), SearchPattern.compile("timeout", true));
+        assertEquals(1, search.next(0));
+        search = PageSearch.start(new ListPage("test", lines), SearchPattern.compile("Timeout", true));
+        assertEquals(1, search.next(-1));
+        //not a valid regex, searched for literally
+        assertEquals(-1, PageSearch.start(new ListPage("test", lines), SearchPattern.compile("a(", false)).next(-1));
+    }
+
+    @Test
+    public void testFindAll() {
+        assertArrayEquals(new int[]{0, 2, 4, 6}, SearchPattern.findAll(SearchPattern.compile("ab", true).matcher(), "ab..aB."));
+        assertArrayEquals(new int[]{1, 2}, SearchPattern.findAll(SearchPattern.compile("b*", false).matcher(), "abc"));
+        assertArrayEquals(new int[0], SearchPattern.findAll(SearchPattern.compile("x", false).matcher(), "abc"));
+    }
+
+    @Test
+    public void testNotFound() {
+        List<String> lines = new ArrayList<>();
+        lines.add("nothing here");
+        PageSearch search = PageSearch.start(new ListPage("test", lines), SearchPattern.compile("ERROR", false));
+        assertEquals(-1, search.next(0));
+        assertEquals(0, search.getHitCount());
+    }
+}
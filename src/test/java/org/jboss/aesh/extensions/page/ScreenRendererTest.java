@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScreenRendererTest {
+
+    private static final String CSI = "\u001B[";
+
+    @Test
+    public void testOnlyChangedRowsAreWritten() {
+        ScreenRenderer renderer = new ScreenRenderer(3);
+        StringBuilder out = new StringBuilder();
+        renderer.render(out, 0, new String[]{"a", "b", null});
+        assertEquals(CSI + "H" + CSI + "2J" + CSI + "1;1H" + CSI + "2Ka" + CSI + "2;1H" + CSI + "2Kb", out.toString());
+
+        out.setLength(0);
+        renderer.render(out, 0, new String[]{"a", "b", null});
+        assertEquals("", out.toString());
+
+        out.setLength(0);
+        renderer.render(out, 0, new String[]{"a", "c", null});
+        assertEquals(CSI + "2;1H" + CSI + "2Kc", out.toString());
+    }
+
+    @Test
+    public void testScroll() {
+        ScreenRenderer renderer = new ScreenRenderer(3);
+        StringBuilder out = new StringBuilder();
+        renderer.render(out, 0, new String[]{"0", "1", "2"});
+
+        //one row down, the rows still visible are moved and only row 3 is written
+        out.setLength(0);
+        renderer.render(out, 1, new String[]{"1", "2", "3"});
+        assertEquals(CSI + "1;3r" + CSI + "1;1H" + CSI + "1M" + CSI + "r" + CSI + "3;1H" + CSI + "2K3", out.toString());
+
+        out.setLength(0);
+        renderer.render(out, 0, new String[]{"0", "1", "2"});
+        assertEquals(CSI + "1;3r" + CSI + "1;1H" + CSI + "1L" + CSI + "r" + CSI + "1;1H" + CSI + "2K0", out.toString());
+
+        //a jump of a whole screen writes every row
+        out.setLength(0);
+        renderer.render(out, 10, new String[]{"10", "11", "12"});
+        assertEquals(CSI + "1;1H" + CSI + "2K10" + CSI + "2;1H" + CSI + "2K11" + CSI + "3;1H" + CSI + "2K12", out.toString());
+    }
+
+    @Test
+    public void testInvalidateWritesTheWholeFrame() {
+        ScreenRenderer renderer = new ScreenRenderer(2);
+        StringBuilder out = new StringBuilder();
+        renderer.render(out, 0, new String[]{"a", "b"});
+
+        out.setLength(0);
+        renderer.invalidate();
+        renderer.render(out, 0, new String[]{"a", "b"});
+        assertEquals(CSI + "H" + CSI + "2J" + CSI + "1;1H" + CSI + "2Ka" + CSI + "2;1H" + CSI + "2Kb", out.toString());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.page;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpooledPageTest {
+
+    @Test
+    public void testGzipFile() throws IOException {
+        File file = File.createTempFile("spooled", ".log.gz");
+        try {
+            try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+                writeLines(out);
+            }
+            assertNotNull(Decompressor.Factory.forFileName(file.getName()));
+            assertPagedAsLoaded(file);
+        }
+        finally {
+            file.delete();
+        }
+        assertNotNull(Decompressor.Factory.forFileName("logs.tgz"));
+    }
+
+    @Test
+    public void testBzip2File() throws IOException {
+        File file = File.createTempFile("spooled", ".log.bz2");
+        try {
+            try (OutputStream out = new BZip2CompressorOutputStream(new FileOutputStream(file))) {
+                writeLines(out);
+            }
+            assertNotNull(Decompressor.Factory.forFileName(file.getName()));
+            assertPagedAsLoaded(file);
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    private static void writeLines(OutputStream out) throws IOException {
+        for(int i = 0; i < 20000; i++)
+            out.write(("line " + i + (i % 100 == 0 ? " with a rather long text after it" : "") + "\n").getBytes());
+    }
+
+    private static void assertPagedAsLoaded(File file) throws IOException {
+        SimpleFileParser parser = new SimpleFileParser();
+        parser.setFile(file);
+        List<String> expected = parser.loadPage(20);
+
+        parser = new SimpleFileParser();
+        parser.setFile(file);
+        Page page = parser.createPage(20);
+        try {
+            if(LazyFilePage.isSupported(Charset.defaultCharset()))
+                assertTrue(page instanceof SpooledPage);
+            page.waitFor(Integer.MAX_VALUE);
+            assertTrue(page.isComplete());
+            assertEquals(expected.size(), page.size());
+            for(int i = expected.size() - 1; i >= 0; i -= 7)
+                assertEquals(expected.get(i), page.getLine(i));
+        }
+        finally {
+            page.clear();
+        }
+    }
+
+    @Test
+    public void testRowsShowBeforeTheStreamEnds() throws IOException {
+        PipedOutputStream producer = new PipedOutputStream();
+        SpooledPage page = SpooledPage.open(new PipedInputStream(producer), "pipe",
+                Charset.defaultCharset(), 80, true);
+        try {
+            producer.write("first\nsecond\n".getBytes());
+            producer.flush();
+            page.waitFor(2);
+            assertEquals(2, page.size());
+            assertEquals("second", page.getLine(1));
+            assertFalse(page.isComplete());
+            assertTrue(page.canGrow());
+            assertEquals(0, page.update());
+            assertEquals(-1, page.update());
+
+            producer.write("third\n".getBytes());
+            producer.close();
+            page.waitFor(Integer.MAX_VALUE);
+            assertTrue(page.isComplete());
+            assertFalse(page.canGrow());
+            assertEquals(3, page.size());
+            assertEquals("third", page.getLine(2));
+        }
+        finally {
+            page.clear();
+        }
+    }
+
+    @Test
+    public void testStdInIsPagedWhileRead() throws IOException {
+        PipedOutputStream producer = new PipedOutputStream();
+        final boolean[] closed = new boolean[1];
+        SimpleFileParser parser = new SimpleFileParser();
+        parser.setStdIn(new FilterInputStream(new PipedInputStream(producer)) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        });
+        parser.loadInBackground(2);
+        List<String> lines = parser.loadPage(80);
+        try {
+            producer.write("first\nsecond\n".getBytes());
+            producer.flush();
+            //the first screen is there before the input ends
+            assertEquals(2, lines.size());
+            assertEquals("first", lines.get(0));
+
+            producer.write("third".getBytes());
+            producer.close();
+            List<String> all = new ArrayList<>();
+            for(String line : lines)
+                all.add(line);
+            assertEquals(Arrays.asList("first", "second", "third"), all);
+            assertEquals(3, lines.size());
+            assertFalse(closed[0]);
+        }
+        finally {
+            lines.clear();
+        }
+    }
+
+    @Test
+    public void testUnknownSuffix() {
+        assertNull(Decompressor.Factory.forFileName("server.log"));
+    }
+}
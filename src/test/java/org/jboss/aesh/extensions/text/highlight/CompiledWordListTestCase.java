@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight;
+
+import org.jboss.aesh.extensions.text.highlight.scanner.JavaScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.java.BuiltInTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledWordListTestCase {
+
+   @Test
+   public void shouldFindWhatTheWordListFinds() throws Exception {
+      CompiledWordList<TokenType> compiled = JavaScanner.IDENT_KIND.compile();
+      for (String[] words : new String[][]{JavaScanner.KEYWORDS, BuiltInTypes.PREDEFINED_TYPES,
+            BuiltInTypes.EXCEPTION_TYPES}) {
+         for (String word : words) {
+            Assert.assertEquals(word, JavaScanner.IDENT_KIND.lookup(word), compiled.lookup(word));
+         }
+      }
+      Assert.assertEquals(TokenType.ident, compiled.lookup("Strin"));
+      Assert.assertEquals(TokenType.ident, compiled.lookup("Strings"));
+      Assert.assertEquals(TokenType.ident, compiled.lookup(""));
+   }
+
+   @Test
+   public void shouldLookUpRegions() throws Exception {
+      CompiledWordList<TokenType> compiled = new WordList<TokenType>(TokenType.ident)
+            .add(new String[]{"for", "final"}, TokenType.keyword)
+            .add(new String[]{"final"}, TokenType.reserved)
+            .compile();
+      StringBuilder text = new StringBuilder("x=final;for(");
+      Assert.assertEquals(TokenType.reserved, compiled.lookup(text, 2, 7));
+      Assert.assertEquals(TokenType.keyword, compiled.lookup(text, 8, 11));
+      Assert.assertEquals(TokenType.ident, compiled.lookup(text, 8, 10));
+      Assert.assertEquals(TokenType.ident, compiled.lookup(text, 0, 1));
+   }
+
+   @Test
+   public void shouldFoldCase() throws Exception {
+      CompiledWordList<TokenType> compiled = new WordList<TokenType>(null, true)
+            .add(new String[]{"SELECT", "from"}, TokenType.keyword)
+            .compile();
+      Assert.assertEquals(TokenType.keyword, compiled.lookup("select"));
+      Assert.assertEquals(TokenType.keyword, compiled.lookup("FROM"));
+      Assert.assertEquals(TokenType.keyword, compiled.lookup("sElEcT"));
+      Assert.assertNull(compiled.lookup("where"));
+
+      CompiledWordList<TokenType> caseSensitive = new WordList<TokenType>(null)
+            .add(new String[]{"from"}, TokenType.keyword)
+            .compile();
+      Assert.assertNull(caseSensitive.lookup("FROM"));
+   }
+
+   @Test
+   public void shouldLookUpMatchesInTheSource() throws Exception {
+      CompiledWordList<TokenType> compiled = JavaScanner.IDENT_KIND.compile();
+      StringScanner scanner = new StringScanner("for String");
+      Assert.assertEquals(TokenType.keyword, scanner.lookup(compiled, scanner.scan("\\w+")));
+      scanner.scan(" ");
+      Assert.assertEquals(TokenType.predefined_type, scanner.lookup(compiled, scanner.scan("\\w+")));
+   }
+}
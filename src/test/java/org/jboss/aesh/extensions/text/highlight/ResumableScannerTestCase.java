@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.aesh.extensions.text.highlight.scanner.JavaScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.PlainScanner;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResumableScannerTestCase {
+
+   private static final String SOURCE =
+         "package a.b;\n" +
+               "import\n" +
+               "   java.util.List;\n" +
+               "/* a comment\n" +
+               "   over lines */\n" +
+               "public class\n" +
+               "   Foo {\n" +
+               "   String s = \"text\";\n" +
+               "}\n";
+
+   @Test
+   public void shouldWriteTheSameTokensFromEverySnapshot() throws Exception {
+      for (ResumableScanner scanner : new ResumableScanner[]{new JavaScanner(), new PlainScanner()}) {
+         RecordingEncoder full = new RecordingEncoder();
+         List<Object[]> snapshots = scan(scanner, full);
+         Assert.assertFalse(snapshots.isEmpty());
+
+         for (Object[] snapshot : snapshots) {
+            int index = (Integer) snapshot[0];
+            int line = SOURCE.lastIndexOf('\n', index - 1) + 1;
+            Assert.assertEquals("", SOURCE.substring(line, index).trim());
+
+            RecordingEncoder resumed = new RecordingEncoder();
+            scanner.scan(new StringScanner(SOURCE, index), resumed, Options.create(),
+                  (ResumableScanner.Snapshot) snapshot[1], null);
+            List<String> rest = full.tokens.subList((Integer) snapshot[2], full.tokens.size());
+            Assert.assertEquals(scanner.getType().getName() + " at " + index, rest, resumed.tokens);
+         }
+      }
+   }
+
+   @Test
+   public void shouldNotTakeSnapshotsInsideTokens() throws Exception {
+      for (Object[] snapshot : scan(new JavaScanner(), new RecordingEncoder())) {
+         Assert.assertFalse(SOURCE.startsWith("over lines", (Integer) snapshot[0]));
+      }
+   }
+
+   @Test
+   public void shouldKeepTheStateOverLines() throws Exception {
+      RecordingEncoder encoder = new RecordingEncoder();
+      List<Object[]> snapshots = scan(new JavaScanner(), encoder);
+      Assert.assertTrue(encoder.tokens.contains("include:java.util.List"));
+      Assert.assertTrue(encoder.tokens.contains("class_:Foo"));
+
+      // the snapshots after import and class differ from the one after a semi colon
+      Object[] afterImport = find(snapshots, SOURCE.indexOf("java.util"));
+      Object[] afterClass = find(snapshots, SOURCE.indexOf("Foo"));
+      Object[] afterPackage = find(snapshots, SOURCE.indexOf("import"));
+      Assert.assertFalse(afterImport[1].equals(afterPackage[1]));
+      Assert.assertFalse(afterClass[1].equals(afterPackage[1]));
+      Assert.assertEquals(afterPackage[1], find(snapshots, SOURCE.indexOf("}"))[1]);
+   }
+
+   @Test
+   public void shouldStopWhenTheListenerSaysSo() throws Exception {
+      RecordingEncoder encoder = new RecordingEncoder();
+      final List<Integer> lines = new ArrayList<Integer>();
+      new JavaScanner().scan(new StringScanner(SOURCE), encoder, Options.create(), null,
+            new ResumableScanner.Listener() {
+               @Override
+               public boolean lineStart(int index, ResumableScanner.Snapshot snapshot) {
+                  lines.add(index);
+                  return lines.size() < 2;
+               }
+            });
+      Assert.assertEquals(2, lines.size());
+      Assert.assertEquals("space:\n   ", encoder.tokens.get(encoder.tokens.size() - 1));
+   }
+
+   private static List<Object[]> scan(ResumableScanner scanner, final RecordingEncoder encoder) {
+      final List<Object[]> snapshots = new ArrayList<Object[]>();
+      scanner.scan(new StringScanner(SOURCE), encoder, Options.create(), null, new ResumableScanner.Listener() {
+         @Override
+         public boolean lineStart(int index, ResumableScanner.Snapshot snapshot) {
+            snapshots.add(new Object[]{index, snapshot, encoder.tokens.size()});
+            return true;
+         }
+      });
+      return snapshots;
+   }
+
+   private static Object[] find(List<Object[]> snapshots, int index) {
+      for (Object[] snapshot : snapshots) {
+         if ((Integer) snapshot[0] == index) {
+            return snapshot;
+         }
+      }
+      throw new AssertionError("No snapshot at " + index);
+   }
+
+   private static class RecordingEncoder implements Encoder {
+      private final List<String> tokens = new ArrayList<String>();
+
+      @Override
+      public void textToken(String text, TokenType type) {
+         tokens.add(type + ":" + text);
+      }
+
+      @Override
+      public void beginGroup(TokenType type) {
+         tokens.add("begin " + type);
+      }
+
+      @Override
+      public void endGroup(TokenType type) {
+         tokens.add("end " + type);
+      }
+
+      @Override
+      public void beginLine(TokenType type) {
+         tokens.add("begin line " + type);
+      }
+
+      @Override
+      public void endLine(TokenType type) {
+         tokens.add("end line " + type);
+      }
+   }
+}
@@ -0,0 +1,185 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight;
+
+import org.jboss.aesh.extensions.text.highlight.scanner.GroovyScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.HTMLScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.JavaScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.JavaScriptScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.PlainScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.SQLScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.XMLScanner;
+import org.jboss.aesh.extensions.text.highlight.scanner.YAMLScanner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ScannerFactoryTestCase {
+
+   @Test
+   public void shouldLoadBuiltInsOnFirstUse() throws Exception {
+      Assert.assertTrue(Scanner.Factory.byFileName("Test.java") instanceof JavaScanner);
+      Assert.assertTrue(Scanner.Factory.byFileName("notes.txt") instanceof PlainScanner);
+      Assert.assertTrue(Encoder.Factory.types().contains(Encoder.Type.TERMINAL.name()));
+   }
+
+   @Test
+   public void shouldRegisterOnce() throws Exception {
+      Scanner java = Scanner.Factory.byType(JavaScanner.TYPE.getName());
+      int size = Scanner.Factory.scanners().size();
+      Syntax.builtIns();
+      Scanner.Factory.registrer(JavaScanner.class);
+      Assert.assertSame(java, Scanner.Factory.byType(JavaScanner.TYPE.getName()));
+      Assert.assertEquals(size, Scanner.Factory.scanners().size());
+   }
+
+   @Test
+   public void shouldLookupWhileRegistering() throws Exception {
+      Assert.assertFalse(Scanner.Factory.byFileName("README.md") instanceof MarkdownScanner);
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<Scanner>> results = new ArrayList<>();
+         for (int i = 0; i < 200; i++) {
+            final int n = i;
+            results.add(executor.submit(new Callable<Scanner>() {
+               @Override
+               public Scanner call() throws Exception {
+                  // every registration and removal replaces the registry
+                  if (n % 10 == 0) {
+                     Scanner.Factory.registrer(MarkdownScanner.class);
+                  }
+                  else if (n % 10 == 5) {
+                     Scanner.Factory.unregister(MarkdownScanner.class);
+                  }
+                  return Scanner.Factory.byFileName("Test" + n + ".java");
+               }
+            }));
+         }
+         for (Future<Scanner> result : results) {
+            Assert.assertTrue(result.get() instanceof JavaScanner);
+         }
+         Scanner.Factory.registrer(MarkdownScanner.class);
+         Assert.assertTrue(Scanner.Factory.byFileName("README.md") instanceof MarkdownScanner);
+      }
+      finally {
+         executor.shutdown();
+         Scanner.Factory.unregister(MarkdownScanner.class);
+      }
+      Assert.assertFalse(Scanner.Factory.byFileName("README.md") instanceof MarkdownScanner);
+   }
+
+   @Test
+   public void shouldLookupByExtension() throws Exception {
+      Assert.assertEquals(new HashSet<>(Arrays.asList("sql", "ddl", "dml", "dcl")), SQLScanner.TYPE.getExtensions());
+      Assert.assertTrue(PlainScanner.TYPE.getExtensions().isEmpty());
+      Assert.assertTrue(Scanner.Factory.byFileName("CONFIG.YAML") instanceof YAMLScanner);
+      Assert.assertTrue(Scanner.Factory.byFileName("src/Test.java") instanceof JavaScanner);
+      Assert.assertTrue(Scanner.Factory.byFileName("archive.tar") instanceof PlainScanner);
+      Assert.assertTrue(Scanner.Factory.byFileName("conf.xml/README") instanceof PlainScanner);
+      Assert.assertSame(Scanner.Factory.byType("java"), Scanner.Factory.byType("JAVA"));
+      Assert.assertNull(Scanner.Factory.byType(null));
+   }
+
+   @Test
+   public void shouldKeepPatternsApartFromExtensions() throws Exception {
+      Assert.assertEquals(new HashSet<>(Arrays.asList("java")), JavaScanner.TYPE.getExtensions());
+      Assert.assertTrue(JavaScanner.TYPE.supports("src/Test.JAVA"));
+      Assert.assertFalse(JavaScanner.TYPE.supports("Test.javax"));
+      Scanner.Type markdown = Scanner.Type.ofExtensions("MARKDOWN", "md");
+      Assert.assertEquals(new HashSet<>(Arrays.asList("md")), markdown.getExtensions());
+      Assert.assertTrue(markdown.supports("README.MD"));
+      Assert.assertFalse(markdown.supports("READMExmd"));
+      // a pattern, even one listing extensions, is matched as a pattern
+      Scanner.Type type = new Scanner.Type("MARKDOWN", "\\.(md|markdown)$");
+      Assert.assertTrue(type.getExtensions().isEmpty());
+      Assert.assertTrue(type.supports("README.MD"));
+   }
+
+   @Test
+   public void shouldMatchOtherPatterns() throws Exception {
+      Scanner.Factory.registrer(MakefileScanner.class);
+      try {
+         Assert.assertTrue(Scanner.Factory.byFileName("src/Makefile") instanceof MakefileScanner);
+         Assert.assertTrue(Scanner.Factory.byFileName("Test.java") instanceof JavaScanner);
+      }
+      finally {
+         Scanner.Factory.unregister(MakefileScanner.class);
+      }
+   }
+
+   @Test
+   public void shouldSniffContent() throws Exception {
+      Assert.assertTrue(sniff("#!/usr/bin/env groovy\nprintln 'hi'") instanceof GroovyScanner);
+      Assert.assertTrue(sniff("#!/usr/bin/env -S NODE_ENV=test node18 --trace\n") instanceof JavaScriptScanner);
+      Assert.assertTrue(sniff("\uFEFF<?xml version=\"1.0\"?>") instanceof XMLScanner);
+      Assert.assertTrue(sniff("\n  <!DOCTYPE html>") instanceof HTMLScanner);
+      Assert.assertNull(sniff("#!/bin/sh\n"));
+      Assert.assertNull(sniff("just text"));
+
+      Scanner scanner = Scanner.Factory.byFileName("build",
+            new ByteArrayInputStream("#!/usr/bin/groovy\n".getBytes(StandardCharsets.UTF_8)));
+      Assert.assertTrue(scanner instanceof GroovyScanner);
+      scanner = Scanner.Factory.byFileName("Test.java",
+            new ByteArrayInputStream("<?xml?>".getBytes(StandardCharsets.UTF_8)));
+      Assert.assertTrue(scanner instanceof JavaScanner);
+   }
+
+   private static Scanner sniff(String content) {
+      byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+      return Scanner.Factory.byContent(bytes, bytes.length);
+   }
+
+   public static class MarkdownScanner implements Scanner {
+      public static final Type TYPE = new Type("MARKDOWN", "\\.(md|markdown)$");
+
+      @Override
+      public Type getType() {
+         return TYPE;
+      }
+
+      @Override
+      public void scan(StringScanner source, Encoder encoder, Map<String, Object> options) {
+      }
+   }
+
+   public static class MakefileScanner implements Scanner {
+      public static final Type TYPE = new Type("MAKEFILE", "(^|/)Makefile$");
+
+      @Override
+      public Type getType() {
+         return TYPE;
+      }
+
+      @Override
+      public void scan(StringScanner source, Encoder encoder, Map<String, Object> options) {
+      }
+   }
+}
@@ -133,4 +133,81 @@ public class StringScannerTestCase {
       StringScanner scanner = new StringScanner(source);
       Assert.assertEquals(3, scanner.column(7));
    }
+
+   @Test
+   public void shouldKeepMatchWhenPatternIsScannedAgain() throws Exception {
+      Pattern p = Pattern.compile("(a)(b)?");
+      StringScanner scanner = new StringScanner("abaX");
+
+      MatchResult first = scanner.scan(p);
+      MatchResult second = scanner.scan(p);
+      Assert.assertEquals("ab", first.group());
+      Assert.assertEquals("b", first.group(2));
+      Assert.assertEquals("a", second.group());
+      Assert.assertNull(second.group(2));
+      Assert.assertNull(scanner.scan(p));
+   }
+
+   @Test
+   public void shouldWriteTokensAsRegions() throws Exception {
+      final StringBuilder regions = new StringBuilder();
+      Encoder.RegionEncoder encoder = new Encoder.RegionEncoder() {
+         @Override
+         public void textToken(CharSequence source, int start, int end, TokenType type) {
+            regions.append(type).append(start).append('-').append(end).append(source.subSequence(start, end)).append(' ');
+         }
+
+         @Override
+         public void textToken(String text, TokenType type) {
+            regions.append(type).append(text).append(' ');
+         }
+
+         @Override
+         public void beginGroup(TokenType type) {
+         }
+
+         @Override
+         public void endGroup(TokenType type) {
+         }
+
+         @Override
+         public void beginLine(TokenType type) {
+         }
+
+         @Override
+         public void endLine(TokenType type) {
+         }
+      };
+
+      StringScanner scanner = new StringScanner("int x");
+      scanner.token(encoder, scanner.scan("int"), TokenType.keyword);
+      scanner.token(encoder, scanner.scan(" "), TokenType.space);
+      scanner.token(encoder, scanner.scanUntil("(x)"), 1, TokenType.ident);
+      Assert.assertEquals("keyword0-3int space3-4  ident4-5x ", regions.toString());
+
+      // a match from another scanner is written as a string
+      regions.setLength(0);
+      scanner.token(encoder, new StringScanner("other").scan("other"), TokenType.ident);
+      Assert.assertEquals("identother ", regions.toString());
+   }
+
+   @Test
+   public void shouldCompareSingleCharMatches() throws Exception {
+      StringScanner scanner = new StringScanner("a.b..");
+      Assert.assertFalse(scanner.is(scanner.scan("a"), '.'));
+      Assert.assertTrue(scanner.is(scanner.scan("\\."), '.'));
+      Assert.assertTrue(scanner.is(scanner.scan("b"), 'b'));
+      Assert.assertFalse(scanner.is(scanner.scan("\\.\\."), '.'));
+      Assert.assertFalse(scanner.is(null, '.'));
+      Assert.assertTrue(scanner.is(new StringScanner("?").scan("\\?"), '?'));
+   }
+
+   @Test
+   public void shouldFindCharInMatch() throws Exception {
+      StringScanner scanner = new StringScanner("ab \n\t c");
+      Assert.assertFalse(scanner.contains(scanner.scan("ab"), '\n'));
+      Assert.assertTrue(scanner.contains(scanner.scan("\\s+"), '\n'));
+      Assert.assertFalse(scanner.contains(scanner.scan("c"), '\n'));
+      Assert.assertTrue(scanner.contains(new StringScanner("a\n").scan("a\n"), '\n'));
+   }
 }
@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight;
+
+import java.awt.Color;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ThemeTestCase {
+
+   @Test
+   public void shouldKeepColors() throws Exception {
+      Theme theme = new Theme(Color.WHITE)
+            .set(Color.MAGENTA, TokenType.keyword, TokenType.directive)
+            .set(new Color(1, 2, 3), TokenType.string);
+
+      Assert.assertEquals(Color.MAGENTA, theme.lookup(TokenType.keyword));
+      Assert.assertEquals(Color.MAGENTA, theme.lookup(TokenType.directive));
+      Assert.assertEquals(new Color(1, 2, 3), theme.lookup(TokenType.string));
+      Assert.assertEquals(Color.WHITE, theme.lookup(TokenType.comment));
+      Assert.assertNull(new Theme().lookup(TokenType.comment));
+
+      Assert.assertEquals(Theme.COLOR | 0xFF00FF, theme.style(TokenType.keyword));
+      Assert.assertEquals(0, new Theme().style(TokenType.comment));
+   }
+
+   @Test
+   public void shouldPackStyles() throws Exception {
+      Theme theme = new Theme()
+            .set(Theme.color(0x00FF00) | Theme.BOLD, TokenType.keyword)
+            .set(Theme.ITALIC, TokenType.comment);
+
+      Assert.assertEquals(Color.GREEN, theme.lookup(TokenType.keyword));
+      Assert.assertEquals(Theme.BOLD, theme.style(TokenType.keyword) & Theme.BOLD);
+      // a style without a color
+      Assert.assertNull(theme.lookup(TokenType.comment));
+      Assert.assertEquals(Theme.ITALIC, theme.style(TokenType.comment));
+   }
+
+   @Test
+   public void shouldLoadThemeFile() throws Exception {
+      Theme theme = Theme.load(new StringReader(
+            "# a theme\n" +
+                  "default = gray\n" +
+                  "keyword = magenta bold\n" +
+                  "string = #00AA00\n" +
+                  "class = cyan underline italic\n" +
+                  "comment = italic\n"));
+
+      Assert.assertEquals(Theme.color(0xFF00FF) | Theme.BOLD, theme.style(TokenType.keyword));
+      Assert.assertEquals(Theme.color(0x00AA00), theme.style(TokenType.string));
+      Assert.assertEquals(Theme.color(0x00FFFF) | Theme.UNDERLINE | Theme.ITALIC, theme.style(TokenType.class_));
+      Assert.assertEquals(Theme.ITALIC, theme.style(TokenType.comment));
+      Assert.assertEquals(Theme.color(0x808080), theme.style(TokenType.ident));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void shouldRejectUnknownTokenType() throws Exception {
+      Theme.load(new StringReader("keywords = red\n"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void shouldRejectUnknownColor() throws Exception {
+      Theme.load(new StringReader("keyword = crimson\n"));
+   }
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight.encoder;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColorProfileTestCase {
+
+   @Test
+   public void shouldScaleEveryValueInTheCube() throws Exception {
+      for (int value = 0; value < 256; value++) {
+         int scale = TerminalEncoder.TerminalString.getAnsiScale(value);
+         Assert.assertTrue("scale of " + value, scale >= 0 && scale <= 5);
+      }
+      Assert.assertEquals(0, TerminalEncoder.TerminalString.getAnsiScale(47));
+      Assert.assertEquals(1, TerminalEncoder.TerminalString.getAnsiScale(48));
+      Assert.assertEquals(2, TerminalEncoder.TerminalString.getAnsiScale(135));
+      Assert.assertEquals(5, TerminalEncoder.TerminalString.getAnsiScale(255));
+   }
+
+   @Test
+   public void shouldFindNearest256Color() throws Exception {
+      Assert.assertEquals("196", TerminalEncoder.TerminalString.from(Color.RED));
+      Assert.assertEquals("46", TerminalEncoder.TerminalString.from(Color.GREEN));
+      Assert.assertEquals("201", TerminalEncoder.TerminalString.from(Color.MAGENTA));
+      Assert.assertEquals("51", TerminalEncoder.TerminalString.from(Color.CYAN));
+      Assert.assertEquals("16", TerminalEncoder.TerminalString.from(Color.BLACK));
+      Assert.assertEquals("231", TerminalEncoder.TerminalString.from(Color.WHITE));
+      // grays between the cube levels use the gray ramp
+      Assert.assertEquals("244", TerminalEncoder.TerminalString.from(new Color(128, 128, 128)));
+      Assert.assertEquals("\u001B[38;5;196m", ColorProfile.XTERM_256.foreground(0xFF0000));
+   }
+
+   @Test
+   public void shouldFindNearest16Color() throws Exception {
+      Assert.assertEquals("\u001B[91m", ColorProfile.ANSI_16.foreground(0xFF0000));
+      Assert.assertEquals("\u001B[31m", ColorProfile.ANSI_16.foreground(0xBE140A));
+      Assert.assertEquals("\u001B[30m", ColorProfile.ANSI_16.foreground(0x000000));
+      Assert.assertEquals("\u001B[97m", ColorProfile.ANSI_16.foreground(0xFFFFFF));
+      Assert.assertEquals("\u001B[90m", ColorProfile.ANSI_16.foreground(0x808080));
+   }
+
+   @Test
+   public void shouldWriteTrueColor() throws Exception {
+      Assert.assertEquals("\u001B[38;2;1;128;255m", ColorProfile.TRUECOLOR.foreground(0x0180FF));
+      Assert.assertNull(ColorProfile.NONE.foreground(0xFF0000));
+      Assert.assertFalse(ColorProfile.NONE.isColored());
+   }
+
+   @Test
+   public void shouldLookUpByName() throws Exception {
+      Assert.assertSame(ColorProfile.TRUECOLOR, ColorProfile.Factory.byName("24bit"));
+      Assert.assertSame(ColorProfile.XTERM_256, ColorProfile.Factory.byName("256"));
+      Assert.assertSame(ColorProfile.ANSI_16, ColorProfile.Factory.byName("16"));
+      Assert.assertSame(ColorProfile.NONE, ColorProfile.Factory.byName("NONE"));
+      Assert.assertNull(ColorProfile.Factory.byName("8"));
+   }
+
+   @Test
+   public void shouldDetectTheTerminal() throws Exception {
+      Map<String, String> env = new HashMap<String, String>();
+      env.put("TERM", "xterm-256color");
+      Assert.assertSame(ColorProfile.XTERM_256, ColorProfile.Factory.detect(env, true));
+      Assert.assertSame(ColorProfile.NONE, ColorProfile.Factory.detect(env, false));
+
+      env.put("COLORTERM", "truecolor");
+      Assert.assertSame(ColorProfile.TRUECOLOR, ColorProfile.Factory.detect(env, true));
+
+      env.put("NO_COLOR", "");
+      Assert.assertSame(ColorProfile.NONE, ColorProfile.Factory.detect(env, true));
+
+      env.clear();
+      env.put("TERM", "linux");
+      Assert.assertSame(ColorProfile.ANSI_16, ColorProfile.Factory.detect(env, true));
+      env.put("TERM", "dumb");
+      Assert.assertSame(ColorProfile.NONE, ColorProfile.Factory.detect(env, true));
+   }
+}
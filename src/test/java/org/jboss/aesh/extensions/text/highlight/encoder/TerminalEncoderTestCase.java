@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.extensions.text.highlight.encoder;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.jboss.aesh.extensions.text.highlight.Options;
+import org.jboss.aesh.extensions.text.highlight.Theme;
+import org.jboss.aesh.extensions.text.highlight.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TerminalEncoderTestCase {
+
+   private static final String RESET = "\u001B[0m";
+   private static final String MAGENTA = "\u001B[38;5;" + TerminalEncoder.TerminalString.from(Color.MAGENTA) + "m";
+   private static final String GREEN = "\u001B[38;5;" + TerminalEncoder.TerminalString.from(Color.GREEN) + "m";
+
+   private final Theme theme = new Theme()
+         .set(Color.MAGENTA, TokenType.keyword, TokenType.directive)
+         .set(Color.GREEN, TokenType.string);
+
+   @Test
+   public void shouldSetColorOnlyWhenItChanges() throws Exception {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TerminalEncoder encoder = new TerminalEncoder(out, theme, Options.create());
+      encoder.textToken("public", TokenType.keyword);
+      encoder.textToken(" ", TokenType.space);
+      encoder.textToken("static", TokenType.directive);
+      encoder.textToken(" ", TokenType.space);
+      encoder.textToken("\"a\"", TokenType.string);
+      encoder.textToken("\n", TokenType.space);
+      encoder.textToken("x", TokenType.ident);
+      encoder.textToken("import", TokenType.keyword);
+
+      // nothing is written before the encoder is flushed
+      Assert.assertEquals(0, out.size());
+      encoder.flush();
+      Assert.assertEquals(RESET + MAGENTA + "public static " + RESET + GREEN + "\"a\"" + RESET + "\nx"
+            + MAGENTA + "import" + RESET, out.toString("UTF-8"));
+   }
+
+   @Test
+   public void shouldUseColorProfile() throws Exception {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TerminalEncoder encoder = new TerminalEncoder(out, theme,
+            Options.create().add(TerminalEncoder.OPTION_COLOR_PROFILE, "16"));
+      encoder.textToken("public", TokenType.keyword);
+      encoder.textToken(" ", TokenType.space);
+      encoder.textToken("\"a\"", TokenType.string);
+      encoder.flush();
+      Assert.assertEquals(RESET + "\u001B[95mpublic " + RESET + "\u001B[92m\"a\"" + RESET, out.toString("UTF-8"));
+   }
+
+   @Test
+   public void shouldWriteStyles() throws Exception {
+      Theme theme = new Theme()
+            .set(Theme.color(0xFF00FF) | Theme.BOLD, TokenType.keyword)
+            .set(Theme.ITALIC | Theme.UNDERLINE, TokenType.comment);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TerminalEncoder encoder = new TerminalEncoder(out, theme, Options.create());
+      encoder.textToken("public", TokenType.keyword);
+      encoder.textToken("//", TokenType.comment);
+      encoder.flush();
+      Assert.assertEquals(RESET + "\u001B[1m" + MAGENTA + "public" + RESET + "\u001B[3;4m//" + RESET,
+            out.toString("UTF-8"));
+   }
+
+   @Test
+   public void shouldNotUnderlineTheBlanksAfterAToken() throws Exception {
+      Theme theme = new Theme()
+            .set(Theme.color(0xFF00FF) | Theme.UNDERLINE, TokenType.keyword)
+            .set(Color.MAGENTA, TokenType.directive);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TerminalEncoder encoder = new TerminalEncoder(out, theme, Options.create());
+      encoder.textToken("public", TokenType.keyword);
+      encoder.textToken(" ", TokenType.space);
+      encoder.textToken("static", TokenType.directive);
+      encoder.textToken(" ", TokenType.space);
+      encoder.flush();
+      Assert.assertEquals(RESET + "\u001B[4m" + MAGENTA + "public" + RESET + " " + MAGENTA + "static " + RESET,
+            out.toString("UTF-8"));
+   }
+
+   @Test
+   public void shouldWriteNoEscapesWithoutColors() throws Exception {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TerminalEncoder encoder = new TerminalEncoder(out, theme,
+            Options.create().add(TerminalEncoder.OPTION_COLOR_PROFILE, ColorProfile.NONE));
+      encoder.textToken("public", TokenType.keyword);
+      encoder.textToken(" ", TokenType.space);
+      encoder.textToken("\"a\"", TokenType.string);
+      encoder.flush();
+      Assert.assertEquals("public \"a\"", out.toString("UTF-8"));
+   }
+
+   @Test
+   public void shouldEncodeUtf8() throws Exception {
+      String text = "caf\u00E9 \u20AC \uD83D\uDE00 \uD800!";
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TerminalEncoder encoder = new TerminalEncoder(out, theme,
+            Options.create().add(TerminalEncoder.OPTION_CHARSET, StandardCharsets.UTF_8));
+      encoder.textToken(text, TokenType.comment);
+      encoder.flush();
+      Assert.assertArrayEquals((RESET + text).getBytes(StandardCharsets.UTF_8), out.toByteArray());
+   }
+
+   @Test
+   public void shouldEncodeInGivenCharset() throws Exception {
+      String text = "caf\u00E9 \u20AC";
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TerminalEncoder encoder = new TerminalEncoder(out, theme,
+            Options.create().add(TerminalEncoder.OPTION_CHARSET, "ISO-8859-15"));
+      encoder.textToken(text, TokenType.comment);
+      encoder.flush();
+      Assert.assertArrayEquals((RESET + text).getBytes("ISO-8859-15"), out.toByteArray());
+   }
+
+   @Test
+   public void shouldWriteTextLargerThanTheBuffer() throws Exception {
+      StringBuilder text = new StringBuilder();
+      while (text.length() < 100000) {
+         text.append("\u00E9t\u00E9 ");
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TerminalEncoder encoder = new TerminalEncoder(out, theme,
+            Options.create().add(TerminalEncoder.OPTION_CHARSET, StandardCharsets.UTF_8));
+      encoder.textToken(text, 0, text.length(), TokenType.string);
+      encoder.flush();
+      Assert.assertEquals(RESET + GREEN + text + RESET, out.toString("UTF-8"));
+   }
+}